@@ -0,0 +1,129 @@
+package com.arthur.marchetti.benchmarks;
+
+import com.arthur.marchetti.interfaces.TaxCalculator.TaxCalculator;
+import com.arthur.marchetti.model.BeverageCategory;
+import com.arthur.marchetti.model.Cart;
+import com.arthur.marchetti.model.CartItem;
+import com.arthur.marchetti.model.Category;
+import com.arthur.marchetti.model.FlatRateTaxCalculator;
+import com.arthur.marchetti.model.MenuItem;
+import com.arthur.marchetti.model.RuleBasedTaxCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartBenchmark {
+
+    @Param({"1", "20", "500"})
+    int lines;
+
+    private final TaxCalculator taxCalc = new FlatRateTaxCalculator(new BigDecimal("0.06"));
+    private final TaxCalculator taxRules = RuleBasedTaxCalculator.builder(new BigDecimal("0.06"))
+            .rate(Category.DRINK, new BigDecimal("0.05"))
+            .rate(Category.BAKERY, BigDecimal.ZERO)
+            .rate(Category.MEAL, new BigDecimal("0.0825"))
+            .surcharge(BeverageCategory.ALCOHOLIC, new BigDecimal("0.10"))
+            .build();
+    private MenuItem[] items;
+    private Cart cart;
+    private BigDecimal subtotal;
+    private long subtotalCents;
+    private int cursor;
+    private int edits;
+
+    @Setup(Level.Trial)
+    public void menu() {
+        items = Fixtures.menu(lines);
+    }
+
+    // rebuilt every iteration so the merge benchmarks never overflow a line quantity
+    @Setup(Level.Iteration)
+    public void fill() {
+        cart = Fixtures.cart(items);
+        subtotal = cart.getSubtotal();
+        subtotalCents = cart.getSubtotalCents();
+        cursor = 0;
+    }
+
+    private MenuItem next() {
+        var item = items[cursor];
+        if (++cursor == items.length) cursor = 0;
+        return item;
+    }
+
+    @Benchmark
+    public Cart addToEmptyCart() {
+        var c = new Cart();
+        for (var item : items) c.add(item, 1);
+        return c;
+    }
+
+    @Benchmark
+    public Cart addMergesExistingLine() {
+        cart.add(next(), 1);
+        return cart;
+    }
+
+    // the quantity always changes; setting the one a line already has is not an edit
+    @Benchmark
+    public Cart updateQty() {
+        cart.updateQty(next(), 1 + (++edits & 7));
+        return cart;
+    }
+
+    // what the cart table and an order take after every edit
+    @Benchmark
+    public List<CartItem> editThenSnapshot() {
+        cart.updateQty(next(), 1 + (++edits & 7));
+        return cart.items();
+    }
+
+    @Benchmark
+    public boolean undoThenRedo() {
+        return cart.undo() & cart.redo();
+    }
+
+    @Benchmark
+    public BigDecimal getSubtotal() {
+        return cart.getSubtotal();
+    }
+
+    @Benchmark
+    public BigDecimal getTotal() {
+        return cart.getTotal(taxCalc);
+    }
+
+    @Benchmark
+    public BigDecimal flatRateTax() {
+        return taxCalc.tax(subtotal);
+    }
+
+    @Benchmark
+    public long getTotalCents() {
+        return cart.getTotalCents(taxCalc);
+    }
+
+    @Benchmark
+    public long flatRateTaxCents() {
+        return taxCalc.taxCents(subtotalCents);
+    }
+
+    // one pass over the lines, per-line rounding
+    @Benchmark
+    public long ruleBasedTaxCents() {
+        return cart.getTaxCents(taxRules);
+    }
+
+    @Benchmark
+    public long[] ruleBasedLineTaxCents() {
+        return cart.getLineTaxCents(taxRules);
+    }
+}
@@ -0,0 +1,67 @@
+package com.arthur.marchetti.benchmarks;
+
+import com.arthur.marchetti.model.MenuItem;
+import com.arthur.marchetti.repo.CatalogIndex;
+import com.arthur.marchetti.repo.FileCatalogRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogBenchmark {
+
+    @Param({"1000", "50000"})
+    int items;
+
+    private Path root;
+    private Path file;
+    private CatalogIndex index;
+    private CatalogIndex.Matches typedSoFar;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        root = Files.createTempDirectory("kiosk-bench");
+        file = root.resolve("catalog.csv");
+        var sb = new StringBuilder("sku,name,category,price\n");
+        for (var m : Fixtures.menu(items)) {
+            sb.append("SKU-").append(m.getName().substring("Menu item ".length())).append(',')
+                    .append(m.getName()).append(',').append(m.getCategory()).append(',')
+                    .append(m.getPrice().toPlainString()).append('\n');
+        }
+        Files.writeString(file, sb);
+        index = new CatalogIndex(List.of(Fixtures.menu(items)));
+        typedSoFar = index.matches("1");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Fixtures.deleteRecursively(root);
+    }
+
+    // The second keystroke of a search, from scratch and narrowed from the first. Queries under three
+    // characters have no trigram to go by, so from scratch means every name in the catalog.
+    @Benchmark
+    public List<MenuItem> searchFromScratch() {
+        return index.search("12");
+    }
+
+    @Benchmark
+    public List<MenuItem> searchNarrowed() {
+        return typedSoFar.narrow("12").items();
+    }
+
+    @Benchmark
+    public Object loadCatalogFile() throws Exception {
+        try (var repo = new FileCatalogRepository(file)) {
+            return repo.snapshot();
+        }
+    }
+}
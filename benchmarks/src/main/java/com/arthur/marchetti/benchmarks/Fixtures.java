@@ -0,0 +1,44 @@
+package com.arthur.marchetti.benchmarks;
+
+import com.arthur.marchetti.model.Cart;
+import com.arthur.marchetti.model.Category;
+import com.arthur.marchetti.model.MenuItem;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+final class Fixtures {
+    private Fixtures() {}
+
+    static MenuItem[] menu(int size) {
+        var categories = Category.values();
+        var items = new MenuItem[size];
+        for (int i = 0; i < size; i++) {
+            // prices between 1.25 and 13.75 so line totals keep a realistic scale
+            var price = BigDecimal.valueOf(125 + (i * 37L) % 1250, 2);
+            items[i] = new MenuItem("Menu item " + i, price, categories[i % categories.length]);
+        }
+        return items;
+    }
+
+    static Cart cart(MenuItem[] items) {
+        var cart = new Cart();
+        for (int i = 0; i < items.length; i++) {
+            cart.add(items[i], 1 + i % 3);
+        }
+        return cart;
+    }
+
+    static void deleteRecursively(Path root) throws IOException {
+        if (root == null || !Files.exists(root)) return;
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (var p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.arthur.marchetti.benchmarks;
+
+import com.arthur.marchetti.model.OrderIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderIdBenchmark {
+
+    private final OrderIdGenerator ids = new OrderIdGenerator(1);
+
+    // what MainFrame.buildOrderSnapshot used to do
+    @Benchmark
+    public Object legacyTimestampId() {
+        String id = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss").withZone(ZoneId.systemDefault()).format(Instant.now());
+        return new Object[]{id, Instant.now()};
+    }
+
+    @Benchmark
+    public long next() {
+        return ids.next();
+    }
+
+    @Benchmark
+    public String nextFormatted() {
+        return ids.nextFormatted();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long nextContended() {
+        return ids.next();
+    }
+}
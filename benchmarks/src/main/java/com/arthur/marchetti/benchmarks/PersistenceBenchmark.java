@@ -0,0 +1,118 @@
+package com.arthur.marchetti.benchmarks;
+
+import com.arthur.marchetti.cli.ReceiptFormatter;
+import com.arthur.marchetti.model.FlatRateTaxCalculator;
+import com.arthur.marchetti.model.Order;
+import com.arthur.marchetti.repo.FileReceiptRepository;
+import com.arthur.marchetti.repo.SegmentedReceiptLog;
+import com.arthur.marchetti.repo.SqliteOrderRepository;
+import com.arthur.marchetti.repo.SqliteReceiptRepository;
+import com.arthur.marchetti.services.ReceiptRenderer;
+import com.arthur.marchetti.services.ReceiptService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @Param({"1", "20", "500"})
+    int lines;
+
+    private Path root;
+    private List<String> receipt;
+    private SqliteReceiptRepository sqlite;
+    private SqliteReceiptRepository sqliteWal;
+    private SqliteOrderRepository orders;
+    private Order order;
+    private FileReceiptRepository files;
+    private SegmentedReceiptLog log;
+    private SegmentedReceiptLog logBackgroundSync;
+    private int dirCounter;
+    private final ReceiptRenderer renderer = new ReceiptRenderer();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        root = Files.createTempDirectory("kiosk-bench");
+        var cart = Fixtures.cart(Fixtures.menu(lines));
+        var taxCalc = new FlatRateTaxCalculator(new BigDecimal("0.06"));
+        receipt = new ReceiptService(taxCalc).render(cart);
+        order = new Order("20250101_120000", "Alice", Instant.EPOCH, cart.items(),
+                cart.getSubtotal(), cart.getTax(taxCalc), cart.getTotal(taxCalc));
+        sqlite = new SqliteReceiptRepository(root.resolve("receipts.db"));
+        sqliteWal = SqliteReceiptRepository.open(root.resolve("receipts-wal.db"), SqliteReceiptRepository.Synchronous.NORMAL);
+        orders = SqliteOrderRepository.open(root.resolve("orders.db"), SqliteReceiptRepository.Synchronous.NORMAL);
+        log = new SegmentedReceiptLog(root.resolve("log"));
+        logBackgroundSync = new SegmentedReceiptLog(root.resolve("log-bg"), SegmentedReceiptLog.DEFAULT_SEGMENT_BYTES, 50);
+    }
+
+    // FileReceiptRepository names files by second and refuses to overwrite,
+    // so every invocation gets its own directory
+    @Setup(Level.Invocation)
+    public void freshReceiptDir() {
+        files = new FileReceiptRepository(root.resolve("files").resolve(Integer.toString(dirCounter++)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        sqliteWal.close();
+        orders.close();
+        log.close();
+        logBackgroundSync.close();
+        Fixtures.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public Path fileSave() throws IOException {
+        return files.save(receipt);
+    }
+
+    @Benchmark
+    public long sqliteSave() throws Exception {
+        return sqlite.save(receipt, "Alice", "10.00", "0.60", "10.60");
+    }
+
+    @Benchmark
+    public long sqliteSavePersistentWal() throws Exception {
+        return sqliteWal.save(receipt, "Alice", "10.00", "0.60", "10.60");
+    }
+
+    @Benchmark
+    public long sqliteOrderSave() throws Exception {
+        return orders.save(order);
+    }
+
+    // fsync per save when called from one thread; concurrent callers share fsyncs
+    @Benchmark
+    public long segmentLogAppend() throws IOException {
+        return log.append(receipt);
+    }
+
+    @Benchmark
+    public long segmentLogAppendBackgroundSync() throws IOException {
+        return logBackgroundSync.append(receipt);
+    }
+
+    // the kiosk checkout: customer receipt text into the log, as lines (the old path) and as rendered bytes
+    @Benchmark
+    public long checkoutLinesBackgroundSync() throws IOException {
+        return logBackgroundSync.append(ReceiptFormatter.format(order).lines().toList());
+    }
+
+    @Benchmark
+    public long checkoutBytesBackgroundSync() throws IOException {
+        return logBackgroundSync.append(renderer.encodeOrder(order, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,79 @@
+package com.arthur.marchetti.benchmarks;
+
+import com.arthur.marchetti.cli.ReceiptFormatter;
+import com.arthur.marchetti.interfaces.TaxCalculator.TaxCalculator;
+import com.arthur.marchetti.model.Cart;
+import com.arthur.marchetti.model.CartItem;
+import com.arthur.marchetti.model.FlatRateTaxCalculator;
+import com.arthur.marchetti.model.Order;
+import com.arthur.marchetti.services.ReceiptRenderer;
+import com.arthur.marchetti.services.ReceiptService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceiptBenchmark {
+
+    @Param({"1", "20", "500"})
+    int lines;
+
+    private final TaxCalculator taxCalc = new FlatRateTaxCalculator(new BigDecimal("0.06"));
+    private final ReceiptService service = new ReceiptService(taxCalc);
+    private Cart cart;
+    private List<CartItem> snapshot;
+    private BigDecimal subtotal;
+    private BigDecimal tax;
+    private BigDecimal total;
+    private Order order;
+    private final StringBuilder text = new StringBuilder(4096);
+    private final ReceiptRenderer renderer = new ReceiptRenderer();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cart = Fixtures.cart(Fixtures.menu(lines));
+        snapshot = cart.items();
+        subtotal = cart.getSubtotal();
+        tax = cart.getTax(taxCalc);
+        total = cart.getTotal(taxCalc);
+        order = newOrder();
+    }
+
+    @Benchmark
+    public List<String> serviceRender() {
+        return service.render(cart);
+    }
+
+    @Benchmark
+    public String formatterFormat() {
+        return ReceiptFormatter.format(order);
+    }
+
+    @Benchmark
+    public StringBuilder rendererTableInto() throws IOException {
+        text.setLength(0);
+        ReceiptRenderer.renderTable(cart, taxCalc, "\n", text);
+        return text;
+    }
+
+    @Benchmark
+    public ByteBuffer rendererEncodeOrder() {
+        return renderer.encodeOrder(order, ZoneOffset.UTC);
+    }
+
+    @Benchmark
+    public Order newOrder() {
+        return new Order("20250101_120000", "Alice", Instant.EPOCH, snapshot, subtotal, tax, total);
+    }
+}
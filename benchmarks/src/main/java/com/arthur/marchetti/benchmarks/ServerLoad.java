@@ -0,0 +1,102 @@
+package com.arthur.marchetti.benchmarks;
+
+import com.arthur.marchetti.model.FlatRateTaxCalculator;
+import com.arthur.marchetti.repo.InMemoryCatalogRepository;
+import com.arthur.marchetti.repo.SqliteReceiptRepository;
+import com.arthur.marchetti.repo.WriteBehindReceiptRepository;
+import com.arthur.marchetti.server.OrderServer;
+import com.arthur.marchetti.services.CartSessionRegistry;
+import com.arthur.marchetti.services.ReceiptService;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Not a JMH benchmark: drives a whole order (session, two adds, checkout) against an in-process OrderServer
+// with the given number of orders in flight and prints throughput and order latency.
+//
+//   java -cp benchmarks/target/benchmarks.jar com.arthur.marchetti.benchmarks.ServerLoad [orders] [inFlight]
+public class ServerLoad {
+    public static void main(String[] args) throws Exception {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        // same JDK HttpServer tuning as ServerMain
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+        if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null) {
+            System.setProperty("sun.net.httpserver.maxIdleConnections", "10000");
+        }
+
+        var root = Files.createTempDirectory("kiosk-load");
+        var sqlite = SqliteReceiptRepository.open(root.resolve("receipts.db"), SqliteReceiptRepository.Synchronous.NORMAL);
+        var receipts = new WriteBehindReceiptRepository(sqlite, 16_384, 512, 5);
+        var sessions = new CartSessionRegistry(orders + 1, Duration.ofMinutes(5));
+        var service = new ReceiptService(new FlatRateTaxCalculator(new BigDecimal("0.06")));
+        var server = new OrderServer(new InetSocketAddress("127.0.0.1", 0), new InMemoryCatalogRepository(),
+                sessions, service, receipts);
+        server.start();
+        String base = "http://127.0.0.1:" + server.address().getPort();
+        var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        try {
+            var inFlight = new Semaphore(concurrency);
+            var failures = new AtomicInteger();
+            long[] latencies = new long[orders];
+            var all = new CompletableFuture<?>[orders];
+            long start = System.nanoTime();
+            for (int i = 0; i < orders; i++) {
+                inFlight.acquire();
+                int n = i;
+                long begin = System.nanoTime();
+                all[i] = send(client, base, "POST", "/sessions", null)
+                        .thenCompose(r -> {
+                            String s = r.body().replaceAll(".*\"session\":\"([^\"]+)\".*", "$1");
+                            String cart = "/sessions/" + s + "/cart";
+                            return send(client, base, "POST", cart, "item=Coffee&qty=2")
+                                    .thenCompose(x -> send(client, base, "POST", cart, "item=Croissant"))
+                                    .thenCompose(x -> send(client, base, "POST", "/sessions/" + s + "/checkout", "customer=Load"));
+                        })
+                        .whenComplete((r, e) -> {
+                            if (e != null || r.statusCode() != 200) {
+                                if (failures.incrementAndGet() == 1) {
+                                    System.err.println("first failure: " + (e != null ? e : r.statusCode() + " " + r.body()));
+                                }
+                            }
+                            latencies[n] = System.nanoTime() - begin;
+                            inFlight.release();
+                        });
+            }
+            CompletableFuture.allOf(all).exceptionally(e -> null).get(10, TimeUnit.MINUTES);
+            long elapsed = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            System.out.printf("%d orders, %d in flight: %.0f orders/s, failures %d%n",
+                    orders, concurrency, orders / (elapsed / 1e9), failures.get());
+            System.out.printf("order latency p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                    latencies[orders / 2] / 1e6, latencies[(int) (orders * 0.99)] / 1e6, latencies[orders - 1] / 1e6);
+        } finally {
+            server.close();
+            receipts.close();
+            sqlite.close();
+            Fixtures.deleteRecursively(root);
+        }
+    }
+
+    private static CompletableFuture<HttpResponse<String>> send(HttpClient client, String base, String method,
+                                                                String path, String form) {
+        var builder = HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(60));
+        if (form == null) builder.method(method, HttpRequest.BodyPublishers.noBody());
+        else builder.header("Content-Type", "application/x-www-form-urlencoded")
+                .method(method, HttpRequest.BodyPublishers.ofString(form));
+        return client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
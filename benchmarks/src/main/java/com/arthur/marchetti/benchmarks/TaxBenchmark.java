@@ -0,0 +1,68 @@
+package com.arthur.marchetti.benchmarks;
+
+import com.arthur.marchetti.interfaces.TaxCalculator.TaxCalculator;
+import com.arthur.marchetti.model.FlatRateTaxCalculator;
+import com.arthur.marchetti.model.TaxBatch;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// re-pricing a period of orders: one call per order against the bulk, parallel and stream paths
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaxBenchmark {
+
+    @Param({"1000000"})
+    int orders;
+
+    private final TaxCalculator taxCalc = new FlatRateTaxCalculator(new BigDecimal("0.0825"));
+    private long[] amounts;
+    private BigDecimal[] decimals;
+
+    @Setup(Level.Trial)
+    public void amounts() {
+        var random = new Random(42);
+        amounts = new long[orders];
+        decimals = new BigDecimal[orders];
+        for (int i = 0; i < orders; i++) {
+            amounts[i] = 100 + random.nextInt(20_000);
+            decimals[i] = BigDecimal.valueOf(amounts[i], 2);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal[] perOrderBigDecimal() {
+        var taxes = new BigDecimal[orders];
+        for (int i = 0; i < orders; i++) taxes[i] = taxCalc.tax(decimals[i]);
+        return taxes;
+    }
+
+    @Benchmark
+    public long[] perOrderCents() {
+        long[] taxes = new long[orders];
+        for (int i = 0; i < orders; i++) taxes[i] = taxCalc.taxCents(amounts[i]);
+        return taxes;
+    }
+
+    @Benchmark
+    public long[] bulk() {
+        return taxCalc.taxCents(amounts);
+    }
+
+    @Benchmark
+    public long[] parallel() {
+        return TaxBatch.parallelTaxCents(taxCalc, amounts);
+    }
+
+    @Benchmark
+    public long parallelStreamSum() {
+        return taxCalc.taxCents(Arrays.stream(amounts).parallel()).sum();
+    }
+}
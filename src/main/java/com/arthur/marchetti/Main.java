@@ -1,12 +1,30 @@
 package com.arthur.marchetti;
 
 import com.arthur.marchetti.cli.MainFrame;
+import com.arthur.marchetti.metrics.Metrics;
+import com.arthur.marchetti.metrics.MetricsReporter;
 
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+// Metrics: JMX under com.arthur.marchetti, and logged every -Dkiosk.metricsInterval seconds (default 300, 0 = off).
 public class Main {
     public static void main(String[] args) {
+        Metrics.global().registerMBeans(ManagementFactory.getPlatformMBeanServer());
+        int interval = Integer.getInteger("kiosk.metricsInterval", 300);
+        if (interval > 0) new MetricsReporter(Metrics.global()).start(Duration.ofSeconds(interval));
+
         javax.swing.SwingUtilities.invokeLater(() -> {
-            MainFrame f = new MainFrame();
+            MainFrame f;
+            try {
+                f = new MainFrame();
+            } catch (IllegalStateException e) {
+                // configuration the kiosk cannot run without, such as -Dkiosk.terminalId
+                System.err.println("Cannot start: " + e.getMessage());
+                System.exit(2);
+                return;
+            }
             f.setVisible(true);
         });
     }
-}
\ No newline at end of file
+}
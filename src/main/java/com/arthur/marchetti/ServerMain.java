@@ -0,0 +1,81 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.interfaces.TaxCalculator.CatalogRepository;
+import com.arthur.marchetti.interfaces.TaxCalculator.TaxCalculator;
+import com.arthur.marchetti.metrics.Metrics;
+import com.arthur.marchetti.metrics.MetricsReporter;
+import com.arthur.marchetti.model.FlatRateTaxCalculator;
+import com.arthur.marchetti.model.RuleBasedTaxCalculator;
+import com.arthur.marchetti.repo.FileCatalogRepository;
+import com.arthur.marchetti.repo.InMemoryCatalogRepository;
+import com.arthur.marchetti.repo.SqliteReceiptRepository;
+import com.arthur.marchetti.repo.WriteBehindReceiptRepository;
+import com.arthur.marchetti.server.OrderServer;
+import com.arthur.marchetti.services.CartSessionRegistry;
+import com.arthur.marchetti.services.ReceiptService;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+// usage: ServerMain [port] [receipts.db]
+// Catalog: -Dkiosk.catalog=<csv>, otherwise the built-in menu.
+// Tax: -Dkiosk.taxRules=<rules> (see RuleBasedTaxCalculator.parse), otherwise 6% flat.
+// Metrics: JMX under com.arthur.marchetti, and logged every -Dkiosk.metricsInterval seconds (default 300, 0 = off).
+public class ServerMain {
+    public static void main(String[] args) throws Exception {
+        // JDK HttpServer tuning for this process, read when the first server is created; explicit -D settings win.
+        // Nagle makes every small response wait for the client's delayed ACK (~40 ms per request), and the
+        // default cap of 200 idle keep-alive connections makes thousands of terminals reconnect constantly.
+        defaultProperty("sun.net.httpserver.nodelay", "true");
+        defaultProperty("sun.net.httpserver.maxIdleConnections", "10000");
+
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        Path db = args.length > 1 ? Paths.get(args[1]) : Paths.get(System.getProperty("user.home"), "kiosk-receipts.db");
+
+        CatalogRepository catalog;
+        String catalogFile = System.getProperty("kiosk.catalog");
+        if (catalogFile != null) {
+            var fileCatalog = new FileCatalogRepository(Paths.get(catalogFile));
+            fileCatalog.watch();
+            catalog = fileCatalog;
+        } else {
+            catalog = new InMemoryCatalogRepository();
+        }
+
+        Metrics.global().registerMBeans(ManagementFactory.getPlatformMBeanServer());
+        var metricsReporter = new MetricsReporter(Metrics.global());
+        int metricsInterval = Integer.getInteger("kiosk.metricsInterval", 300);
+        if (metricsInterval > 0) metricsReporter.start(Duration.ofSeconds(metricsInterval));
+
+        String taxRules = System.getProperty("kiosk.taxRules");
+        TaxCalculator taxCalc = taxRules != null ? RuleBasedTaxCalculator.parse(taxRules)
+                : new FlatRateTaxCalculator(new BigDecimal("0.06"));
+        var sqlite = SqliteReceiptRepository.open(db, SqliteReceiptRepository.Synchronous.NORMAL);
+        var receipts = new WriteBehindReceiptRepository(sqlite, 8192, 256, 5);
+        var sessions = new CartSessionRegistry(50_000, Duration.ofMinutes(30));
+        sessions.startSweeper(Duration.ofMinutes(1));
+        var server = new OrderServer(new InetSocketAddress(port), catalog, sessions, new ReceiptService(taxCalc), receipts);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.stop(2);
+                receipts.close();
+                sqlite.close();
+                sessions.close();
+                metricsReporter.close();
+            } catch (Exception e) {
+                System.err.println("Shutdown failed: " + e.getMessage());
+            }
+        }));
+        server.start();
+        System.out.println("Order server listening on " + server.address());
+    }
+
+    private static void defaultProperty(String key, String value) {
+        if (System.getProperty(key) == null) System.setProperty(key, value);
+    }
+}
@@ -1,25 +1,62 @@
 package com.arthur.marchetti.cli;
 
 import com.arthur.marchetti.model.Cart;
+import com.arthur.marchetti.model.CartChange;
 import com.arthur.marchetti.model.CartItem;
 import com.arthur.marchetti.model.MenuItem;
 
+import javax.swing.SwingUtilities;
 import javax.swing.table.AbstractTableModel;
 import java.util.List;
 
+// Follows the cart through its change events and fires row events for just the rows an edit touched, so a
+// quantity change repaints one row instead of relaying out the whole table. Every change carries the lines
+// after it, which become the model's snapshot as the change is applied.
+//
+// Edits made on the EDT apply at once. Edits from other threads are posted to the EDT, and while any are
+// still queued later ones queue behind them, so the table always goes through the changes in cart order.
 public class CartTableModel extends AbstractTableModel {
     private final Cart cart;
     private List<CartItem> snapshot;
+    private int queued; // changes posted to the EDT and not yet applied; guarded by the cart's lock
     private static final String[] COLS = {"Item", "Qty", "Price", "Line Total"};
 
     public CartTableModel(Cart cart) {
         this.cart = cart;
-        this.snapshot = cart.items();
+        synchronized (cart) {
+            this.snapshot = cart.items();
+            cart.addChangeListener(this::onChange);
+        }
     }
 
-    public void refresh() {
-        this.snapshot = cart.items();
-        fireTableDataChanged();
+    // called with the cart locked
+    private void onChange(CartChange change) {
+        if (queued == 0 && SwingUtilities.isEventDispatchThread()) {
+            apply(change);
+            return;
+        }
+        queued++;
+        SwingUtilities.invokeLater(() -> {
+            synchronized (cart) {
+                queued--;
+            }
+            apply(change);
+        });
+    }
+
+    private void apply(CartChange change) {
+        snapshot = change.lines();
+        if (change instanceof CartChange.LineAdded c) {
+            fireTableRowsInserted(c.index(), c.index());
+        } else if (change instanceof CartChange.LineRemoved c) {
+            fireTableRowsDeleted(c.index(), c.index());
+        } else if (change instanceof CartChange.QuantityChanged c) {
+            fireTableRowsUpdated(c.index(), c.index());
+        } else if (change instanceof CartChange.Cleared c) {
+            fireTableRowsDeleted(0, c.removed().size() - 1);
+        } else {
+            fireTableDataChanged(); // undo or redo
+        }
     }
 
     public MenuItem getItemAt(int row) {
@@ -53,7 +90,6 @@ public class CartTableModel extends AbstractTableModel {
         try {
             int q = Integer.parseInt(String.valueOf(aValue));
             cart.updateQty(snapshot.get(row).getItem(), q);
-            refresh();
         } catch (NumberFormatException ignore) { }
     }
 }
\ No newline at end of file
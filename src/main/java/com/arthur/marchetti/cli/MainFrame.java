@@ -1,44 +1,97 @@
 package com.arthur.marchetti.cli;
 
 import com.arthur.marchetti.interfaces.TaxCalculator.CatalogRepository;
+import com.arthur.marchetti.interfaces.TaxCalculator.ReceiptRepository;
 import com.arthur.marchetti.interfaces.TaxCalculator.TaxCalculator;
+import com.arthur.marchetti.metrics.Counter;
+import com.arthur.marchetti.metrics.LatencyHistogram;
+import com.arthur.marchetti.metrics.Metrics;
 import com.arthur.marchetti.model.Cart;
 import com.arthur.marchetti.model.Category;
 import com.arthur.marchetti.model.FlatRateTaxCalculator;
 import com.arthur.marchetti.model.MenuItem;
 import com.arthur.marchetti.model.Order;
+import com.arthur.marchetti.model.OrderIdGenerator;
+import com.arthur.marchetti.model.RenderedReceipt;
+import com.arthur.marchetti.model.RuleBasedTaxCalculator;
+import com.arthur.marchetti.repo.CatalogIndex;
+import com.arthur.marchetti.repo.FileCatalogRepository;
 import com.arthur.marchetti.repo.FileReceiptRepository;
 import com.arthur.marchetti.repo.InMemoryCatalogRepository;
+import com.arthur.marchetti.repo.PrintSpool;
+import com.arthur.marchetti.repo.SegmentedReceiptLog;
+import com.arthur.marchetti.services.ReceiptCompactor;
+import com.arthur.marchetti.services.ReceiptPipeline;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.event.ListSelectionEvent;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.Instant;
+import java.time.Duration;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class MainFrame extends JFrame {
 
-    private final CatalogRepository catalogRepo = new InMemoryCatalogRepository();
+    private final CatalogRepository catalogRepo = openCatalog();
     private final Cart cart = new Cart();
-    private final TaxCalculator taxCalc = new FlatRateTaxCalculator(new BigDecimal("0.06"));
-    private final FileReceiptRepository receiptRepository = new FileReceiptRepository(defaultReceiptDir());
+    private final TaxCalculator taxCalc = openTaxCalculator();
+    private final OrderIdGenerator orderIds = openOrderIds();
+    private final ReceiptRepository receiptRepository = openReceiptLog();
+    private final ReceiptPipeline receiptPipeline = openReceiptPipeline(receiptRepository);
+    private final ReceiptCompactor receiptCompactor = startCompactor(receiptRepository);
 
     private JList<MenuItem> itemsList;
-    private DefaultListModel<MenuItem> itemsModel;
+    private MenuListModel itemsModel;
+    private JTextField searchField;
+    // every keystroke restarts it, so a search only starts once typing pauses
+    private final Timer searchTimer = new Timer(SEARCH_DELAY_MILLIS, e -> startSearch());
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "menu-search");
+        t.setDaemon(true);
+        return t;
+    });
+    private Future<?> pendingSearch; // EDT only, like the two below
+    private long searchGeneration;
+    private CatalogIndex.Matches lastMatches; // what the list shows while searching
+    private CatalogIndex catalogIndex; // for catalogs that are not a FileCatalogRepository, built on first search
     private JSpinner qtySpinner;
     private JButton addBtn;
+    private JButton removeBtn;
+    private JButton clearBtn;
+    private JButton checkoutBtn;
+    private JProgressBar checkoutProgress;
+    private boolean checkoutInProgress; // EDT only; the cart is frozen until the receipt is saved or abandoned
     private JTable cartTable;
     private CartTableModel cartTableModel;
     private JLabel subtotalLbl;
     private JLabel taxLbl;
     private JLabel totalLbl;
+    private Category currentCategory = Category.DRINK;
+
+    private static final int SEARCH_DELAY_MILLIS = 150;
+    private static final Font ITEM_FONT = new Font("Segoe UI", Font.PLAIN, 16);
+    private static final String RECEIPT_LOG = "log";
+    private static final String PRINT_SPOOL = "print";
+    // from the name being entered until the receipt log has the receipt, once per attempt
+    private static final LatencyHistogram CHECKOUT = Metrics.global().histogram("checkout");
+    private static final LatencyHistogram CHECKOUT_EDT = Metrics.global().histogram("checkout.edt");
+    private static final Counter CHECKOUT_FAILURES = Metrics.global().counter("checkout.failures");
 
     private static final Color COLOR_BACKGROUND = new Color(250, 245, 238);
     private static final Color COLOR_PANEL = new Color(255, 255, 255);
@@ -64,6 +117,17 @@ public class MainFrame extends JFrame {
 
         loadItems(Category.DRINK);
         updateTotals();
+        bindUndoKeys();
+
+        if (catalogRepo instanceof FileCatalogRepository fileCatalog) {
+            // price changes show up without a restart; the list is refreshed on the EDT
+            fileCatalog.addReloadListener(() -> SwingUtilities.invokeLater(this::startSearch));
+            try {
+                fileCatalog.watch();
+            } catch (IOException ex) {
+                System.err.println("Catalog file will not be watched: " + ex.getMessage());
+            }
+        }
     }
 
     private JComponent buildLeftPanel() {
@@ -136,9 +200,24 @@ public class MainFrame extends JFrame {
         var titleLabel = new JLabel("Items");
         titleLabel.setFont(new Font("Segoe UI", Font.BOLD, 20));
         titleLabel.setForeground(COLOR_PRIMARY);
-        root.add(titleLabel, BorderLayout.NORTH);
+        var header = new JPanel(new BorderLayout(0, 10));
+        header.setBackground(COLOR_PANEL);
+        header.add(titleLabel, BorderLayout.NORTH);
+
+        searchField = new JTextField();
+        searchField.setFont(ITEM_FONT);
+        searchField.setToolTipText("Search the whole menu");
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { searchTimer.restart(); }
+            @Override public void removeUpdate(DocumentEvent e) { searchTimer.restart(); }
+            @Override public void changedUpdate(DocumentEvent e) { }
+        });
+        searchField.addActionListener(e -> startSearch()); // Enter searches without waiting
+        searchTimer.setRepeats(false);
+        header.add(searchField, BorderLayout.SOUTH);
+        root.add(header, BorderLayout.NORTH);
 
-        itemsModel = new DefaultListModel<>();
+        itemsModel = new MenuListModel();
         itemsList = new JList<>(itemsModel);
         itemsList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         itemsList.addListSelectionListener(e -> onItemSelected(e));
@@ -153,13 +232,16 @@ public class MainFrame extends JFrame {
                 var c = super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
                 if (value instanceof MenuItem mi) {
                     setText(mi.getName() + "  —  $" + mi.getPrice().toPlainString());
-                    setFont(new Font("Segoe UI", Font.PLAIN, 16));
+                    setFont(ITEM_FONT);
                     setBorder(BorderFactory.createEmptyBorder(8, 10, 8, 10));
                 }
                 return c;
             }
         });
 
+        // every cell is sized from this one, so the list never measures its items and only renders the rows in view
+        itemsList.setPrototypeCellValue(new MenuItem("Pesto focaccia sandwich, large", new BigDecimal("99.99"), Category.MEAL));
+
         var scrollPane = new JScrollPane(itemsList);
         scrollPane.setBorder(BorderFactory.createLineBorder(COLOR_ACCENT, 1, true));
         root.add(scrollPane, BorderLayout.CENTER);
@@ -226,7 +308,7 @@ public class MainFrame extends JFrame {
         cartTable.getTableHeader().setBackground(COLOR_PRIMARY);
         cartTable.getTableHeader().setForeground(Color.WHITE);
         cartTable.getTableHeader().setPreferredSize(new Dimension(0, 40));
-        cartTableModel.addTableModelListener(e -> updateTotals());
+        cartTableModel.addTableModelListener(e -> updateTotals()); // every cart edit ends up here
 
         var scrollPane = new JScrollPane(cartTable);
         scrollPane.setBorder(BorderFactory.createLineBorder(COLOR_ACCENT, 1, true));
@@ -235,7 +317,7 @@ public class MainFrame extends JFrame {
         var btns = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 10));
         btns.setBackground(COLOR_PANEL);
         
-        var removeBtn = new JButton("🗑️ Remove");
+        removeBtn = new JButton("🗑️ Remove");
         removeBtn.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         removeBtn.setBackground(new Color(220, 53, 69));
         removeBtn.setForeground(Color.WHITE);
@@ -253,7 +335,7 @@ public class MainFrame extends JFrame {
             }
         });
         
-        var clearBtn = new JButton("🗑️ Clear");
+        clearBtn = new JButton("🗑️ Clear");
         clearBtn.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         clearBtn.setBackground(new Color(108, 117, 125));
         clearBtn.setForeground(Color.WHITE);
@@ -261,11 +343,7 @@ public class MainFrame extends JFrame {
         clearBtn.setBorderPainted(false);
         clearBtn.setOpaque(true);
         clearBtn.setPreferredSize(new Dimension(100, 35));
-        clearBtn.addActionListener(e -> {
-            cart.clear();
-            cartTableModel.refresh();
-            updateTotals();
-        });
+        clearBtn.addActionListener(e -> cart.clear());
         clearBtn.addMouseListener(new java.awt.event.MouseAdapter() {
             public void mouseEntered(java.awt.event.MouseEvent evt) {
                 clearBtn.setBackground(new Color(90, 98, 104));
@@ -303,7 +381,7 @@ public class MainFrame extends JFrame {
         totalLbl.setFont(new Font("Segoe UI", Font.BOLD, 18));
         totalLbl.setForeground(COLOR_PRIMARY);
 
-        var checkoutBtn = new JButton("💳 Checkout");
+        checkoutBtn = new JButton("💳 Checkout");
         checkoutBtn.setFont(new Font("Segoe UI", Font.BOLD, 16));
         checkoutBtn.setBackground(COLOR_CHECKOUT);
         checkoutBtn.setForeground(Color.WHITE);
@@ -321,6 +399,14 @@ public class MainFrame extends JFrame {
             }
         });
 
+        checkoutProgress = new JProgressBar();
+        checkoutProgress.setIndeterminate(true);
+        checkoutProgress.setStringPainted(true);
+        checkoutProgress.setString("Saving receipt...");
+        checkoutProgress.setPreferredSize(new Dimension(180, 24));
+        checkoutProgress.setVisible(false);
+
+        panel.add(checkoutProgress);
         panel.add(subtotalLbl);
         panel.add(taxLbl);
         panel.add(totalLbl);
@@ -333,7 +419,7 @@ public class MainFrame extends JFrame {
     private void onItemSelected(ListSelectionEvent e) {
         if (!e.getValueIsAdjusting()) {
             var selected = itemsList.getSelectedValue();
-            addBtn.setEnabled(selected != null);
+            addBtn.setEnabled(selected != null && !checkoutInProgress);
             updateAddButtonStyle();
             if (selected != null) {
                 qtySpinner.setValue(1);
@@ -357,8 +443,6 @@ public class MainFrame extends JFrame {
         int qty = (int) qtySpinner.getValue();
         try {
             cart.add(item, qty);
-            cartTableModel.refresh();
-            updateTotals();
             qtySpinner.setValue(1);
         } catch (IllegalArgumentException ex) {
             JOptionPane.showMessageDialog(this, ex.getMessage(), "Invalid quantity", JOptionPane.ERROR_MESSAGE);
@@ -370,19 +454,73 @@ public class MainFrame extends JFrame {
         if (row < 0) return;
         var item = cartTableModel.getItemAt(row);
         cart.remove(item.getName());
-        cartTableModel.refresh();
-        updateTotals();
     }
 
+    // Ctrl+Z and Ctrl+Y (or Ctrl+Shift+Z) step through the cart's edits, except while checkout has it frozen
+    private void bindUndoKeys() {
+        var keys = getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        int shortcut = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, shortcut), "undoCart");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, shortcut), "redoCart");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, shortcut | InputEvent.SHIFT_DOWN_MASK), "redoCart");
+        getRootPane().getActionMap().put("undoCart", cartHistoryAction(cart::undo));
+        getRootPane().getActionMap().put("redoCart", cartHistoryAction(cart::redo));
+    }
+
+    private Action cartHistoryAction(Runnable step) {
+        return new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (checkoutInProgress || cartTable.isEditing()) return;
+                step.run();
+            }
+        };
+    }
+
+    // picking a category leaves the search
     private void loadItems(Category category) {
-        List<MenuItem> all = catalogRepo.all();
-        var list = all.stream()
-                .filter(m -> m.getCategory() == category)
-                .collect(Collectors.toList());
+        currentCategory = category;
+        if (!searchField.getText().isEmpty()) searchField.setText("");
+        searchTimer.stop();
+        if (pendingSearch != null) pendingSearch.cancel(true);
+        searchGeneration++;
+        lastMatches = null;
+        showItems(catalogRepo.byCategory(category));
+    }
+
+    // Searches the whole menu off the EDT. Only the newest search counts: starting one interrupts the one
+    // before, and a result that comes back after a newer search started is dropped. While the query keeps
+    // containing the last one shown (typing on), the search narrows that result instead of the catalog.
+    private void startSearch() {
+        searchTimer.stop();
+        String query = searchField.getText();
+        if (query.isBlank()) {
+            loadItems(currentCategory);
+            return;
+        }
+        if (pendingSearch != null) pendingSearch.cancel(true);
+        long generation = ++searchGeneration;
+        var index = catalogIndex();
+        var base = lastMatches != null && lastMatches.index() == index ? lastMatches : null;
+        pendingSearch = searchExecutor.submit(() -> {
+            var matches = base != null ? base.narrow(query) : index.matches(query);
+            var items = matches.items();
+            SwingUtilities.invokeLater(() -> {
+                if (generation != searchGeneration) return;
+                lastMatches = matches;
+                showItems(items);
+            });
+        });
+    }
 
-        itemsModel.clear();
-        for (var m : list) itemsModel.addElement(m);
+    private CatalogIndex catalogIndex() {
+        if (catalogRepo instanceof FileCatalogRepository fileCatalog) return fileCatalog.snapshot();
+        if (catalogIndex == null) catalogIndex = new CatalogIndex(catalogRepo.all());
+        return catalogIndex;
+    }
 
+    private void showItems(List<MenuItem> items) {
+        itemsModel.setItems(items);
         addBtn.setEnabled(false);
         updateAddButtonStyle();
     }
@@ -390,7 +528,7 @@ public class MainFrame extends JFrame {
     private void updateTotals() {
         var sub = cart.getSubtotal();
         var tax = cart.getTax(taxCalc);
-        var tot = cart.getTotal(taxCalc);
+        var tot = sub.add(tax);
 
         subtotalLbl.setText("Subtotal: $" + sub.toPlainString());
         taxLbl.setText("Tax: $" + tax.toPlainString());
@@ -398,7 +536,11 @@ public class MainFrame extends JFrame {
     }
 
 
+    // Checkout runs in three stages so the window never waits on the disk: the order is snapshotted here on
+    // the EDT, the receipt pipeline writes it on its own threads, and onReceiptSaved shows the result back on
+    // the EDT. The cart is frozen meanwhile and only cleared once the receipt log has confirmed the write.
     private void handleCheckout() {
+        if (checkoutInProgress) return;
         if (cart.isEmpty()) {
             JOptionPane.showMessageDialog(this, "Cart is empty.", "Cannot checkout", JOptionPane.WARNING_MESSAGE);
             return;
@@ -412,45 +554,152 @@ public class MainFrame extends JFrame {
             return;
         }
 
+        long start = System.nanoTime();
         Order order = buildOrderSnapshot(name);
-        String receiptText = ReceiptFormatter.format(order);
-        var receiptLines = receiptText.lines().toList();
-        boolean receiptShown = false;
-
+        setCheckoutInProgress(true);
+        ReceiptPipeline.Submission submission;
         try {
-            var file = receiptRepository.save(receiptLines);
-            new ReceiptDialog(this, order, file).setVisible(true);
-            receiptShown = true;
-        } catch (IOException ex) {
+            submission = receiptPipeline.submit(order);
+        } catch (RuntimeException ex) {
+            setCheckoutInProgress(false);
             JOptionPane.showMessageDialog(this, "Failed to save receipt: " + ex.getMessage(),
                     "Receipt Error", JOptionPane.ERROR_MESSAGE);
+            return;
         }
+        // the sale stands once the receipt log has it; the print spool, if there is one, finishes on its own
+        submission.all().thenAccept(results -> results.stream()
+                .filter(r -> !r.ok() && !r.sink().equals(RECEIPT_LOG))
+                .forEach(r -> System.err.println("Receipt " + order.orderId() + " not written to " + r.sink() + ": " + r.failure())));
+        CHECKOUT_EDT.recordSince(start);
+        awaitReceipt(submission.receipt(), submission.result(RECEIPT_LOG), start);
+    }
+
+    private void awaitReceipt(RenderedReceipt receipt, CompletableFuture<ReceiptPipeline.SinkResult> saved, long start) {
+        // whenComplete, not thenAccept: whatever happens, the cart must come out of "Saving receipt..."
+        saved.whenComplete((result, failure) -> {
+            if (failure != null) {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                result = new ReceiptPipeline.SinkResult(RECEIPT_LOG, null, cause, System.nanoTime() - start);
+            }
+            if (result.ok()) CHECKOUT.recordSince(start);
+            else CHECKOUT_FAILURES.increment();
+            var outcome = result;
+            SwingUtilities.invokeLater(() -> onReceiptSaved(receipt, outcome));
+        });
+    }
 
-        if (receiptShown) {
+    private void onReceiptSaved(RenderedReceipt receipt, ReceiptPipeline.SinkResult saved) {
+        if (saved.ok()) {
             cart.clear();
-            cartTableModel.refresh();
-            updateTotals();
+            cart.clearHistory();
+            setCheckoutInProgress(false);
+            new ReceiptDialog(this, receipt.customerText(), (Path) saved.value()).setVisible(true);
+            return;
         }
+        Object[] options = {"Retry", "Cancel"};
+        int choice = JOptionPane.showOptionDialog(this,
+                "Failed to save receipt: " + saved.failure().getMessage() + "\nThe cart has been kept.",
+                "Receipt Error", JOptionPane.YES_NO_OPTION, JOptionPane.ERROR_MESSAGE, null, options, options[0]);
+        if (choice == 0) {
+            // same rendered receipt, same order id, and only the receipt log is written again
+            awaitReceipt(receipt, receiptPipeline.resubmit(receipt, RECEIPT_LOG), System.nanoTime());
+        } else {
+            setCheckoutInProgress(false);
+        }
+    }
+
+    private void setCheckoutInProgress(boolean inProgress) {
+        checkoutInProgress = inProgress;
+        checkoutProgress.setVisible(inProgress);
+        checkoutBtn.setEnabled(!inProgress);
+        removeBtn.setEnabled(!inProgress);
+        clearBtn.setEnabled(!inProgress);
+        cartTable.setEnabled(!inProgress);
+        addBtn.setEnabled(!inProgress && itemsList.getSelectedValue() != null);
+        updateAddButtonStyle();
     }
 
     private Order buildOrderSnapshot(String customerName) {
         var subtotal = cart.getSubtotal();
         var tax = cart.getTax(taxCalc);
-        var total = cart.getTotal(taxCalc);
+        var total = subtotal.add(tax);
 
-        String orderId = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")
-                .withZone(ZoneId.systemDefault())
-                .format(Instant.now());
+        long orderId = orderIds.next();
 
         return new Order(
-                orderId,
+                OrderIdGenerator.format(orderId),
                 customerName,
-                Instant.now(),
+                OrderIdGenerator.timestampOf(orderId),
                 cart.items(),
                 subtotal, tax, total
         );
     }
 
+    // -Dkiosk.catalog=<file> or ~/kiosk-catalog.csv; falls back to the built-in menu
+    private static CatalogRepository openCatalog() {
+        String configured = System.getProperty("kiosk.catalog");
+        Path file = configured != null ? Paths.get(configured)
+                : Paths.get(System.getProperty("user.home"), "kiosk-catalog.csv");
+        if (configured != null || Files.exists(file)) {
+            try {
+                return new FileCatalogRepository(file);
+            } catch (IOException ex) {
+                System.err.println("Using built-in menu, catalog file not loaded: " + ex.getMessage());
+            }
+        }
+        return new InMemoryCatalogRepository();
+    }
+
+    // receipts are appended to segment files in ~/kiosk-receipts; one file per receipt only if the log can't open
+    private static ReceiptRepository openReceiptLog() {
+        try {
+            return new SegmentedReceiptLog(defaultReceiptDir());
+        } catch (IOException ex) {
+            System.err.println("Receipt log unavailable, writing one file per receipt: " + ex.getMessage());
+            return new FileReceiptRepository(defaultReceiptDir());
+        }
+    }
+
+    // every receipt goes to the log; -Dkiosk.printSpool=<dir> also drops it there as a print job
+    private static ReceiptPipeline openReceiptPipeline(ReceiptRepository log) {
+        var sinks = new ArrayList<ReceiptPipeline.Sink>();
+        sinks.add(ReceiptPipeline.Sink.text(RECEIPT_LOG, log));
+        String spool = System.getProperty("kiosk.printSpool");
+        if (spool != null) sinks.add(ReceiptPipeline.Sink.text(PRINT_SPOOL, new PrintSpool(Paths.get(spool))));
+        return new ReceiptPipeline(sinks, ZoneId.systemDefault());
+    }
+
+    // -Dkiosk.taxRules (see RuleBasedTaxCalculator.parse), otherwise 6% on everything
+    private static TaxCalculator openTaxCalculator() {
+        String rules = System.getProperty("kiosk.taxRules");
+        return rules != null ? RuleBasedTaxCalculator.parse(rules) : new FlatRateTaxCalculator(new BigDecimal("0.06"));
+    }
+
+    // -Dkiosk.terminalId (0-1023) is required and must differ between terminals sharing a receipt store:
+    // anything derived on the terminal itself (a host name hash, a random number) can repeat and duplicate ids
+    private static OrderIdGenerator openOrderIds() {
+        String terminal = System.getProperty("kiosk.terminalId");
+        if (terminal == null || terminal.isBlank()) {
+            throw new IllegalStateException("-Dkiosk.terminalId=<0-" + OrderIdGenerator.MAX_TERMINAL + "> is required, unique per terminal");
+        }
+        try {
+            return new OrderIdGenerator(Integer.parseInt(terminal.strip()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("-Dkiosk.terminalId must be 0-" + OrderIdGenerator.MAX_TERMINAL + ", got " + terminal);
+        }
+    }
+
+    // receipts older than kiosk.archiveAfterDays (default 30) move to per-day archives in ~/kiosk-receipts/archive
+    private static ReceiptCompactor startCompactor(ReceiptRepository receipts) {
+        int days = Integer.getInteger("kiosk.archiveAfterDays", 30);
+        var compactor = new ReceiptCompactor(defaultReceiptDir().resolve("archive"), Duration.ofDays(days),
+                ZoneId.systemDefault());
+        compactor.addTextDirectory(defaultReceiptDir());
+        if (receipts instanceof SegmentedReceiptLog log) compactor.addLog(log);
+        compactor.start(Duration.ofHours(1));
+        return compactor;
+    }
+
     private static Path defaultReceiptDir() {
         return Paths.get(System.getProperty("user.home"), "kiosk-receipts");
     }
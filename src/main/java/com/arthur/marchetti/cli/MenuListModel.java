@@ -0,0 +1,36 @@
+package com.arthur.marchetti.cli;
+
+import com.arthur.marchetti.model.MenuItem;
+
+import javax.swing.AbstractListModel;
+import java.util.List;
+
+// Shows an immutable result list as it is: replacing the contents is a pointer swap and two interval events,
+// where DefaultListModel would copy every item and fire an event per item. With a fixed cell height on the
+// JList, only the rows in view are ever rendered, however long the list is.
+public class MenuListModel extends AbstractListModel<MenuItem> {
+    private List<MenuItem> items = List.of();
+
+    public void setItems(List<MenuItem> items) {
+        if (items == null) throw new IllegalArgumentException("items required");
+        int before = this.items.size();
+        this.items = List.of();
+        if (before > 0) fireIntervalRemoved(this, 0, before - 1);
+        this.items = items;
+        if (!items.isEmpty()) fireIntervalAdded(this, 0, items.size() - 1);
+    }
+
+    public List<MenuItem> items() {
+        return items;
+    }
+
+    @Override
+    public int getSize() {
+        return items.size();
+    }
+
+    @Override
+    public MenuItem getElementAt(int index) {
+        return items.get(index);
+    }
+}
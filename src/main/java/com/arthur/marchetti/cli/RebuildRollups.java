@@ -0,0 +1,23 @@
+package com.arthur.marchetti.cli;
+
+import com.arthur.marchetti.repo.SqliteSalesRollup;
+
+import java.nio.file.Path;
+import java.time.ZoneId;
+
+// usage: RebuildRollups <orders.db> [chunkSize] [threads]
+public class RebuildRollups {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: RebuildRollups <orders.db> [chunkSize] [threads]");
+            System.exit(2);
+        }
+        String url = "jdbc:sqlite:" + Path.of(args[0]).toAbsolutePath();
+        int chunkSize = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        SqliteSalesRollup.rebuild(url, ZoneId.systemDefault(), chunkSize, threads);
+        System.out.printf("Rollups rebuilt in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -8,12 +8,16 @@ import java.nio.file.Path;
 
 public class ReceiptDialog extends JDialog {
     public ReceiptDialog(Window owner, Order order, Path savedFile) {
+        this(owner, ReceiptFormatter.format(order), savedFile);
+    }
+
+    public ReceiptDialog(Window owner, String receiptText, Path savedFile) {
         super(owner, "Receipt", ModalityType.APPLICATION_MODAL);
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
         setSize(520, 420);
         setLocationRelativeTo(owner);
 
-        var textArea = new JTextArea(ReceiptFormatter.format(order));
+        var textArea = new JTextArea(receiptText);
         textArea.setEditable(false);
         textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
         textArea.setCaretPosition(0);
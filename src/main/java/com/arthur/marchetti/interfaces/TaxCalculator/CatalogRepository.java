@@ -3,8 +3,12 @@ import com.arthur.marchetti.model.Category;
 import com.arthur.marchetti.model.MenuItem;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface CatalogRepository {
     List<MenuItem> all();
     List<MenuItem> byCategory(Category cat);
-}
\ No newline at end of file
+    Optional<MenuItem> byName(String name);
+    // case-insensitive substring match on the item name
+    List<MenuItem> search(String query);
+}
@@ -0,0 +1,7 @@
+package com.arthur.marchetti.interfaces.TaxCalculator;
+
+import com.arthur.marchetti.model.Order;
+
+public interface OrderRepository {
+    long save(Order order) throws Exception;
+}
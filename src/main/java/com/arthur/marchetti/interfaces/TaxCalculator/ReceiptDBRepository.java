@@ -1,9 +1,25 @@
 package com.arthur.marchetti.interfaces.TaxCalculator;
 
-import java.io.IOException;
-import java.nio.file.Path;
+import com.arthur.marchetti.model.ReceiptRecord;
+
 import java.util.List;
 
 public interface ReceiptDBRepository {
     long save(List<String> lines, String customerName, String subtotal, String tax, String total) throws Exception;
-}
\ No newline at end of file
+
+    // Implementations that can should write the whole batch in one transaction; ids come back in input order.
+    // The default is a loop of saves, so a failure can leave the first part of the batch written.
+    default long[] saveAll(List<ReceiptRecord> receipts) throws Exception {
+        long[] ids = new long[receipts.size()];
+        for (int i = 0; i < ids.length; i++) {
+            var r = receipts.get(i);
+            ids[i] = save(r.lines(), r.customerName(), r.subtotal(), r.tax(), r.total());
+        }
+        return ids;
+    }
+
+    // true only if saveAll writes all of the batch or, when it throws, none of it
+    default boolean savesBatchAtomically() {
+        return false;
+    }
+}
@@ -0,0 +1,21 @@
+package com.arthur.marchetti.interfaces.TaxCalculator;
+
+import com.arthur.marchetti.model.StoredReceipt;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Streams are forward-only and fetch one page at a time, so they are safe on large ranges.
+public interface ReceiptQueryRepository {
+    Optional<StoredReceipt> findById(long id) throws Exception;
+
+    // from inclusive, to exclusive
+    Stream<StoredReceipt> findByCreatedAt(LocalDateTime from, LocalDateTime to);
+
+    Stream<StoredReceipt> findByCustomer(String customerName);
+
+    // both bounds inclusive
+    Stream<StoredReceipt> findByTotal(BigDecimal min, BigDecimal max);
+}
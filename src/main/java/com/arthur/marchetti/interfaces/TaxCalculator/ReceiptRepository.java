@@ -1,6 +1,8 @@
 package com.arthur.marchetti.interfaces.TaxCalculator;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.List;
 
@@ -8,4 +10,10 @@ public interface ReceiptRepository {
      public Path save(
             List<String> receiptLines
     ) throws IOException;
+
+    // UTF-8 receipt text with lines separated by '\n' (see ReceiptRenderer); reads the buffer to its limit.
+    // Repositories that write bytes should override this so the text is never decoded.
+    default Path save(ByteBuffer receiptText) throws IOException {
+        return save(StandardCharsets.UTF_8.decode(receiptText).toString().lines().toList());
+    }
 }
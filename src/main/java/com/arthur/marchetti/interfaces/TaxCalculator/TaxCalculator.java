@@ -1,7 +1,61 @@
 package com.arthur.marchetti.interfaces.TaxCalculator;
 
+import com.arthur.marchetti.model.CartItem;
+import com.arthur.marchetti.model.Money;
+
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.stream.LongStream;
 
 public interface TaxCalculator {
     BigDecimal tax(BigDecimal amount);
-}
\ No newline at end of file
+
+    // Implementations on the hot path should override this with pure long arithmetic.
+    default long taxCents(long amountCents) {
+        return Money.of(tax(BigDecimal.valueOf(amountCents, 2))).cents();
+    }
+
+    default Money tax(Money amount) {
+        return Money.ofCents(taxCents(amount.cents()));
+    }
+
+    // Bulk form of taxCents(long), for re-pricing many orders at once: taxCents[i] = taxCents(amountsCents[i])
+    // for from <= i < to. Overrides may use a tighter loop but must give exactly the same values.
+    // TaxBatch splits large arrays over a fork-join pool through this method.
+    default void taxCents(long[] amountsCents, long[] taxCents, int from, int to) {
+        Objects.checkFromToIndex(from, to, amountsCents.length);
+        Objects.checkFromToIndex(from, to, taxCents.length);
+        for (int i = from; i < to; i++) taxCents[i] = taxCents(amountsCents[i]);
+    }
+
+    default long[] taxCents(long[] amountsCents) {
+        long[] taxCents = new long[amountsCents.length];
+        taxCents(amountsCents, taxCents, 0, amountsCents.length);
+        return taxCents;
+    }
+
+    // lazy and order preserving; runs in parallel if the stream does
+    default LongStream taxCents(LongStream amountsCents) {
+        return amountsCents.map(this::taxCents);
+    }
+
+    // True when the tax depends on what was bought and not only on the amount; carts then tax their lines
+    // through taxCents(lines, lineTaxCents) instead of their subtotal.
+    default boolean taxesByLine() {
+        return false;
+    }
+
+    // Tax for a set of lines in one pass. lineTaxCents, when not null, receives each line's tax in iteration
+    // order. The default taxes the lines' subtotal as one amount; each line's share is that line taxed alone.
+    default long taxCents(Collection<CartItem> lines, long[] lineTaxCents) {
+        long subtotal = 0;
+        int i = 0;
+        for (CartItem line : lines) {
+            long cents = line.lineTotalCents();
+            subtotal = Math.addExact(subtotal, cents);
+            if (lineTaxCents != null) lineTaxCents[i++] = taxCents(cents);
+        }
+        return taxCents(subtotal);
+    }
+}
@@ -0,0 +1,47 @@
+package com.arthur.marchetti.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.arthur.marchetti.CartChanged")
+@Label("Cart Changed")
+@Category({"Kiosk", "Cart"})
+@Description("A line added, changed or removed, or the cart cleared")
+@StackTrace(false)
+public final class CartChangedEvent extends Event {
+    @Label("Cart Id")
+    @Description("Identity hash of the cart, to tell carts apart within one recording")
+    int cartId;
+
+    @Label("Action")
+    String action;
+
+    @Label("Item")
+    String item;
+
+    @Label("Quantity Change")
+    int quantityDelta;
+
+    @Label("Line Count")
+    @Description("Lines in the cart after the change")
+    int lineCount;
+
+    @Label("Subtotal Cents")
+    long subtotalCents;
+
+    public static void emit(Object cart, String action, String item, int quantityDelta, int lineCount, long subtotalCents) {
+        var event = new CartChangedEvent();
+        if (!event.shouldCommit()) return;
+        event.cartId = System.identityHashCode(cart);
+        event.action = action;
+        event.item = item;
+        event.quantityDelta = quantityDelta;
+        event.lineCount = lineCount;
+        event.subtotalCents = subtotalCents;
+        event.commit();
+    }
+}
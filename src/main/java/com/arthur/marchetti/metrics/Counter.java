@@ -0,0 +1,29 @@
+package com.arthur.marchetti.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// A monotonically increasing count. LongAdder keeps increments from contending when several threads bump it.
+public final class Counter implements CounterMBean {
+    private final String name;
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public String name() { return name; }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long n) {
+        if (n < 0) throw new IllegalArgumentException("counters only go up");
+        count.add(n);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+}
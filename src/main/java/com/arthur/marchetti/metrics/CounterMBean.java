@@ -0,0 +1,5 @@
+package com.arthur.marchetti.metrics;
+
+public interface CounterMBean {
+    long getCount();
+}
@@ -0,0 +1,15 @@
+package com.arthur.marchetti.metrics;
+
+public interface LatencyHistogramMBean {
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+}
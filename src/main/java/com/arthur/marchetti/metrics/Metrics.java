@@ -0,0 +1,113 @@
+package com.arthur.marchetti.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+// Named counters and latency histograms for one process. Code that measures something keeps the metric it
+// got from here in a static field, so the lookup happens once per class and recording costs only the metric
+// itself. Metrics live as long as the registry; asking for the same name again returns the same one.
+//
+// Once registerMBeans has been called, every metric (including ones created later) is also visible over JMX
+// as com.arthur.marchetti:type=Counter|Histogram,name=<name>.
+public final class Metrics {
+    private static final Metrics GLOBAL = new Metrics();
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_.-]+");
+    static final String DOMAIN = "com.arthur.marchetti";
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private MBeanServer mbeans; // guarded by this
+
+    public static Metrics global() { return GLOBAL; }
+
+    public Counter counter(String name) {
+        var c = counters.get(name);
+        return c != null ? c : create(counters, name, Counter::new, "Counter");
+    }
+
+    public LatencyHistogram histogram(String name) {
+        var h = histograms.get(name);
+        return h != null ? h : create(histograms, name, LatencyHistogram::new, "Histogram");
+    }
+
+    public synchronized void registerMBeans(MBeanServer server) {
+        if (server == null) throw new IllegalArgumentException("server required");
+        if (mbeans != null) throw new IllegalStateException("MBeans already registered");
+        mbeans = server;
+        counters.forEach((name, c) -> register(name, c, "Counter"));
+        histograms.forEach((name, h) -> register(name, h, "Histogram"));
+    }
+
+    public synchronized void unregisterMBeans() {
+        if (mbeans == null) return;
+        try {
+            for (String name : counters.keySet()) unregister(objectName("Counter", name));
+            for (String name : histograms.keySet()) unregister(objectName("Histogram", name));
+        } finally {
+            mbeans = null;
+        }
+    }
+
+    // one line per metric that has seen anything, sorted by name
+    public List<String> report() {
+        var lines = new ArrayList<String>();
+        new TreeMap<>(counters).forEach((name, c) -> {
+            long n = c.getCount();
+            if (n > 0) lines.add(name + " count=" + n);
+        });
+        new TreeMap<>(histograms).forEach((name, h) -> {
+            var s = h.snapshot();
+            if (s.count() > 0) {
+                lines.add(String.format(Locale.ROOT, "%s count=%d mean=%.3fms p50=%.3fms p99=%.3fms p999=%.3fms max=%.3fms",
+                        name, s.count(), s.meanMillis(), s.p50Millis(), s.p99Millis(), s.p999Millis(), s.maxMillis()));
+            }
+        });
+        return lines;
+    }
+
+    private synchronized <T> T create(Map<String, T> metrics, String name, Function<String, T> factory, String type) {
+        T existing = metrics.get(name);
+        if (existing != null) return existing;
+        if (name == null || !NAME.matcher(name).matches()) throw new IllegalArgumentException("invalid metric name " + name);
+        T metric = factory.apply(name);
+        metrics.put(name, metric);
+        if (mbeans != null) register(name, metric, type);
+        return metric;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void register(String name, Object metric, String type) {
+        Class mbeanInterface = metric instanceof Counter ? CounterMBean.class : LatencyHistogramMBean.class;
+        try {
+            mbeans.registerMBean(new StandardMBean(metric, mbeanInterface), objectName(type, name));
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register metric " + name, e);
+        }
+    }
+
+    private void unregister(ObjectName name) {
+        try {
+            if (mbeans.isRegistered(name)) mbeans.unregisterMBean(name);
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot unregister " + name, e);
+        }
+    }
+
+    static ObjectName objectName(String type, String name) {
+        try {
+            return new ObjectName(DOMAIN + ":type=" + type + ",name=" + name);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("invalid metric name " + name, e);
+        }
+    }
+}
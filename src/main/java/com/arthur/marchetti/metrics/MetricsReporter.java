@@ -0,0 +1,56 @@
+package com.arthur.marchetti.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Writes Metrics.report() to a System.Logger at a fixed interval, so terminals without a JMX console still
+// leave a record of their latencies. The numbers are totals since the process started, not per interval.
+public class MetricsReporter implements AutoCloseable {
+    private final Metrics metrics;
+    private final System.Logger logger;
+    private ScheduledExecutorService scheduler;
+
+    public MetricsReporter(Metrics metrics) {
+        this(metrics, System.getLogger("com.arthur.marchetti.metrics"));
+    }
+
+    public MetricsReporter(Metrics metrics, System.Logger logger) {
+        if (metrics == null) throw new IllegalArgumentException("metrics required");
+        if (logger == null) throw new IllegalArgumentException("logger required");
+        this.metrics = metrics;
+        this.logger = logger;
+    }
+
+    public void report() {
+        var lines = metrics.report();
+        if (lines.isEmpty() || !logger.isLoggable(System.Logger.Level.INFO)) return;
+        logger.log(System.Logger.Level.INFO, "metrics" + System.lineSeparator() + String.join(System.lineSeparator(), lines));
+    }
+
+    public synchronized void start(Duration interval) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        if (scheduler != null) throw new IllegalStateException("reporter already running");
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-reporter");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::report, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    // stops the schedule and writes one last report
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            report();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.arthur.marchetti.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.arthur.marchetti.OrderSnapshot")
+@Label("Order Snapshot")
+@Category({"Kiosk", "Orders"})
+@Description("Cart lines copied into an immutable Order")
+@StackTrace(false)
+public final class OrderSnapshotEvent extends Event {
+    @Label("Order Id")
+    String orderId;
+
+    @Label("Line Count")
+    int lineCount;
+
+    @Label("Item Count")
+    @Description("Sum of the line quantities")
+    int itemCount;
+
+    // call begin() before copying the lines
+    public void complete(String orderId, int lineCount, int itemCount) {
+        end();
+        if (!shouldCommit()) return;
+        this.orderId = orderId;
+        this.lineCount = lineCount;
+        this.itemCount = itemCount;
+        commit();
+    }
+}
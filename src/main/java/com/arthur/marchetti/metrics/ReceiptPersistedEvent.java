@@ -0,0 +1,57 @@
+package com.arthur.marchetti.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Repositories emit this without an order id because they are never told one. When they run as a receipt
+// pipeline sink, the sink's own event (store "sink:<name>", with the order id) encloses theirs on the same thread.
+@Name("com.arthur.marchetti.ReceiptPersisted")
+@Label("Receipt Persisted")
+@Category({"Kiosk", "Receipts"})
+@Description("One receipt write, including any fsync the store waits for")
+@StackTrace(false)
+public final class ReceiptPersistedEvent extends Event {
+    @Label("Store")
+    String store;
+
+    @Label("Order Id")
+    String orderId;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Location")
+    @Description("File, segment or row the receipt went to")
+    String location;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    public ReceiptPersistedEvent(String store) {
+        this.store = store;
+        begin();
+    }
+
+    public void complete(String orderId, long bytes, Object location) {
+        end();
+        if (!shouldCommit()) return;
+        this.orderId = orderId;
+        this.bytes = bytes;
+        this.location = location == null ? null : location.toString();
+        this.succeeded = location != null;
+        commit();
+    }
+
+    // text is only measured when the event is recorded
+    public void complete(String orderId, CharSequence text, Object location) {
+        end();
+        if (!shouldCommit()) return;
+        complete(orderId, ReceiptRenderedEvent.utf8Length(text, 0), location);
+    }
+}
@@ -0,0 +1,68 @@
+package com.arthur.marchetti.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.arthur.marchetti.ReceiptRendered")
+@Label("Receipt Rendered")
+@Category({"Kiosk", "Receipts"})
+@StackTrace(false)
+public final class ReceiptRenderedEvent extends Event {
+    @Label("Order Id")
+    @Description("Empty when a cart was rendered before it became an order")
+    String orderId;
+
+    @Label("Cart Id")
+    int cartId;
+
+    @Label("Form")
+    @Description("till, customer or both")
+    String form;
+
+    @Label("Line Count")
+    int lineCount;
+
+    @Label("Size")
+    @Description("UTF-8 size of the rendered text")
+    @DataAmount
+    long bytes;
+
+    // call begin() before rendering
+    public void completeOrder(String orderId, String form, int lineCount, long bytes) {
+        end();
+        if (!shouldCommit()) return;
+        this.orderId = orderId;
+        this.form = form;
+        this.lineCount = lineCount;
+        this.bytes = bytes;
+        commit();
+    }
+
+    // text is only measured when the event is recorded
+    public void completeCart(Object cart, int lineCount, CharSequence text, int from) {
+        end();
+        if (!shouldCommit()) return;
+        this.cartId = System.identityHashCode(cart);
+        this.form = "till";
+        this.lineCount = lineCount;
+        this.bytes = text == null ? -1 : utf8Length(text, from);
+        commit();
+    }
+
+    static long utf8Length(CharSequence text, int from) {
+        long bytes = 0;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) bytes++;
+            else if (c < 0x800) bytes += 2;
+            else if (Character.isHighSurrogate(c)) { bytes += 4; i++; }
+            else bytes += 3;
+        }
+        return bytes;
+    }
+}
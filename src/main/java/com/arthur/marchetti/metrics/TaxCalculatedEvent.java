@@ -0,0 +1,53 @@
+package com.arthur.marchetti.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+@Name("com.arthur.marchetti.TaxCalculated")
+@Label("Tax Calculated")
+@Category({"Kiosk", "Cart"})
+@StackTrace(false)
+public final class TaxCalculatedEvent extends Event {
+    @Label("Cart Id")
+    int cartId;
+
+    @Label("Calculator")
+    String calculator;
+
+    @Label("Line Count")
+    int lineCount;
+
+    @Label("Subtotal Cents")
+    long subtotalCents;
+
+    @Label("Tax Cents")
+    long taxCents;
+
+    // call begin() before asking the calculator
+    public void complete(Object cart, Object calculator, int lineCount, long subtotalCents, long taxCents) {
+        end();
+        if (!shouldCommit()) return;
+        this.cartId = System.identityHashCode(cart);
+        this.calculator = calculator.getClass().getSimpleName();
+        this.lineCount = lineCount;
+        this.subtotalCents = subtotalCents;
+        this.taxCents = taxCents;
+        commit();
+    }
+
+    public void complete(Object cart, Object calculator, int lineCount, BigDecimal subtotal, BigDecimal tax) {
+        end();
+        if (!shouldCommit()) return;
+        complete(cart, calculator, lineCount, cents(subtotal), cents(tax));
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+}
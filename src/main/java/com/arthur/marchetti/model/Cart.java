@@ -1,68 +1,285 @@
 package com.arthur.marchetti.model;
 
 import com.arthur.marchetti.interfaces.TaxCalculator.TaxCalculator;
+import com.arthur.marchetti.metrics.CartChangedEvent;
+import com.arthur.marchetti.metrics.Counter;
+import com.arthur.marchetti.metrics.Metrics;
+import com.arthur.marchetti.metrics.TaxCalculatedEvent;
 
 import java.math.BigDecimal;
-import java.util.LinkedHashMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
+// Every method locks the cart itself, so one cart can be shared by several threads (see CartSessionRegistry)
+// and callers can hold the lock to read several values as one consistent snapshot.
+//
+// The contents are immutable versions (State): an edit builds the next version out of the previous one,
+// sharing every line it did not touch. items() hands out the current version's lines without copying, and
+// undo() and redo() just step between versions the cart has kept.
 public class Cart {
-    private final Map<String, CartItem> lines = new LinkedHashMap<>();
+    private static final System.Logger LOG = System.getLogger(Cart.class.getName());
+    // counted, not timed: a mutation takes well under a microsecond and two clock reads would double that
+    private static final Counter ADD = Metrics.global().counter("cart.add");
+    private static final Counter REMOVE = Metrics.global().counter("cart.remove");
+    private static final Counter UPDATE_QTY = Metrics.global().counter("cart.updateQty");
+    private static final Counter CLEAR = Metrics.global().counter("cart.clear");
+    private static final Counter UNDO = Metrics.global().counter("cart.undo");
+    private static final Counter REDO = Metrics.global().counter("cart.redo");
+    private static final int HISTORY_LIMIT = 100;
 
-    public void add(MenuItem item, int qty){
+    // Totals are kept with the lines by every edit so they never have to walk them. The subtotal BigDecimal
+    // keeps the scale callers priced items with; categories are a handful, so they are copied arrays.
+    private record State(CartLines lines, long subtotalCents, BigDecimal subtotal, Enum<?>[] categories, long[] categoryCents) {
+        static final State EMPTY = new State(CartLines.EMPTY, 0, BigDecimal.ZERO, new Enum<?>[0], new long[0]);
+    }
+
+    private State state = State.EMPTY;
+    private final Deque<State> undo = new ArrayDeque<>();
+    private final Deque<State> redo = new ArrayDeque<>();
+    private final List<Consumer<CartChange>> listeners = new CopyOnWriteArrayList<>();
+
+    // Listeners run on the thread that made the edit, with the cart still locked, so they see changes in the
+    // order they happened. They must be quick and must not wait on another thread that uses this cart.
+    public void addChangeListener(Consumer<CartChange> listener){
+        if(listener == null) throw new IllegalArgumentException("listener required");
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(Consumer<CartChange> listener){
+        listeners.remove(listener);
+    }
+
+    public synchronized void add(MenuItem item, int qty){
         if(qty <= 0) throw new IllegalArgumentException("qty must be positive");
 
-        lines.merge(
-                item.getName(),
-                new CartItem(item, qty),
-                (oldLine, newLine) -> {
-                    oldLine.setQuantity(oldLine.getQuantity() + qty);
-                    return oldLine;
-                }
-        );
+        var line = state.lines().find(item.getName());
+        var merged = line == null ? new CartItem(item, qty) : line.withQuantity(line.getQuantity() + qty);
+        apply(state.lines().put(merged), merged.getItem(), qty);
+        ADD.increment();
+        CartChangedEvent.emit(this, "add", item.getName(), qty, state.lines().size(), state.subtotalCents());
+        if(!listeners.isEmpty()){
+            var lines = state.lines();
+            publish(line == null
+                    ? new CartChange.LineAdded(lines, lines.size() - 1, merged)
+                    : new CartChange.QuantityChanged(lines, lines.position(item.getName()), line, merged));
+        }
+    }
+
+    public synchronized void remove(String name){
+        var line = state.lines().find(name);
+        REMOVE.increment();
+        if(line == null) return;
+        int index = listeners.isEmpty() ? -1 : state.lines().position(name);
+        apply(state.lines().remove(name), line.getItem(), -line.getQuantity());
+        CartChangedEvent.emit(this, "remove", name, -line.getQuantity(), state.lines().size(), state.subtotalCents());
+        if(!listeners.isEmpty()) publish(new CartChange.LineRemoved(state.lines(), index, line));
+    }
+
+    // The current lines, in the order they were added. Immutable and O(1): later edits build new versions
+    // and never touch a list that was handed out.
+    public synchronized List<CartItem> items(){
+        return state.lines();
+    }
+
+    public synchronized void clear(){
+        var removed = state.lines();
+        if(!removed.isEmpty()) {
+            remember();
+            state = State.EMPTY;
+        }
+        CLEAR.increment();
+        CartChangedEvent.emit(this, "clear", null, 0, removed.size(), 0);
+        if(!removed.isEmpty() && !listeners.isEmpty()) publish(new CartChange.Cleared(state.lines(), removed));
+    }
+
+    // back to the version before the last edit; false if there is none
+    public synchronized boolean undo(){
+        if(undo.isEmpty()) return false;
+        var previous = state;
+        redo.push(previous);
+        state = undo.pop();
+        UNDO.increment();
+        CartChangedEvent.emit(this, "undo", null, 0, state.lines().size(), state.subtotalCents());
+        if(!listeners.isEmpty()) publish(new CartChange.Restored(state.lines(), previous.lines()));
+        return true;
+    }
+
+    // forward again to the version the last undo left; any new edit drops what could be redone
+    public synchronized boolean redo(){
+        if(redo.isEmpty()) return false;
+        var previous = state;
+        undo.push(previous);
+        state = redo.pop();
+        REDO.increment();
+        CartChangedEvent.emit(this, "redo", null, 0, state.lines().size(), state.subtotalCents());
+        if(!listeners.isEmpty()) publish(new CartChange.Restored(state.lines(), previous.lines()));
+        return true;
+    }
+
+    public synchronized boolean canUndo(){
+        return !undo.isEmpty();
+    }
+
+    public synchronized boolean canRedo(){
+        return !redo.isEmpty();
+    }
+
+    // after checkout, so a paid order cannot be undone back into the cart
+    public synchronized void clearHistory(){
+        undo.clear();
+        redo.clear();
+    }
+
+    public synchronized boolean isEmpty(){
+        return state.lines().isEmpty();
+    }
+
+    public synchronized BigDecimal getSubtotal(){
+        return state.subtotal();
     }
 
-    public void remove(String name){
-        lines.remove(name);
+    public synchronized long getSubtotalCents(){
+        return state.subtotalCents();
     }
 
-    public List<CartItem> items(){
-        return List.copyOf(lines.values());
+    public synchronized Money getSubtotalMoney(){
+        return Money.ofCents(state.subtotalCents());
     }
 
-    public void clear(){
-        lines.clear();
+    public synchronized long getCategorySubtotalCents(Enum<?> category){
+        int i = indexOf(state.categories(), category);
+        return i < 0 ? 0 : state.categoryCents()[i];
     }
 
-    public boolean isEmpty(){
-        return lines.isEmpty();
+    public synchronized BigDecimal getCategorySubtotal(Enum<?> category){
+        return BigDecimal.valueOf(getCategorySubtotalCents(category), 2);
     }
 
-    public BigDecimal getSubtotal(){
-        return lines.values().stream()
-                .map(CartItem::lineTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public synchronized Map<Enum<?>, BigDecimal> getCategorySubtotals(){
+        var result = new HashMap<Enum<?>, BigDecimal>();
+        var s = state;
+        for(int i = 0; i < s.categories().length; i++) result.put(s.categories()[i], BigDecimal.valueOf(s.categoryCents()[i], 2));
+        return Collections.unmodifiableMap(result);
     }
 
-    public BigDecimal getTax(TaxCalculator taxCalculator){
+    public synchronized BigDecimal getTax(TaxCalculator taxCalculator){
         if(taxCalculator == null) throw new IllegalArgumentException("taxCalculator required");
-        return taxCalculator.tax(getSubtotal());
+        var event = new TaxCalculatedEvent();
+        event.begin();
+        var s = state;
+        var tax = taxCalculator.taxesByLine()
+                ? BigDecimal.valueOf(taxCalculator.taxCents(s.lines(), null), 2)
+                : taxCalculator.tax(s.subtotal());
+        event.complete(this, taxCalculator, s.lines().size(), s.subtotal(), tax);
+        return tax;
     }
 
-    public BigDecimal getTotal(TaxCalculator taxCalculator){
-        return getSubtotal().add(getTax(taxCalculator));
+    public synchronized BigDecimal getTotal(TaxCalculator taxCalculator){
+        return state.subtotal().add(getTax(taxCalculator));
     }
 
-    public void updateQty(MenuItem item, int qty){
+    public synchronized long getTaxCents(TaxCalculator taxCalculator){
+        if(taxCalculator == null) throw new IllegalArgumentException("taxCalculator required");
+        var event = new TaxCalculatedEvent();
+        event.begin();
+        var s = state;
+        long tax = taxCalculator.taxesByLine()
+                ? taxCalculator.taxCents(s.lines(), null)
+                : taxCalculator.taxCents(s.subtotalCents());
+        event.complete(this, taxCalculator, s.lines().size(), s.subtotalCents(), tax);
+        return tax;
+    }
+
+    // each line's tax, in items() order, from the same pass that taxes the whole cart
+    public synchronized long[] getLineTaxCents(TaxCalculator taxCalculator){
+        if(taxCalculator == null) throw new IllegalArgumentException("taxCalculator required");
+        var lines = state.lines();
+        long[] lineTax = new long[lines.size()];
+        taxCalculator.taxCents(lines, lineTax);
+        return lineTax;
+    }
+
+    public synchronized long getTotalCents(TaxCalculator taxCalculator){
+        return Math.addExact(state.subtotalCents(), getTaxCents(taxCalculator));
+    }
+
+    public synchronized void updateQty(MenuItem item, int qty){
         if(item == null) throw new IllegalArgumentException("item required");
-        if(!lines.containsKey(item.getName())){
+        var line = state.lines().find(item.getName());
+        if(line == null){
             throw new IllegalArgumentException("item not in cart");
         }
-        lines.computeIfPresent(item.getName(), (k, line) -> {
-            line.setQuantity(qty);
-            return line;
-        });
+        int previous = line.getQuantity();
+        var changed = line.withQuantity(qty);
+        if(qty != previous) apply(state.lines().put(changed), line.getItem(), qty - previous);
+        UPDATE_QTY.increment();
+        CartChangedEvent.emit(this, "updateQty", item.getName(), qty - previous, state.lines().size(), state.subtotalCents());
+        if(qty != previous && !listeners.isEmpty()){
+            publish(new CartChange.QuantityChanged(state.lines(), state.lines().position(item.getName()), line, changed));
+        }
     }
-}
 
+    private void apply(CartLines lines, MenuItem item, int qtyDelta){
+        remember();
+        if(lines.isEmpty()){
+            // start over from an exact zero instead of carrying scale from removed lines
+            state = State.EMPTY;
+            return;
+        }
+        long deltaCents = Math.multiplyExact(item.getPriceCents(), (long) qtyDelta);
+        var categories = state.categories();
+        var categoryCents = state.categoryCents();
+        Enum<?> category = item.getCategory();
+        int i = indexOf(categories, category);
+        if(i < 0){
+            i = categories.length;
+            categories = Arrays.copyOf(categories, i + 1);
+            categories[i] = category;
+            categoryCents = Arrays.copyOf(categoryCents, i + 1);
+        } else {
+            categoryCents = categoryCents.clone();
+        }
+        categoryCents[i] += deltaCents;
+        if(categoryCents[i] == 0){
+            // the last category moves into the emptied slot
+            int last = categories.length - 1;
+            var kept = Arrays.copyOf(categories, last);
+            if(i < last) kept[i] = categories[last];
+            categoryCents[i] = categoryCents[last];
+            categories = kept;
+            categoryCents = Arrays.copyOf(categoryCents, last);
+        }
+        state = new State(lines, state.subtotalCents() + deltaCents,
+                state.subtotal().add(item.getPrice().multiply(BigDecimal.valueOf(qtyDelta))), categories, categoryCents);
+    }
+
+    private void publish(CartChange change){
+        for(var l : listeners){
+            try {
+                l.accept(change);
+            } catch(RuntimeException e) {
+                LOG.log(System.Logger.Level.WARNING, "cart change listener failed", e);
+            }
+        }
+    }
+
+    private void remember(){
+        redo.clear();
+        undo.push(state);
+        if(undo.size() > HISTORY_LIMIT) undo.removeLast();
+    }
+
+    private static int indexOf(Enum<?>[] categories, Enum<?> category){
+        for(int i = 0; i < categories.length; i++){
+            if(categories[i] == category) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,21 @@
+package com.arthur.marchetti.model;
+
+import java.util.List;
+
+// What one edit did to a cart, for Cart's change listeners. Every change carries the cart's lines as they are
+// right after it (an O(1) snapshot), and indexes are positions in that list, or in the one before it for a
+// removed line, so a listener can follow along without calling back into the cart.
+public sealed interface CartChange {
+    List<CartItem> lines();
+
+    record LineAdded(List<CartItem> lines, int index, CartItem line) implements CartChange {}
+
+    record LineRemoved(List<CartItem> lines, int index, CartItem line) implements CartChange {}
+
+    record QuantityChanged(List<CartItem> lines, int index, CartItem before, CartItem after) implements CartChange {}
+
+    record Cleared(List<CartItem> lines, List<CartItem> removed) implements CartChange {}
+
+    // undo or redo: anything may have changed, lines is the version stepped to
+    record Restored(List<CartItem> lines, List<CartItem> previous) implements CartChange {}
+}
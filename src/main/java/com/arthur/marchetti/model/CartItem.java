@@ -4,7 +4,7 @@ import java.math.BigDecimal;
 
 public class CartItem {
     private final MenuItem item;
-    private int quantity;
+    private final int quantity;
 
     public CartItem(MenuItem item, int quantity) {
         if (item == null) throw new IllegalArgumentException("item required");
@@ -14,6 +14,9 @@ public class CartItem {
     }
     public MenuItem getItem() { return item; }
     public int getQuantity() { return quantity; }
-    public void setQuantity(int q){ if(q <= 0) throw new IllegalArgumentException("q must be positive"); this.quantity = q; }
+    // lines never change once made, so a cart snapshot can share them; a new quantity is a new line
+    public CartItem withQuantity(int q){ return new CartItem(item, q); }
     public BigDecimal lineTotal(){ return item.getPrice().multiply(BigDecimal.valueOf(quantity)); }
+    public long lineTotalCents(){ return Math.multiplyExact(item.getPriceCents(), (long) quantity); }
+    public Money lineTotalMoney(){ return Money.ofCents(lineTotalCents()); }
 }
\ No newline at end of file
@@ -0,0 +1,218 @@
+package com.arthur.marchetti.model;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// An immutable, insertion-ordered list of cart lines with at most one line per item name. Changing it returns
+// a new CartLines that shares every node the change did not touch, so a cart can hand out its current lines
+// as an O(1) snapshot and keep earlier versions around for undo at a few nodes per edit.
+//
+// The lines sit in a persistent AVL tree ordered by when the item was first added (list order; each node
+// knows its subtree size, so get(i) is a walk down), plus a second one ordered by name that only finds a
+// name's position in the first. Changing a quantity rebuilds O(log n) nodes of the first tree; adding or
+// removing a line also rebuilds O(log n) nodes of the index.
+final class CartLines extends AbstractList<CartItem> {
+    static final CartLines EMPTY = new CartLines(null, null, 0);
+
+    private final Node byOrder;
+    private final Node byName; // seq of every name; its lines are as first added, only their names are used
+    private final long nextSeq; // position given to the next new line; removed positions are not reused
+
+    private CartLines(Node byOrder, Node byName, long nextSeq) {
+        this.byOrder = byOrder;
+        this.byName = byName;
+        this.nextSeq = nextSeq;
+    }
+
+    CartItem find(String name) {
+        Node n = findByName(name);
+        if (n == null) return null;
+        Node line = byOrder;
+        while (line.seq != n.seq) line = n.seq < line.seq ? line.left : line.right;
+        return line.line;
+    }
+
+    // where the line for this name is in list order, or -1
+    int position(String name) {
+        Node n = findByName(name);
+        if (n == null) return -1;
+        int index = 0;
+        Node at = byOrder;
+        while (at.seq != n.seq) {
+            if (n.seq < at.seq) {
+                at = at.left;
+            } else {
+                index += size(at.left) + 1;
+                at = at.right;
+            }
+        }
+        return index + size(at.left);
+    }
+
+    // replaces the line for the same item where it stands, or appends a new one
+    CartLines put(CartItem line) {
+        String name = line.getItem().getName();
+        Node existing = findByName(name);
+        if (existing != null) {
+            return new CartLines(replace(byOrder, existing.seq, line), byName, nextSeq);
+        }
+        return new CartLines(insert(byOrder, nextSeq, line, false), insert(byName, nextSeq, line, true), nextSeq + 1);
+    }
+
+    CartLines remove(String name) {
+        Node existing = findByName(name);
+        if (existing == null) return this;
+        if (size() == 1) return EMPTY;
+        return new CartLines(delete(byOrder, existing.seq, name, false), delete(byName, existing.seq, name, true), nextSeq);
+    }
+
+    @Override
+    public int size() {
+        return size(byOrder);
+    }
+
+    @Override
+    public CartItem get(int index) {
+        if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+        Node n = byOrder;
+        while (true) {
+            int left = size(n.left);
+            if (index < left) {
+                n = n.left;
+            } else if (index == left) {
+                return n.line;
+            } else {
+                index -= left + 1;
+                n = n.right;
+            }
+        }
+    }
+
+    @Override
+    public Iterator<CartItem> iterator() {
+        return new Iterator<>() {
+            // the nodes still to visit on the way back up
+            private final Node[] stack = new Node[height(byOrder) + 1];
+            private int depth;
+            { descend(byOrder); }
+
+            private void descend(Node n) {
+                for (; n != null; n = n.left) stack[depth++] = n;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return depth > 0;
+            }
+
+            @Override
+            public CartItem next() {
+                if (depth == 0) throw new NoSuchElementException();
+                Node n = stack[--depth];
+                descend(n.right);
+                return n.line;
+            }
+        };
+    }
+
+    private Node findByName(String name) {
+        Node n = byName;
+        while (n != null) {
+            int c = name.compareTo(n.name());
+            if (c == 0) return n;
+            n = c < 0 ? n.left : n.right;
+        }
+        return null;
+    }
+
+    private static final class Node {
+        final long seq;
+        final CartItem line;
+        final Node left;
+        final Node right;
+        final int height;
+        final int size;
+
+        Node(long seq, CartItem line, Node left, Node right) {
+            this.seq = seq;
+            this.line = line;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+
+        String name() {
+            return line.getItem().getName();
+        }
+    }
+
+    private static int height(Node n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static int size(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static int compare(long seq, String name, Node n, boolean byName) {
+        return byName ? name.compareTo(n.name()) : Long.compare(seq, n.seq);
+    }
+
+    // adds the entry, or swaps in the new line if its key is already there
+    private static Node insert(Node n, long seq, CartItem line, boolean byName) {
+        if (n == null) return new Node(seq, line, null, null);
+        int c = compare(seq, line.getItem().getName(), n, byName);
+        if (c == 0) return new Node(seq, line, n.left, n.right);
+        return c < 0
+                ? balance(n.seq, n.line, insert(n.left, seq, line, byName), n.right)
+                : balance(n.seq, n.line, n.left, insert(n.right, seq, line, byName));
+    }
+
+    // same shape, so only the path is copied and nothing needs rebalancing
+    private static Node replace(Node n, long seq, CartItem line) {
+        if (seq == n.seq) return new Node(seq, line, n.left, n.right);
+        return seq < n.seq
+                ? new Node(n.seq, n.line, replace(n.left, seq, line), n.right)
+                : new Node(n.seq, n.line, n.left, replace(n.right, seq, line));
+    }
+
+    private static Node delete(Node n, long seq, String name, boolean byName) {
+        int c = compare(seq, name, n, byName);
+        if (c < 0) return balance(n.seq, n.line, delete(n.left, seq, name, byName), n.right);
+        if (c > 0) return balance(n.seq, n.line, n.left, delete(n.right, seq, name, byName));
+        if (n.left == null) return n.right;
+        if (n.right == null) return n.left;
+        Node successor = n.right;
+        while (successor.left != null) successor = successor.left;
+        return balance(successor.seq, successor.line, n.left, deleteFirst(n.right));
+    }
+
+    private static Node deleteFirst(Node n) {
+        if (n.left == null) return n.right;
+        return balance(n.seq, n.line, deleteFirst(n.left), n.right);
+    }
+
+    private static Node balance(long seq, CartItem line, Node left, Node right) {
+        int diff = height(left) - height(right);
+        if (diff > 1) {
+            if (height(left.left) < height(left.right)) left = rotateLeft(left.seq, left.line, left.left, left.right);
+            return rotateRight(seq, line, left, right);
+        }
+        if (diff < -1) {
+            if (height(right.right) < height(right.left)) right = rotateRight(right.seq, right.line, right.left, right.right);
+            return rotateLeft(seq, line, left, right);
+        }
+        return new Node(seq, line, left, right);
+    }
+
+    // the node (seq, line) over left and right, with left lifted above it
+    private static Node rotateRight(long seq, CartItem line, Node left, Node right) {
+        return new Node(left.seq, left.line, left.left, new Node(seq, line, left.right, right));
+    }
+
+    private static Node rotateLeft(long seq, CartItem line, Node left, Node right) {
+        return new Node(right.seq, right.line, new Node(seq, line, left, right.left), right.right);
+    }
+}
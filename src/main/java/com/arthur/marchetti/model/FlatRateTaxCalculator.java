@@ -3,15 +3,61 @@ package com.arthur.marchetti.model;
 import com.arthur.marchetti.interfaces.TaxCalculator.TaxCalculator;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
 
 public class FlatRateTaxCalculator implements TaxCalculator {
     private final BigDecimal rate; // for example 0.06 means 6 percent
+    // rate as rateNumerator / rateDivisor for the cents path; divisor is 0 when the rate does not fit in longs
+    private final long rateNumerator;
+    private final long rateDivisor;
+
     public FlatRateTaxCalculator(BigDecimal rate){
         if(rate == null || rate.signum() < 0) throw new IllegalArgumentException("rate must be non negative");
         this.rate = rate;
+        BigDecimal r = rate.scale() < 0 ? rate.setScale(0) : rate;
+        if(r.scale() <= 18 && r.unscaledValue().bitLength() < 64){
+            this.rateNumerator = r.unscaledValue().longValue();
+            this.rateDivisor = Money.pow10(r.scale());
+        } else {
+            this.rateNumerator = 0;
+            this.rateDivisor = 0;
+        }
     }
     @Override public BigDecimal tax(BigDecimal amount){
         if(amount == null || amount.signum() < 0) throw new IllegalArgumentException("amount must be non negative");
         return amount.multiply(rate).setScale(2, java.math.RoundingMode.HALF_UP);
     }
-}
\ No newline at end of file
+
+    // same result as tax(BigDecimal) for whole-cent amounts, without allocating
+    @Override public long taxCents(long amountCents){
+        if(amountCents < 0) throw new IllegalArgumentException("amount must be non negative");
+        if(rateDivisor == 0) return Money.multiplyCents(amountCents, rate, RoundingMode.HALF_UP);
+        return Money.multiplyCents(amountCents, rateNumerator, rateDivisor, RoundingMode.HALF_UP);
+    }
+
+    // taxCents(long) inlined for arrays: amounts are non negative, so HALF_UP is "remainder at least half the
+    // divisor"; products that overflow a long go through Money like the single amount path does
+    @Override public void taxCents(long[] amountsCents, long[] taxCents, int from, int to){
+        Objects.checkFromToIndex(from, to, amountsCents.length);
+        Objects.checkFromToIndex(from, to, taxCents.length);
+        if(rateDivisor == 0){
+            for(int i = from; i < to; i++) taxCents[i] = taxCents(amountsCents[i]);
+            return;
+        }
+        long numerator = rateNumerator;
+        long divisor = rateDivisor;
+        for(int i = from; i < to; i++){
+            long amount = amountsCents[i];
+            if(amount < 0) throw new IllegalArgumentException("amount must be non negative");
+            long product = amount * numerator;
+            if(Math.multiplyHigh(amount, numerator) != 0 || product < 0){
+                taxCents[i] = Money.multiplyCents(amount, numerator, divisor, RoundingMode.HALF_UP);
+                continue;
+            }
+            long q = product / divisor;
+            long r = product - q * divisor;
+            taxCents[i] = r >= divisor - r ? q + 1 : q;
+        }
+    }
+}
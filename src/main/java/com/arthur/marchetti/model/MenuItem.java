@@ -4,24 +4,44 @@ import java.math.BigDecimal;
 import java.util.Objects;
 
 public class MenuItem<T extends Enum<T>> {
+    private final String sku;
     private final String name;
     private final BigDecimal price;
+    private final Money priceMoney;
     private final T category;
 
+    // items created without a SKU are keyed by their name
     public MenuItem(String name, BigDecimal price, T category){
+        this(name, name, price, category);
+    }
+
+    public MenuItem(String sku, String name, BigDecimal price, T category){
 
         if(name == null || name.isBlank()) throw new IllegalArgumentException("Name is not valid!");
+        if(sku == null || sku.isBlank()) throw new IllegalArgumentException("SKU is not valid!");
 
         if( price == null  || price.signum() <= 0){
             throw new IllegalArgumentException("Price is not valid!");
         }
+        Money priceMoney;
+        try {
+            priceMoney = Money.of(price);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Price must be a whole number of cents!");
+        }
 
 
+        this.sku = sku;
         this.name = name;
         this.price = price;
+        this.priceMoney = priceMoney;
         this.category = category;
     }
 
+    public String getSku() {
+        return this.sku;
+    }
+
     public String getName() {
         return this.name;
     }
@@ -30,6 +50,14 @@ public class MenuItem<T extends Enum<T>> {
         return this.price;
     }
 
+    public Money getPriceMoney() {
+        return this.priceMoney;
+    }
+
+    public long getPriceCents() {
+        return this.priceMoney.cents();
+    }
+
     public T getCategory() {
         return category;
     }
@@ -42,11 +70,12 @@ public class MenuItem<T extends Enum<T>> {
     @Override public boolean equals(Object o){
         if (this == o) return true;
         if (!(o instanceof MenuItem<?> m)) return false;
-        return Objects.equals(name, m.name)
+        return Objects.equals(sku, m.sku)
+                && Objects.equals(name, m.name)
                 && Objects.equals(price, m.price)
                 && Objects.equals(category, m.category);
     }
 
 
-    @Override public int hashCode(){ return Objects.hash(name, price, category); }
+    @Override public int hashCode(){ return Objects.hash(sku, name, price, category); }
 }
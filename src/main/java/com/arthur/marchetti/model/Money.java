@@ -0,0 +1,109 @@
+package com.arthur.marchetti.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Fixed-point amount in whole cents. The static long helpers let hot loops stay on primitives;
+// instances are for APIs that want a typed value instead of a bare long.
+public final class Money implements Comparable<Money> {
+    public static final Money ZERO = new Money(0);
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    private final long cents;
+
+    private Money(long cents) { this.cents = cents; }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    // throws ArithmeticException if amount has more than two decimals
+    public static Money of(BigDecimal amount) {
+        return of(amount, RoundingMode.UNNECESSARY);
+    }
+
+    public static Money of(BigDecimal amount, RoundingMode rounding) {
+        if (amount == null) throw new IllegalArgumentException("amount required");
+        if (rounding == null) throw new IllegalArgumentException("rounding required");
+        return ofCents(amount.setScale(2, rounding).movePointRight(2).longValueExact());
+    }
+
+    public long cents() { return cents; }
+
+    public BigDecimal toBigDecimal() { return BigDecimal.valueOf(cents, 2); }
+
+    public Money plus(Money other) { return ofCents(Math.addExact(cents, other.cents)); }
+
+    public Money minus(Money other) { return ofCents(Math.subtractExact(cents, other.cents)); }
+
+    public Money times(int quantity) { return ofCents(Math.multiplyExact(cents, (long) quantity)); }
+
+    public Money multiply(BigDecimal rate, RoundingMode rounding) {
+        return ofCents(multiplyCents(cents, rate, rounding));
+    }
+
+    public int signum() { return Long.signum(cents); }
+
+    // cents * rate rounded back to whole cents; exact and allocation-free whenever the product fits in a long
+    public static long multiplyCents(long cents, BigDecimal rate, RoundingMode rounding) {
+        if (rate == null) throw new IllegalArgumentException("rate required");
+        BigDecimal r = rate.scale() < 0 ? rate.setScale(0) : rate;
+        if (r.scale() < POWERS_OF_TEN.length && r.unscaledValue().bitLength() < 64) {
+            return multiplyCents(cents, r.unscaledValue().longValue(), POWERS_OF_TEN[r.scale()], rounding);
+        }
+        return BigDecimal.valueOf(cents).multiply(r).setScale(0, rounding).longValueExact();
+    }
+
+    // cents * (rateNumerator / rateDivisor) rounded to whole cents
+    public static long multiplyCents(long cents, long rateNumerator, long rateDivisor, RoundingMode rounding) {
+        long product;
+        try {
+            product = Math.multiplyExact(cents, rateNumerator);
+        } catch (ArithmeticException overflow) {
+            return BigDecimal.valueOf(cents).multiply(BigDecimal.valueOf(rateNumerator))
+                    .divide(BigDecimal.valueOf(rateDivisor), 0, rounding).longValueExact();
+        }
+        return divide(product, rateDivisor, rounding);
+    }
+
+    // numerator / divisor with BigDecimal rounding semantics; divisor must be positive
+    public static long divide(long numerator, long divisor, RoundingMode rounding) {
+        if (divisor <= 0) throw new IllegalArgumentException("divisor must be positive");
+        long q = numerator / divisor;
+        long r = numerator % divisor;
+        if (r == 0) return q;
+        long away = numerator < 0 ? q - 1 : q + 1;
+        switch (rounding) {
+            case UNNECESSARY: throw new ArithmeticException("rounding necessary");
+            case DOWN: return q;
+            case UP: return away;
+            case FLOOR: return numerator < 0 ? away : q;
+            case CEILING: return numerator < 0 ? q : away;
+            default:
+                long rest = Math.abs(r);
+                int cmp = Long.compare(rest, divisor - rest);
+                if (cmp > 0) return away;
+                if (cmp < 0) return q;
+                if (rounding == RoundingMode.HALF_UP) return away;
+                if (rounding == RoundingMode.HALF_DOWN) return q;
+                return (q & 1) == 0 ? q : away;
+        }
+    }
+
+    static long pow10(int exponent) { return POWERS_OF_TEN[exponent]; }
+
+    @Override public int compareTo(Money o) { return Long.compare(cents, o.cents); }
+
+    @Override public boolean equals(Object o) {
+        return this == o || (o instanceof Money m && m.cents == cents);
+    }
+
+    @Override public int hashCode() { return Long.hashCode(cents); }
+
+    @Override public String toString() { return toBigDecimal().toPlainString(); }
+}
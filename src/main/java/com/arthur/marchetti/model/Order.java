@@ -1,5 +1,6 @@
 package com.arthur.marchetti.model;
 
+import com.arthur.marchetti.metrics.OrderSnapshotEvent;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -23,10 +24,21 @@ public record Order(
             throw new IllegalArgumentException("customerName required");
         }
 
-        // Make a defensive copy of the cart lines to ensure immutability
-        lines = lines.stream()
-                .map(li -> new CartItem(li.getItem(), li.getQuantity()))
-                .toList();
-        lines = List.copyOf(lines);
+        // Lines are immutable, so only the list needs to be: a cart snapshot already is and is kept as it is,
+        // anything else gets a defensive copy
+        var event = new OrderSnapshotEvent();
+        event.begin();
+        if (!(lines instanceof CartLines)) lines = List.copyOf(lines);
+        if (event.isEnabled()) event.complete(orderId, lines.size(), lines.stream().mapToInt(CartItem::getQuantity).sum());
     }
+
+    public Order(String orderId, String customerName, Instant timestamp, List<CartItem> lines,
+                 Money subtotal, Money tax, Money total) {
+        this(orderId, customerName, timestamp, lines,
+                subtotal.toBigDecimal(), tax.toBigDecimal(), total.toBigDecimal());
+    }
+
+    public Money subtotalMoney() { return Money.of(subtotal); }
+    public Money taxMoney() { return Money.of(tax); }
+    public Money totalMoney() { return Money.of(total); }
 }
@@ -0,0 +1,102 @@
+package com.arthur.marchetti.model;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Snowflake-style order ids: 64-bit, unique across terminals without asking a database, and sorting by time.
+//
+//   | 0 | 41 bits: ms since 2024-01-01Z | 10 bits: terminal | 12 bits: sequence within the ms |
+//
+// The clock and sequence live in one AtomicLong that only moves forward, so next() is one CAS and never
+// blocks. More than 4096 ids in a millisecond borrow the next millisecond instead of waiting, and a clock
+// that steps back keeps counting from the last id handed out: ids stay strictly increasing per terminal
+// either way, and two terminals can only collide if they share a terminal number.
+//
+// format() is the printed form: Crockford base 32, 13 characters, same order as the numbers.
+public final class OrderIdGenerator {
+    public static final long EPOCH_MILLIS = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+    public static final int MAX_TERMINAL = (1 << 10) - 1;
+    private static final int TERMINAL_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_TIMESTAMP = (1L << 41) - 1;
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+    private static final char[] DIGITS = ALPHABET.toCharArray();
+    private static final int FORMATTED_LENGTH = 13;
+
+    private final Clock clock;
+    private final long terminalBits;
+    // (ms since EPOCH_MILLIS << SEQUENCE_BITS) | sequence, of the last id handed out
+    private final AtomicLong last = new AtomicLong();
+
+    public OrderIdGenerator(int terminal) {
+        this(terminal, Clock.systemUTC());
+    }
+
+    public OrderIdGenerator(int terminal, Clock clock) {
+        if (terminal < 0 || terminal > MAX_TERMINAL) throw new IllegalArgumentException("terminal must be 0.." + MAX_TERMINAL);
+        if (clock == null) throw new IllegalArgumentException("clock required");
+        this.clock = clock;
+        this.terminalBits = (long) terminal << SEQUENCE_BITS;
+    }
+
+    public long next() {
+        long now = (clock.millis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long prev;
+        long state;
+        do {
+            prev = last.get();
+            state = Math.max(prev + 1, now);
+        } while (!last.compareAndSet(prev, state));
+        long timestamp = state >>> SEQUENCE_BITS;
+        if (timestamp > MAX_TIMESTAMP || timestamp < 0) throw new IllegalStateException("clock outside the id range");
+        return timestamp << (TERMINAL_BITS + SEQUENCE_BITS) | terminalBits | (state & ((1L << SEQUENCE_BITS) - 1));
+    }
+
+    public String nextFormatted() {
+        return format(next());
+    }
+
+    public static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli((id >>> (TERMINAL_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS);
+    }
+
+    public static int terminalOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & MAX_TERMINAL;
+    }
+
+    public static String format(long id) {
+        char[] out = new char[FORMATTED_LENGTH];
+        for (int i = FORMATTED_LENGTH - 1; i >= 0; i--) {
+            out[i] = DIGITS[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(out);
+    }
+
+    // Accepts what a person might type back from a receipt: either case, O for 0, I and L for 1, and hyphens.
+    public static long parse(String text) {
+        if (text == null) throw new IllegalArgumentException("id required");
+        long id = 0;
+        int digits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toUpperCase(text.charAt(i));
+            if (c == '-') continue;
+            int value = switch (c) {
+                case 'O' -> 0;
+                case 'I', 'L' -> 1;
+                default -> {
+                    int v = ALPHABET.indexOf(c);
+                    if (v < 0) throw new IllegalArgumentException("invalid order id " + text);
+                    yield v;
+                }
+            };
+            if (++digits > FORMATTED_LENGTH || (digits == 1 && value > 15)) {
+                throw new IllegalArgumentException("invalid order id " + text);
+            }
+            id = id << 5 | value;
+        }
+        if (digits != FORMATTED_LENGTH) throw new IllegalArgumentException("invalid order id " + text);
+        return id;
+    }
+}
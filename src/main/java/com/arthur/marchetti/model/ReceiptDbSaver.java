@@ -5,6 +5,7 @@ import com.arthur.marchetti.interfaces.TaxCalculator.ReceiptDBRepository;
 import com.arthur.marchetti.services.ReceiptService;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 public class ReceiptDbSaver {
     private final ReceiptService service;
@@ -13,11 +14,14 @@ public class ReceiptDbSaver {
 
     public long renderAndSave(Cart cart, String customerName) throws Exception {
         var lines = service.render(cart);
+        // amounts come from the cart itself, stored with the same two decimals the receipt prints
         BigDecimal sub = cart.getSubtotal();
-        var last4 = lines.subList(lines.size() - 3, lines.size());
-        String subtotalText = last4.get(0).replaceAll("[^0-9.]+", "");
-        String taxText = last4.get(1).replaceAll("[^0-9.]+", "");
-        String totalText = last4.get(2).replaceAll("[^0-9.]+", "");
-        return db.save(lines, customerName == null ? "Guest" : customerName, subtotalText, taxText, totalText);
+        BigDecimal tax = cart.getTax(service.getTaxCalculator());
+        BigDecimal total = sub.add(tax);
+        return db.save(lines, customerName == null ? "Guest" : customerName, money(sub), money(tax), money(total));
     }
-}
\ No newline at end of file
+
+    private static String money(BigDecimal amount){
+        return amount.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+}
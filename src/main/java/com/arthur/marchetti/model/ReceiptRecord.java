@@ -0,0 +1,16 @@
+package com.arthur.marchetti.model;
+
+import java.util.List;
+
+public record ReceiptRecord(
+        List<String> lines,
+        String customerName,
+        String subtotal,
+        String tax,
+        String total
+) {
+    public ReceiptRecord {
+        if (lines == null || lines.isEmpty()) throw new IllegalArgumentException("lines required");
+        lines = List.copyOf(lines);
+    }
+}
@@ -0,0 +1,80 @@
+package com.arthur.marchetti.model;
+
+import com.arthur.marchetti.metrics.ReceiptRenderedEvent;
+import com.arthur.marchetti.services.ReceiptRenderer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.List;
+
+// An order rendered once into every form the receipt sinks need: the till table (what the database keeps),
+// the customer receipt as text and as UTF-8 bytes (what the log, files and printer get) and the amounts as
+// two-decimal strings. Immutable, so any number of sinks can read it at the same time.
+public final class RenderedReceipt {
+    private final Order order;
+    private final String till;
+    private final List<String> tillLines;
+    private final String customerText;
+    private final byte[] customerUtf8;
+    private final String subtotal;
+    private final String tax;
+    private final String total;
+
+    private RenderedReceipt(Order order, String till, String customerText) {
+        this.order = order;
+        this.till = till;
+        this.tillLines = till.lines().toList();
+        this.customerText = customerText;
+        this.customerUtf8 = customerText.getBytes(StandardCharsets.UTF_8);
+        this.subtotal = money(order.subtotal());
+        this.tax = money(order.tax());
+        this.total = money(order.total());
+    }
+
+    public static RenderedReceipt of(Order order, ZoneId zone) {
+        if (order == null) throw new IllegalArgumentException("order required");
+        if (zone == null) throw new IllegalArgumentException("zone required");
+        var event = new ReceiptRenderedEvent();
+        event.begin();
+        var till = new StringBuilder(256);
+        var customer = new StringBuilder(512);
+        try {
+            ReceiptRenderer.renderTable(order, "\n", till);
+            ReceiptRenderer.renderOrder(order, zone, customer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder does not throw
+        }
+        var receipt = new RenderedReceipt(order, till.toString(), customer.toString());
+        event.completeOrder(order.orderId(), "both", order.lines().size(),
+                receipt.customerUtf8.length + (long) receipt.till.length());
+        return receipt;
+    }
+
+    public Order order() { return order; }
+
+    // till table (ReceiptService.render), lines joined with '\n'
+    public String till() { return till; }
+
+    public List<String> tillLines() { return tillLines; }
+
+    // customer receipt (ReceiptFormatter.format)
+    public String customerText() { return customerText; }
+
+    // a fresh read-only view of the customer receipt in UTF-8 for every caller, so sinks never share a position
+    public ByteBuffer customerBytes() { return ByteBuffer.wrap(customerUtf8).asReadOnlyBuffer(); }
+
+    public String subtotal() { return subtotal; }
+
+    public String tax() { return tax; }
+
+    public String total() { return total; }
+
+    private static String money(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+}
@@ -0,0 +1,199 @@
+package com.arthur.marchetti.model;
+
+import com.arthur.marchetti.interfaces.TaxCalculator.TaxCalculator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Taxes each line at the rate of its item's category. Rules are compiled once into one array per enum type,
+// indexed by ordinal, holding every rate as a numerator over one shared power of ten, so taxing a line is an
+// identity check on the enum class, an array read and a long multiply. Nothing is evaluated per call.
+//
+// A category's rate is, in order of precedence: its own rate, the rate given for its whole enum type, the
+// default rate. Surcharges are added on top (for example BeverageCategory.ALCOHOLIC). Every line is rounded
+// HALF_UP to the cent on its own and the order tax is the sum of the line taxes, so an itemised receipt
+// always adds up. Amounts without a category (tax(BigDecimal), taxCents(long)) use the default rate.
+public class RuleBasedTaxCalculator implements TaxCalculator {
+    private static final int MAX_SCALE = 9;
+
+    private final long divisor;
+    private final long defaultNumerator;
+    private final Class<?>[] types;
+    private final long[][] numerators; // numerators[t][ordinal] for an enum constant of types[t]
+
+    private RuleBasedTaxCalculator(Builder rules) {
+        int scale = rules.defaultRate.scale();
+        for (var r : rules.rates.values()) scale = Math.max(scale, r.scale());
+        for (var r : rules.typeRates.values()) scale = Math.max(scale, r.scale());
+        for (var r : rules.surcharges.values()) scale = Math.max(scale, r.scale());
+        if (scale > MAX_SCALE) throw new IllegalArgumentException("rates may have at most " + MAX_SCALE + " decimals");
+        this.divisor = Money.pow10(Math.max(scale, 0));
+        this.defaultNumerator = numerator(rules.defaultRate);
+
+        var enumTypes = new ArrayList<Class<?>>(rules.typeRates.keySet());
+        for (Enum<?> c : rules.rates.keySet()) if (!enumTypes.contains(c.getDeclaringClass())) enumTypes.add(c.getDeclaringClass());
+        for (Enum<?> c : rules.surcharges.keySet()) if (!enumTypes.contains(c.getDeclaringClass())) enumTypes.add(c.getDeclaringClass());
+        this.types = enumTypes.toArray(new Class<?>[0]);
+        this.numerators = new long[types.length][];
+        for (int t = 0; t < types.length; t++) {
+            Object[] constants = types[t].getEnumConstants();
+            BigDecimal typeRate = rules.typeRates.getOrDefault(types[t], rules.defaultRate);
+            long[] table = new long[constants.length];
+            for (int i = 0; i < constants.length; i++) {
+                Enum<?> c = (Enum<?>) constants[i];
+                table[i] = Math.addExact(numerator(rules.rates.getOrDefault(c, typeRate)),
+                        numerator(rules.surcharges.getOrDefault(c, BigDecimal.ZERO)));
+            }
+            numerators[t] = table;
+        }
+    }
+
+    public static Builder builder(BigDecimal defaultRate) {
+        return new Builder(defaultRate);
+    }
+
+    // Rules as text, for configuration: entries separated by ',' or ';', each one of
+    //   0.06                default rate (the first entry, required)
+    //   DRINK=0.05          rate for one category, by constant name
+    //   BeverageCategory=0.05  rate for every constant of an enum type
+    //   ALCOHOLIC+0.10      surcharge on one category
+    // Constant names are looked up in Category and BeverageCategory.
+    public static RuleBasedTaxCalculator parse(String spec) {
+        if (spec == null || spec.isBlank()) throw new IllegalArgumentException("tax rules required");
+        String[] entries = spec.trim().split("\\s*[,;]\\s*");
+        Builder rules = builder(rate(entries[0], entries[0]));
+        for (int i = 1; i < entries.length; i++) {
+            String entry = entries[i];
+            int eq = entry.indexOf('=');
+            int plus = entry.indexOf('+');
+            int at = eq >= 0 ? eq : plus;
+            if (at <= 0) throw new IllegalArgumentException("invalid tax rule " + entry);
+            String name = entry.substring(0, at).trim();
+            BigDecimal rate = rate(entry.substring(at + 1), entry);
+            if (at == plus) {
+                rules.surcharge(category(name), rate);
+            } else if (name.equals(Category.class.getSimpleName())) {
+                rules.rate(Category.class, rate);
+            } else if (name.equals(BeverageCategory.class.getSimpleName())) {
+                rules.rate(BeverageCategory.class, rate);
+            } else {
+                rules.rate(category(name), rate);
+            }
+        }
+        return rules.build();
+    }
+
+    @Override
+    public BigDecimal tax(BigDecimal amount) {
+        if (amount == null || amount.signum() < 0) throw new IllegalArgumentException("amount must be non negative");
+        return amount.multiply(BigDecimal.valueOf(defaultNumerator)).divide(BigDecimal.valueOf(divisor), 2, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    public long taxCents(long amountCents) {
+        if (amountCents < 0) throw new IllegalArgumentException("amount must be non negative");
+        return Money.multiplyCents(amountCents, defaultNumerator, divisor, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    public boolean taxesByLine() {
+        return true;
+    }
+
+    @Override
+    public long taxCents(Collection<CartItem> lines, long[] lineTaxCents) {
+        long total = 0;
+        int i = 0;
+        for (CartItem line : lines) {
+            long tax = Money.multiplyCents(line.lineTotalCents(), numerator(line.getItem().getCategory()), divisor, RoundingMode.HALF_UP);
+            if (lineTaxCents != null) lineTaxCents[i++] = tax;
+            total = Math.addExact(total, tax);
+        }
+        return total;
+    }
+
+    // the rate a line of this category is taxed at, surcharges included
+    public BigDecimal rate(Enum<?> category) {
+        return BigDecimal.valueOf(numerator(category)).divide(BigDecimal.valueOf(divisor)).stripTrailingZeros();
+    }
+
+    private long numerator(Enum<?> category) {
+        if (category != null) {
+            Class<?> type = category.getDeclaringClass();
+            for (int t = 0; t < types.length; t++) {
+                if (types[t] == type) return numerators[t][category.ordinal()];
+            }
+        }
+        return defaultNumerator;
+    }
+
+    private long numerator(BigDecimal rate) {
+        return rate.multiply(BigDecimal.valueOf(divisor)).longValueExact();
+    }
+
+    private static BigDecimal rate(String text, String entry) {
+        try {
+            return new BigDecimal(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid rate in tax rule " + entry);
+        }
+    }
+
+    private static Enum<?> category(String name) {
+        Enum<?> found = null;
+        for (Class<? extends Enum<?>> type : List.<Class<? extends Enum<?>>>of(Category.class, BeverageCategory.class)) {
+            for (Enum<?> c : type.getEnumConstants()) {
+                if (c.name().equals(name)) {
+                    if (found != null) throw new IllegalArgumentException("ambiguous category " + name);
+                    found = c;
+                }
+            }
+        }
+        if (found == null) throw new IllegalArgumentException("unknown category " + name);
+        return found;
+    }
+
+    public static final class Builder {
+        private final BigDecimal defaultRate;
+        private final Map<Enum<?>, BigDecimal> rates = new LinkedHashMap<>();
+        private final Map<Class<?>, BigDecimal> typeRates = new LinkedHashMap<>();
+        private final Map<Enum<?>, BigDecimal> surcharges = new LinkedHashMap<>();
+
+        private Builder(BigDecimal defaultRate) {
+            this.defaultRate = check(defaultRate);
+        }
+
+        public Builder rate(Enum<?> category, BigDecimal rate) {
+            if (category == null) throw new IllegalArgumentException("category required");
+            rates.put(category, check(rate));
+            return this;
+        }
+
+        public <E extends Enum<E>> Builder rate(Class<E> type, BigDecimal rate) {
+            if (type == null) throw new IllegalArgumentException("type required");
+            typeRates.put(type, check(rate));
+            return this;
+        }
+
+        // added to whatever rate the category ends up with
+        public Builder surcharge(Enum<?> category, BigDecimal rate) {
+            if (category == null) throw new IllegalArgumentException("category required");
+            surcharges.merge(category, check(rate), BigDecimal::add);
+            return this;
+        }
+
+        public RuleBasedTaxCalculator build() {
+            return new RuleBasedTaxCalculator(this);
+        }
+
+        private static BigDecimal check(BigDecimal rate) {
+            if (rate == null || rate.signum() < 0) throw new IllegalArgumentException("rate must be non negative");
+            return rate;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.arthur.marchetti.model;
+
+import java.time.Instant;
+
+public record SalesTotal(
+        Instant bucketStart,
+        String key,
+        long quantity,
+        long salesCents
+) {}
@@ -0,0 +1,18 @@
+package com.arthur.marchetti.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record StoredReceipt(
+        long id,
+        LocalDateTime createdAt,
+        String customerName,
+        String subtotal,
+        String tax,
+        String total,
+        String content
+) {
+    public List<String> lines() {
+        return content.lines().toList();
+    }
+}
@@ -0,0 +1,59 @@
+package com.arthur.marchetti.model;
+
+import com.arthur.marchetti.interfaces.TaxCalculator.TaxCalculator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Taxes millions of amounts (an audit period, a rate change) on a fork-join pool. The array is split into
+// ranges of at least CHUNK amounts and each range goes through the calculator's bulk taxCents, so the result
+// is exactly what taxCents(long) gives for each amount, in the same order. The calculator must be safe to call
+// from several threads; FlatRateTaxCalculator and RuleBasedTaxCalculator are immutable.
+public final class TaxBatch {
+    static final int CHUNK = 16_384;
+
+    private TaxBatch() {}
+
+    public static long[] parallelTaxCents(TaxCalculator calculator, long[] amountsCents) {
+        return parallelTaxCents(calculator, amountsCents, ForkJoinPool.commonPool());
+    }
+
+    public static long[] parallelTaxCents(TaxCalculator calculator, long[] amountsCents, ForkJoinPool pool) {
+        if (calculator == null) throw new IllegalArgumentException("calculator required");
+        if (amountsCents == null) throw new IllegalArgumentException("amounts required");
+        if (pool == null) throw new IllegalArgumentException("pool required");
+        long[] taxCents = new long[amountsCents.length];
+        if (amountsCents.length <= CHUNK || pool.getParallelism() == 1) {
+            calculator.taxCents(amountsCents, taxCents, 0, amountsCents.length);
+        } else {
+            pool.invoke(new Range(calculator, amountsCents, taxCents, 0, amountsCents.length));
+        }
+        return taxCents;
+    }
+
+    private static final class Range extends RecursiveAction {
+        private final TaxCalculator calculator;
+        private final long[] amounts;
+        private final long[] taxes;
+        private final int from;
+        private final int to;
+
+        Range(TaxCalculator calculator, long[] amounts, long[] taxes, int from, int to) {
+            this.calculator = calculator;
+            this.amounts = amounts;
+            this.taxes = taxes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK) {
+                calculator.taxCents(amounts, taxes, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Range(calculator, amounts, taxes, from, mid), new Range(calculator, amounts, taxes, mid, to));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.arthur.marchetti.repo;
+
+import com.arthur.marchetti.model.BeverageCategory;
+import com.arthur.marchetti.model.Category;
+import com.arthur.marchetti.model.MenuItem;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads catalog CSV files: one "sku,name,category,price" row per item, optional header, '#' comments.
+// Fields may be double-quoted ("" escapes a quote). The file is memory-mapped and decoded in one pass.
+final class CatalogFile {
+    private static final Enum<?>[][] CATEGORIES = {Category.values(), BeverageCategory.values()};
+
+    private CatalogFile() {}
+
+    static List<MenuItem> read(Path file) throws IOException {
+        CharBuffer text;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            text = StandardCharsets.UTF_8.newDecoder().decode(mapped);
+        }
+        return parse(text);
+    }
+
+    static List<MenuItem> parse(CharBuffer text) {
+        char[] buf = text.array();
+        int pos = text.arrayOffset() + text.position();
+        int end = text.arrayOffset() + text.limit();
+        var items = new ArrayList<MenuItem>();
+        int[] fieldStart = new int[4];
+        int[] fieldEnd = new int[4];
+        var unquoted = new StringBuilder();
+        int lineNo = 0;
+        boolean first = true;
+
+        while (pos < end) {
+            lineNo++;
+            int lineEnd = pos;
+            boolean inQuotes = false;
+            while (lineEnd < end && (inQuotes || buf[lineEnd] != '\n')) {
+                if (buf[lineEnd] == '"') inQuotes = !inQuotes;
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > pos && buf[lineEnd - 1] == '\r') lineEnd--;
+            if (first && lineEnd > pos && buf[pos] == '\uFEFF') pos++;
+
+            if (lineEnd == pos || buf[pos] == '#') { pos = next; continue; }
+
+            int fields = split(buf, pos, lineEnd, fieldStart, fieldEnd);
+            if (fields != 4) throw new IllegalArgumentException("catalog line " + lineNo + ": expected 4 fields, got " + fields);
+            if (first && isHeader(buf, fieldStart, fieldEnd)) { first = false; pos = next; continue; }
+            first = false;
+
+            String sku = field(buf, fieldStart[0], fieldEnd[0], unquoted);
+            String name = field(buf, fieldStart[1], fieldEnd[1], unquoted);
+            Enum<?> category = category(buf, fieldStart[2], fieldEnd[2]);
+            if (category == null) {
+                throw new IllegalArgumentException("catalog line " + lineNo + ": unknown category "
+                        + new String(buf, fieldStart[2], fieldEnd[2] - fieldStart[2]));
+            }
+            try {
+                var price = new BigDecimal(buf, fieldStart[3], fieldEnd[3] - fieldStart[3]);
+                items.add(new MenuItem(sku, name, price, (Enum) category));
+            } catch (IllegalArgumentException e) { // NumberFormatException is one too
+                throw new IllegalArgumentException("catalog line " + lineNo + ": " + e.getMessage(), e);
+            }
+            pos = next;
+        }
+        return items;
+    }
+
+    // records [start, end) of every field, trimmed of surrounding blanks; returns the field count
+    private static int split(char[] buf, int from, int to, int[] starts, int[] ends) {
+        int count = 0;
+        int i = from;
+        while (true) {
+            int s = i;
+            boolean inQuotes = false;
+            while (i < to && (inQuotes || buf[i] != ',')) {
+                if (buf[i] == '"') inQuotes = !inQuotes;
+                i++;
+            }
+            int e = i;
+            while (s < e && buf[s] == ' ') s++;
+            while (e > s && buf[e - 1] == ' ') e--;
+            if (count < starts.length) { starts[count] = s; ends[count] = e; }
+            count++;
+            if (i >= to) return count;
+            i++; // skip the comma
+        }
+    }
+
+    private static String field(char[] buf, int s, int e, StringBuilder scratch) {
+        if (e - s >= 2 && buf[s] == '"' && buf[e - 1] == '"') {
+            scratch.setLength(0);
+            for (int i = s + 1; i < e - 1; i++) {
+                scratch.append(buf[i]);
+                if (buf[i] == '"' && i + 1 < e - 1 && buf[i + 1] == '"') i++;
+            }
+            return scratch.toString();
+        }
+        return new String(buf, s, e - s);
+    }
+
+    private static Enum<?> category(char[] buf, int s, int e) {
+        for (Enum<?>[] constants : CATEGORIES) {
+            for (Enum<?> c : constants) {
+                if (equalsIgnoreCase(c.name(), buf, s, e)) return c;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isHeader(char[] buf, int[] starts, int[] ends) {
+        return equalsIgnoreCase("sku", buf, starts[0], ends[0])
+                && equalsIgnoreCase("name", buf, starts[1], ends[1])
+                && equalsIgnoreCase("category", buf, starts[2], ends[2])
+                && equalsIgnoreCase("price", buf, starts[3], ends[3]);
+    }
+
+    private static boolean equalsIgnoreCase(String expected, char[] buf, int s, int e) {
+        if (e - s != expected.length()) return false;
+        for (int i = 0; i < expected.length(); i++) {
+            if (Character.toUpperCase(buf[s + i]) != Character.toUpperCase(expected.charAt(i))) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,233 @@
+package com.arthur.marchetti.repo;
+
+import com.arthur.marchetti.model.Category;
+import com.arthur.marchetti.model.MenuItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+
+// Immutable lookup structures over one catalog snapshot, built once when the catalog loads.
+public final class CatalogIndex {
+    private final List<MenuItem> all;
+    private final Map<Category, List<MenuItem>> byCategory = new EnumMap<>(Category.class);
+    private final Map<String, MenuItem> byName;
+    // lower-cased names in catalog order, and for every trigram the ascending positions of names containing it
+    private final String[] folded;
+    private final Trigrams trigrams;
+
+    public CatalogIndex(List<MenuItem> items) {
+        if (items == null) throw new IllegalArgumentException("items required");
+        this.all = List.copyOf(items);
+
+        var grouped = new EnumMap<Category, List<MenuItem>>(Category.class);
+        for (var c : Category.values()) grouped.put(c, new ArrayList<>());
+        this.byName = new HashMap<>(all.size() * 2);
+        this.folded = new String[all.size()];
+        for (int i = 0; i < folded.length; i++) {
+            MenuItem m = all.get(i);
+            if (m.getCategory() instanceof Category c) grouped.get(c).add(m);
+            byName.putIfAbsent(m.getName(), m);
+            folded[i] = fold(m.getName());
+        }
+        grouped.forEach((c, list) -> byCategory.put(c, List.copyOf(list)));
+        this.trigrams = buildTrigrams(folded);
+    }
+
+    public List<MenuItem> all() { return all; }
+
+    public int size() { return all.size(); }
+
+    public List<MenuItem> byCategory(Category cat) {
+        return cat == null ? List.of() : byCategory.get(cat);
+    }
+
+    public Optional<MenuItem> byName(String name) {
+        return Optional.ofNullable(byName.get(name));
+    }
+
+    // Case-insensitive substring search; names starting with the query come first, each group in catalog order.
+    public List<MenuItem> search(String query) {
+        return matches(query).items();
+    }
+
+    public Matches matches(String query) {
+        String q = query == null ? "" : fold(query.strip());
+        if (q.isEmpty()) return new Matches(q, null);
+        if (q.length() < 3) return new Matches(q, filter(null, q));
+        int[] candidates = smallestPostings(q);
+        return new Matches(q, candidates == null ? new int[0] : filter(candidates, q));
+    }
+
+    // One search's result, kept so the next keystroke can build on it: a query containing this one can only
+    // match names this one matched, so narrow() rechecks those instead of the catalog (or the rarest trigram's
+    // postings, if that list is shorter). Anything else starts over.
+    public final class Matches {
+        private final String query;
+        private final int[] positions; // ascending catalog positions; null for an empty query, which matches all
+
+        private Matches(String query, int[] positions) {
+            this.query = query;
+            this.positions = positions;
+        }
+
+        public CatalogIndex index() { return CatalogIndex.this; }
+
+        public int size() { return positions == null ? all.size() : positions.length; }
+
+        public Matches narrow(String next) {
+            String q = next == null ? "" : fold(next.strip());
+            if (q.equals(query)) return this;
+            if (positions == null || !q.contains(query)) return matches(q);
+            int[] candidates = positions;
+            if (q.length() >= 3) {
+                int[] postings = smallestPostings(q);
+                if (postings == null) return new Matches(q, new int[0]);
+                if (postings.length < candidates.length) candidates = postings;
+            }
+            return new Matches(q, filter(candidates, q));
+        }
+
+        public List<MenuItem> items() {
+            if (positions == null) return all;
+            var prefix = new ArrayList<MenuItem>();
+            var inner = new ArrayList<MenuItem>();
+            for (int i : positions) {
+                if (folded[i].startsWith(query)) prefix.add(all.get(i));
+                else inner.add(all.get(i));
+            }
+            prefix.addAll(inner);
+            return Collections.unmodifiableList(prefix);
+        }
+    }
+
+    // The candidates (every position if null) whose names contain q, in order. Checks for an interrupt every
+    // few thousand names so a search that is no longer wanted can be cancelled.
+    private int[] filter(int[] candidates, String q) {
+        int n = candidates == null ? folded.length : candidates.length;
+        int[] out = new int[Math.min(n, 16)];
+        int size = 0;
+        for (int c = 0; c < n; c++) {
+            if ((c & 0xFFF) == 0xFFF && Thread.currentThread().isInterrupted()) throw new CancellationException("search cancelled");
+            int i = candidates == null ? c : candidates[c];
+            if (folded[i].contains(q)) {
+                if (size == out.length) out = Arrays.copyOf(out, Math.min(n, size * 2));
+                out[size++] = i;
+            }
+        }
+        return size == out.length ? out : Arrays.copyOf(out, size);
+    }
+
+    // every match contains all of the query's trigrams, so the rarest one bounds the candidates
+    private int[] smallestPostings(String q) {
+        int[] best = null;
+        for (int i = 0; i + 3 <= q.length(); i++) {
+            int slot = trigrams.find(trigram(q, i));
+            if (slot < 0) return null;
+            int[] postings = trigrams.postings[slot];
+            if (best == null || postings.length < best.length) best = postings;
+        }
+        return best;
+    }
+
+    private static Trigrams buildTrigrams(String[] names) {
+        var t = new Trigrams(Math.max(16, names.length * 4));
+        for (int n = 0; n < names.length; n++) {
+            String s = names[n];
+            for (int i = 0; i + 3 <= s.length(); i++) {
+                int slot = t.insert(trigram(s, i));
+                if (t.last[slot] != n) { t.counts[slot]++; t.last[slot] = n; } // count each name once per trigram
+            }
+        }
+        t.postings = new int[t.keys.length][];
+        for (int slot = 0; slot < t.keys.length; slot++) {
+            if (t.keys[slot] != 0) { t.postings[slot] = new int[t.counts[slot]]; t.counts[slot] = 0; t.last[slot] = -1; }
+        }
+        for (int n = 0; n < names.length; n++) {
+            String s = names[n];
+            for (int i = 0; i + 3 <= s.length(); i++) {
+                int slot = t.find(trigram(s, i));
+                if (t.last[slot] != n) { t.postings[slot][t.counts[slot]++] = n; t.last[slot] = n; }
+            }
+        }
+        t.counts = null;
+        t.last = null;
+        return t;
+    }
+
+    // Open-addressed trigram -> postings table. Keys are stored +1 so 0 marks a free slot; avoiding boxed Long
+    // keys is what keeps a 50k-item catalog load in the tens of milliseconds.
+    private static final class Trigrams {
+        long[] keys;
+        int[] counts;
+        int[] last;
+        int[][] postings;
+        int size;
+
+        Trigrams(int expected) {
+            int capacity = Integer.highestOneBit(expected * 2 - 1) << 1;
+            keys = new long[capacity];
+            counts = new int[capacity];
+            last = new int[capacity];
+            Arrays.fill(last, -1);
+        }
+
+        int find(long trigram) {
+            long key = trigram + 1;
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) return slot;
+                if (keys[slot] == 0) return -1;
+            }
+        }
+
+        int insert(long trigram) {
+            if ((size + 1) * 2 > keys.length) grow();
+            long key = trigram + 1;
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) slot = (slot + 1) & mask;
+            if (keys[slot] == 0) { keys[slot] = key; size++; }
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            int[] oldLast = last;
+            keys = new long[oldKeys.length * 2];
+            counts = new int[keys.length];
+            last = new int[keys.length];
+            Arrays.fill(last, -1);
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == 0) continue;
+                int slot = hash(oldKeys[i]) & mask;
+                while (keys[slot] != 0) slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+                last[slot] = oldLast[i];
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    static String fold(String s) {
+        return s.toLowerCase(Locale.ROOT);
+    }
+}
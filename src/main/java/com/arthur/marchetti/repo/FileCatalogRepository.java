@@ -0,0 +1,175 @@
+package com.arthur.marchetti.repo;
+
+import com.arthur.marchetti.interfaces.TaxCalculator.CatalogRepository;
+import com.arthur.marchetti.model.Category;
+import com.arthur.marchetti.model.MenuItem;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+// Catalog loaded from a CSV file (see CatalogFile). Every load builds a complete CatalogIndex off to the side
+// and publishes it with a single volatile write, so readers never lock and never see a half-loaded menu.
+// watch() keeps the snapshot in sync with the file; a file that fails to parse leaves the previous one in place,
+// and a file that is still being written is not loaded until it has stopped changing.
+public class FileCatalogRepository implements CatalogRepository, AutoCloseable {
+    private static final System.Logger LOG = System.getLogger(FileCatalogRepository.class.getName());
+    // editors often write a file in several steps; wait for the events to settle before reloading
+    private static final long SETTLE_MILLIS = 100;
+
+    private record Stamp(long size, FileTime modified) {}
+
+    private final Path file;
+    private volatile CatalogIndex snapshot;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private WatchService watcher;
+    private Thread watchThread;
+
+    public FileCatalogRepository(Path file) throws IOException {
+        if (file == null) throw new IllegalArgumentException("file required");
+        this.file = file.toAbsolutePath();
+        this.snapshot = load();
+    }
+
+    public Path file() { return file; }
+
+    // the current snapshot; hold on to it to run several lookups against the same menu
+    public CatalogIndex snapshot() { return snapshot; }
+
+    @Override public List<MenuItem> all() { return snapshot.all(); }
+
+    @Override public List<MenuItem> byCategory(Category cat) { return snapshot.byCategory(cat); }
+
+    @Override public Optional<MenuItem> byName(String name) { return snapshot.byName(name); }
+
+    @Override public List<MenuItem> search(String query) { return snapshot.search(query); }
+
+    // listeners run on the watcher thread (or the caller of reload) after a new snapshot is published
+    public void addReloadListener(Runnable listener) {
+        if (listener == null) throw new IllegalArgumentException("listener required");
+        listeners.add(listener);
+    }
+
+    public void removeReloadListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    // throws and keeps the current snapshot if the file can't be read or parsed
+    public synchronized void reload() throws IOException {
+        publish(load());
+    }
+
+    private synchronized void publish(CatalogIndex index) {
+        snapshot = index;
+        for (Runnable l : listeners) {
+            try {
+                l.run();
+            } catch (RuntimeException e) {
+                LOG.log(System.Logger.Level.WARNING, "catalog reload listener failed", e);
+            }
+        }
+    }
+
+    public synchronized void watch() throws IOException {
+        if (watchThread != null) return;
+        Path dir = file.getParent();
+        watcher = FileSystems.getDefault().newWatchService();
+        dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        WatchService ws = watcher;
+        watchThread = new Thread(() -> watchLoop(ws), "catalog-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    private CatalogIndex load() throws IOException {
+        long start = System.nanoTime();
+        List<MenuItem> items;
+        try {
+            items = CatalogFile.read(file);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + ": " + e.getMessage(), e);
+        }
+        var index = new CatalogIndex(items);
+        LOG.log(System.Logger.Level.DEBUG, () -> "loaded " + index.size() + " catalog items from " + file
+                + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        return index;
+    }
+
+    private void watchLoop(WatchService ws) {
+        try {
+            while (true) {
+                WatchKey key = ws.take();
+                boolean changed = drain(key);
+                // collapse the burst of events a single save produces into one reload
+                while ((key = ws.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) changed |= drain(key);
+                if (!changed) continue;
+                try {
+                    reloadWhenStable();
+                } catch (IOException e) {
+                    LOG.log(System.Logger.Level.WARNING, "catalog reload failed, keeping previous menu: " + e.getMessage());
+                } catch (RuntimeException | Error e) {
+                    // e.g. InternalError from a mapped file truncated while it was read; keep watching
+                    LOG.log(System.Logger.Level.WARNING, "catalog reload failed, keeping previous menu", e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    // An editor saving in place truncates the file and writes it back in pieces, and a piece may well parse.
+    // Only publish a file whose size and modification time held still for a settle window and while it was read.
+    private void reloadWhenStable() throws IOException, InterruptedException {
+        Stamp before = stamp();
+        while (true) {
+            Thread.sleep(SETTLE_MILLIS);
+            Stamp now = stamp();
+            if (now.equals(before)) {
+                CatalogIndex index = load();
+                if (stamp().equals(now)) {
+                    publish(index);
+                    return;
+                }
+                now = stamp();
+            }
+            before = now;
+        }
+    }
+
+    private Stamp stamp() throws IOException {
+        var attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        return new Stamp(attrs.size(), attrs.lastModifiedTime());
+    }
+
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchThread == null) return;
+        watcher.close();
+        watchThread.interrupt();
+        watchThread = null;
+        watcher = null;
+    }
+}
@@ -1,8 +1,13 @@
 package com.arthur.marchetti.repo;
 
 import com.arthur.marchetti.interfaces.TaxCalculator.ReceiptRepository;
+import com.arthur.marchetti.metrics.LatencyHistogram;
+import com.arthur.marchetti.metrics.Metrics;
+import com.arthur.marchetti.metrics.ReceiptPersistedEvent;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.LocalDateTime;
@@ -10,6 +15,8 @@ import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 public class FileReceiptRepository implements ReceiptRepository {
+    private static final LatencyHistogram SAVE = Metrics.global().histogram("receipt.file.save");
+
     private final Path dir;
     private final DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
 
@@ -18,10 +25,45 @@ public class FileReceiptRepository implements ReceiptRepository {
     @Override
     public Path save(List<String> lines) throws IOException {
         if (lines == null || lines.isEmpty()) throw new IllegalArgumentException("lines required");
+        long start = System.nanoTime();
+        var event = new ReceiptPersistedEvent("file");
+        Path saved = null;
+        long bytes = 0;
+        try {
+            Path file = newFile();
+            Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
+            if (event.isEnabled()) bytes = Files.size(file);
+            return saved = file;
+        } finally {
+            SAVE.recordSince(start);
+            event.complete(null, bytes, saved);
+        }
+    }
+
+    // the rendered bytes go to the file as they are, with a final newline added if the text has none
+    @Override
+    public Path save(ByteBuffer receiptText) throws IOException {
+        if (receiptText == null || !receiptText.hasRemaining()) throw new IllegalArgumentException("receipt text required");
+        long start = System.nanoTime();
+        var event = new ReceiptPersistedEvent("file");
+        long bytes = receiptText.remaining();
+        Path saved = null;
+        try {
+            Path file = newFile();
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                boolean newline = receiptText.get(receiptText.limit() - 1) == '\n';
+                while (receiptText.hasRemaining()) ch.write(receiptText);
+                if (!newline) bytes += ch.write(ByteBuffer.wrap(System.lineSeparator().getBytes(StandardCharsets.UTF_8)));
+            }
+            return saved = file;
+        } finally {
+            SAVE.recordSince(start);
+            event.complete(null, bytes, saved);
+        }
+    }
+
+    private Path newFile() throws IOException {
         if (!Files.exists(dir)) Files.createDirectories(dir);
-        String name = "receipt_" + LocalDateTime.now().format(fmt) + ".txt";
-        Path file = dir.resolve(name);
-        Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
-        return file;
+        return dir.resolve("receipt_" + LocalDateTime.now().format(fmt) + ".txt");
     }
 }
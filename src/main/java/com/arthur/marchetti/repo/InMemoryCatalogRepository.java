@@ -6,6 +6,7 @@ import com.arthur.marchetti.model.MenuItem;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 
 public class InMemoryCatalogRepository implements CatalogRepository {
 
@@ -20,12 +21,33 @@ public class InMemoryCatalogRepository implements CatalogRepository {
             new MenuItem("Egg sandwich", new BigDecimal("6.50"), Category.SANDWITCH)
             );
 
+    private final CatalogIndex index;
+
+    public InMemoryCatalogRepository(){
+        this.index = new CatalogIndex(data);
+    }
+
+    public InMemoryCatalogRepository(List<MenuItem> items){
+        this.index = new CatalogIndex(items);
+        this.data = index.all();
+    }
+
     @Override public List<MenuItem> all(){
         return data;
     }
 
     @Override
     public List<MenuItem> byCategory(Category cat){
-     return data.stream().filter(d -> d.getCategory() == cat).toList();
+        return index.byCategory(cat);
+    }
+
+    @Override
+    public Optional<MenuItem> byName(String name){
+        return index.byName(name);
+    }
+
+    @Override
+    public List<MenuItem> search(String query){
+        return index.search(query);
     }
 }
\ No newline at end of file
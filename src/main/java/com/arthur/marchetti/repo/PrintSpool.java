@@ -0,0 +1,55 @@
+package com.arthur.marchetti.repo;
+
+import com.arthur.marchetti.interfaces.TaxCalculator.ReceiptRepository;
+import com.arthur.marchetti.metrics.ReceiptPersistedEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drops each receipt into a spool directory as one print job for whatever drives the printer (lpr, CUPS
+// hot folder, ...). A job is written under a .tmp name and renamed when complete, so the printer side only
+// ever sees whole receipts; names sort in the order the jobs were spooled.
+public class PrintSpool implements ReceiptRepository {
+    private final Path dir;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public PrintSpool(Path dir) {
+        if (dir == null) throw new IllegalArgumentException("dir required");
+        this.dir = dir;
+    }
+
+    public Path dir() { return dir; }
+
+    @Override
+    public Path save(List<String> receiptLines) throws IOException {
+        if (receiptLines == null || receiptLines.isEmpty()) throw new IllegalArgumentException("lines required");
+        return save(ByteBuffer.wrap((String.join("\n", receiptLines) + "\n").getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public Path save(ByteBuffer receiptText) throws IOException {
+        if (receiptText == null || !receiptText.hasRemaining()) throw new IllegalArgumentException("receipt text required");
+        var event = new ReceiptPersistedEvent("spool");
+        long bytes = receiptText.remaining();
+        Path job = null;
+        try {
+            Files.createDirectories(dir);
+            String name = String.format("job-%d-%06d.txt", System.currentTimeMillis(), sequence.incrementAndGet());
+            Path tmp = dir.resolve(name + ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                while (receiptText.hasRemaining()) ch.write(receiptText);
+            }
+            return job = Files.move(tmp, dir.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            event.complete(null, bytes, job);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.arthur.marchetti.repo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// One compressed file per day of receipts. Every receipt is deflated on its own (with a preset dictionary of
+// the text all receipts share, which is what makes small records compress well), and an index at the end of the
+// file maps each key to its block, so reprinting one receipt inflates only that receipt.
+//
+// Layout: "RCA2", byte dictionary, deflate blocks..., index entries (short keyLength, key, long createdAtMillis,
+// long offset, int compressedLength, int rawLength, int crc32c of the raw text), then long indexOffset, int count,
+// "RCA2". Files from before the dictionary was versioned start and end with "RCA1", have no dictionary byte and
+// use dictionary 1; appending to one rewrites it as RCA2 with the current dictionary.
+public final class ReceiptArchive {
+    public record Entry(String key, Instant createdAt, String text) {}
+
+    private record Block(String key, long createdAtMillis, long offset, int compressedLength, int rawLength, int crc) {}
+
+    private static final int MAGIC_V1 = 0x52434131; // "RCA1"
+    private static final int MAGIC = 0x52434132; // "RCA2"
+    private static final int TRAILER_BYTES = 16;
+
+    // Preset dictionaries by the number stored in the file. Blocks cannot be inflated without the exact bytes
+    // they were deflated with, so a dictionary never changes once files have been written with it: add a new
+    // one and point CURRENT_DICTIONARY at it instead.
+    private static final byte[][] DICTIONARIES = {
+            null,
+            // 1: RCA1 files; frozen, menu items and prices included
+            ("Cafe Receipt\nOrder: Date: Customer: Thank you!\n" +
+             " x Coffee @ 3.00 =  x Tea @ 2.50 =  x Croissant @ 4.25 =  sandwich @ " +
+             "Subtotal: Tax: Total: \n" +
+             "Item                 Qty   Price   Total\n" +
+             "------------------------------------------\n" +
+             "----------------------------------------\n" +
+             "Subtotal:                       \nTax:                            \nTotal:                          ")
+                    .getBytes(StandardCharsets.UTF_8),
+            // 2: only the receipt layout, so it stays useful whatever the menu holds; later strings are cheaper
+            // to reference, so the most common ones go last
+            ("Thank you!\n    Date: Customer: \n x  @  = .00 = .50 = .00\nSubtotal: Tax: Total: \n" +
+             "------------------------------------------\n" +
+             "----------------------------------------\n" +
+             "Subtotal:                       \nTax:                            \nTotal:                          \n" +
+             "    0.00    0.00\n                   \n" +
+             "Cafe Receipt\nOrder: \nItem                 Qty   Price   Total\n")
+                    .getBytes(StandardCharsets.UTF_8),
+    };
+    private static final int CURRENT_DICTIONARY = 2;
+
+    private final Path file;
+    private final int dictionary;
+    private final Map<String, Block> index;
+
+    private ReceiptArchive(Path file, int dictionary, Map<String, Block> index) {
+        this.file = file;
+        this.dictionary = dictionary;
+        this.index = index;
+    }
+
+    public static Path fileFor(Path dir, LocalDate day) {
+        return dir.resolve("receipts-" + day + ".rca");
+    }
+
+    public static ReceiptArchive open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < 4 + TRAILER_BYTES) throw new IOException(file + " is not a receipt archive");
+            ByteBuffer trailer = read(ch, size - TRAILER_BYTES, TRAILER_BYTES);
+            long indexOffset = trailer.getLong();
+            int count = trailer.getInt();
+            int magic = trailer.getInt();
+            int header = magic == MAGIC ? 5 : 4;
+            if ((magic != MAGIC && magic != MAGIC_V1) || indexOffset < header || indexOffset > size - TRAILER_BYTES
+                    || count < 0) {
+                throw new IOException(file + " is not a receipt archive");
+            }
+            int dictionary = magic == MAGIC ? read(ch, 4, 1).get() & 0xFF : 1;
+            if (dictionary == 0 || dictionary >= DICTIONARIES.length) {
+                throw new IOException(file + " uses unknown dictionary " + dictionary);
+            }
+            ByteBuffer buf = read(ch, indexOffset, (int) (size - TRAILER_BYTES - indexOffset));
+            var index = new LinkedHashMap<String, Block>(count * 2);
+            for (int i = 0; i < count; i++) {
+                byte[] key = new byte[buf.getShort() & 0xFFFF];
+                buf.get(key);
+                var b = new Block(new String(key, StandardCharsets.UTF_8), buf.getLong(), buf.getLong(),
+                        buf.getInt(), buf.getInt(), buf.getInt());
+                index.put(b.key(), b);
+            }
+            return new ReceiptArchive(file, dictionary, Collections.unmodifiableMap(index));
+        }
+    }
+
+    public Path file() { return file; }
+
+    public int size() { return index.size(); }
+
+    public Set<String> keys() { return index.keySet(); }
+
+    public boolean contains(String key) { return index.containsKey(key); }
+
+    public Optional<Entry> read(String key) throws IOException {
+        Block b = index.get(key);
+        if (b == null) return Optional.empty();
+        byte[] raw;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            raw = readBlock(ch, b);
+        }
+        return Optional.of(new Entry(key, Instant.ofEpochMilli(b.createdAtMillis()), new String(raw, StandardCharsets.UTF_8)));
+    }
+
+    private byte[] readBlock(FileChannel ch, Block b) throws IOException {
+        byte[] raw = inflate(read(ch, b.offset(), b.compressedLength()).array(), b.rawLength(), DICTIONARIES[dictionary]);
+        var crc = new CRC32C();
+        crc.update(raw);
+        if ((int) crc.getValue() != b.crc()) throw new IOException("corrupt receipt " + b.key() + " in " + file);
+        return raw;
+    }
+
+    // Adds entries to the archive, creating it if needed; keys already archived are skipped, so re-running a
+    // compaction that was interrupted before its source was cleaned up is harmless. Existing blocks are copied
+    // without recompressing, unless they use an older dictionary. The new file is written beside the old one and
+    // renamed over it once it is on disk.
+    // Returns the number of entries added.
+    public static int append(Path file, List<Entry> entries) throws IOException {
+        ReceiptArchive existing = Files.exists(file) ? open(file) : null;
+        var seen = new HashSet<String>();
+        if (existing != null) seen.addAll(existing.keys());
+        var fresh = new ArrayList<Entry>();
+        for (Entry e : entries) if (seen.add(e.key())) fresh.add(e);
+        if (fresh.isEmpty()) return 0;
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        var blocks = new ArrayList<Block>();
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            long pos = write(out, ByteBuffer.allocate(5).putInt(MAGIC).put((byte) CURRENT_DICTIONARY).flip(), 0);
+            var deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+            try {
+                if (existing != null) {
+                    try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                        for (Block b : existing.index.values()) {
+                            ByteBuffer data = existing.dictionary == CURRENT_DICTIONARY
+                                    ? read(in, b.offset(), b.compressedLength())
+                                    : ByteBuffer.wrap(deflate(deflater, existing.readBlock(in, b)));
+                            blocks.add(new Block(b.key(), b.createdAtMillis(), pos, data.remaining(), b.rawLength(), b.crc()));
+                            pos = write(out, data, pos);
+                        }
+                    }
+                }
+                for (Entry e : fresh) {
+                    byte[] raw = e.text().getBytes(StandardCharsets.UTF_8);
+                    byte[] compressed = deflate(deflater, raw);
+                    var crc = new CRC32C();
+                    crc.update(raw);
+                    blocks.add(new Block(e.key(), e.createdAt().toEpochMilli(), pos, compressed.length, raw.length,
+                            (int) crc.getValue()));
+                    pos = write(out, ByteBuffer.wrap(compressed), pos);
+                }
+            } finally {
+                deflater.end();
+            }
+            long indexOffset = pos;
+            for (Block b : blocks) {
+                byte[] key = b.key().getBytes(StandardCharsets.UTF_8);
+                if (key.length > 0xFFFF) throw new IllegalArgumentException("key too long");
+                var buf = ByteBuffer.allocate(2 + key.length + 28);
+                buf.putShort((short) key.length).put(key).putLong(b.createdAtMillis()).putLong(b.offset())
+                        .putInt(b.compressedLength()).putInt(b.rawLength()).putInt(b.crc()).flip();
+                pos = write(out, buf, pos);
+            }
+            var trailer = ByteBuffer.allocate(TRAILER_BYTES).putLong(indexOffset).putInt(blocks.size()).putInt(MAGIC).flip();
+            write(out, trailer, pos);
+            out.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return fresh.size();
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setDictionary(DICTIONARIES[CURRENT_DICTIONARY]);
+        deflater.setInput(raw);
+        deflater.finish();
+        byte[] out = new byte[raw.length + 64];
+        int n = 0;
+        while (!deflater.finished()) {
+            if (n == out.length) out = Arrays.copyOf(out, out.length * 2);
+            n += deflater.deflate(out, n, out.length - n);
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLength, byte[] dictionary) throws IOException {
+        var inflater = new Inflater(true);
+        try {
+            inflater.setDictionary(dictionary);
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int n = 0;
+            while (n < rawLength) {
+                int r = inflater.inflate(raw, n, rawLength - n);
+                if (r == 0 && (inflater.finished() || inflater.needsInput())) break;
+                n += r;
+            }
+            if (n != rawLength) throw new IOException("truncated receipt block");
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt receipt block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static ByteBuffer read(FileChannel ch, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, position + buf.position()) < 0) throw new IOException("unexpected end of archive");
+        }
+        return buf.flip();
+    }
+
+    private static long write(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) position += ch.write(buf, position);
+        return position;
+    }
+}
@@ -0,0 +1,476 @@
+package com.arthur.marchetti.repo;
+
+import com.arthur.marchetti.interfaces.TaxCalculator.ReceiptRepository;
+import com.arthur.marchetti.metrics.ReceiptPersistedEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Append-only receipt storage: records go to the end of the active segment file and a new segment starts once
+// it passes segmentBytes, so a year of receipts is a few hundred files instead of one file per receipt.
+//
+// Record layout (big-endian): int payloadLength, int crc32c(id..payload), long id, long createdAtMillis,
+// payload = receipt lines joined with '\n' in UTF-8. Segment files are named after their first id.
+// Each segment keeps an in-memory offset per record; a sealed segment also gets a <base>.idx file so reopening
+// doesn't have to rescan it. The active segment is rescanned on open and a torn tail is cut off.
+//
+// Durability: with syncIntervalMillis == 0, save/append return once the record is fsynced. Concurrent callers
+// share one fsync (group commit). With syncIntervalMillis > 0 they return right after the write and a background
+// thread fsyncs on that interval, so a crash can lose at most that window.
+public class SegmentedReceiptLog implements ReceiptRepository, AutoCloseable {
+    private static final System.Logger LOG = System.getLogger(SegmentedReceiptLog.class.getName());
+
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    static final int HEADER_BYTES = 24;
+    static final int MAX_PAYLOAD_BYTES = 16 * 1024 * 1024;
+
+    public record Entry(long id, Instant createdAt, List<String> lines) {}
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Object syncLock = new Object();
+    private final ScheduledExecutorService syncer;
+    private Segment active;
+    private long nextId;
+    private long appended;           // records written, guarded by this
+    private volatile long durable;   // records known to be on disk
+    private boolean closed;
+    // reused by every append, guarded by this: the record header and the header/payload pair for gathering writes
+    private final ByteBuffer header = ByteBuffer.allocateDirect(HEADER_BYTES);
+    private final ByteBuffer[] record = {header, null};
+    private final CRC32C crc = new CRC32C();
+
+    public SegmentedReceiptLog(Path dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_BYTES, 0);
+    }
+
+    public SegmentedReceiptLog(Path dir, long segmentBytes, long syncIntervalMillis) throws IOException {
+        if (dir == null) throw new IllegalArgumentException("dir required");
+        if (segmentBytes < HEADER_BYTES) throw new IllegalArgumentException("segmentBytes too small");
+        // record offsets are ints, in memory and in the index files
+        if (segmentBytes > Integer.MAX_VALUE) throw new IllegalArgumentException("segmentBytes must be at most " + Integer.MAX_VALUE);
+        if (syncIntervalMillis < 0) throw new IllegalArgumentException("syncIntervalMillis must be non negative");
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(dir);
+        recover();
+        if (syncIntervalMillis > 0) {
+            syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "receipt-log-sync");
+                t.setDaemon(true);
+                return t;
+            });
+            syncer.scheduleWithFixedDelay(this::backgroundSync, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
+    }
+
+    // returns the segment file the receipt was appended to
+    @Override
+    public Path save(List<String> lines) throws IOException {
+        return segments.floorEntry(append(lines)).getValue().file;
+    }
+
+    @Override
+    public Path save(ByteBuffer receiptText) throws IOException {
+        return segments.floorEntry(append(receiptText)).getValue().file;
+    }
+
+    public long append(List<String> lines) throws IOException {
+        if (lines == null || lines.isEmpty()) throw new IllegalArgumentException("lines required");
+        return appendPayload(ByteBuffer.wrap(String.join("\n", lines).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // UTF-8 text with '\n' between lines (see ReceiptRenderer), handed to the channel as is without decoding it or
+    // copying it into a new array. A trailing newline is not stored: the record reads back like one appended as a
+    // list of lines.
+    // The buffer is consumed up to its limit.
+    public long append(ByteBuffer text) throws IOException {
+        if (text == null) throw new IllegalArgumentException("text required");
+        int end = text.limit();
+        if (end > text.position() && text.get(end - 1) == '\n') text.limit(end - 1);
+        try {
+            if (!text.hasRemaining()) throw new IllegalArgumentException("text required");
+            return appendPayload(text);
+        } finally {
+            text.limit(end).position(end);
+        }
+    }
+
+    // the event covers waiting for the fsync too, so a slow disk shows up on the receipt that waited for it
+    private long appendPayload(ByteBuffer payload) throws IOException {
+        var event = new ReceiptPersistedEvent("log");
+        int length = payload.remaining();
+        long id = -1;
+        try {
+            return id = appendRecord(payload);
+        } finally {
+            if (event.isEnabled()) event.complete(null, length, id < 0 ? null : "log:" + id);
+        }
+    }
+
+    private long appendRecord(ByteBuffer payload) throws IOException {
+        int length = payload.remaining();
+        if (length > MAX_PAYLOAD_BYTES) throw new IllegalArgumentException("receipt too large");
+        long id;
+        long sequence;
+        synchronized (this) {
+            if (closed) throw new IllegalStateException("log is closed");
+            if (active.size > 0 && active.size + HEADER_BYTES + length > segmentBytes) roll();
+            id = nextId;
+            long offset = active.size;
+            int start = payload.position();
+            header.clear();
+            header.putInt(length).putInt(0).putLong(id).putLong(System.currentTimeMillis());
+            crc.reset();
+            crc.update(header.flip().position(8));
+            crc.update(payload);
+            payload.position(start);
+            header.putInt(4, (int) crc.getValue()).position(0);
+            record[1] = payload;
+            try {
+                // one gathering write per record; the channel position is only used here, under this lock
+                active.channel.position(offset);
+                while (payload.hasRemaining()) active.channel.write(record);
+            } catch (ClosedChannelException e) {
+                // an interrupted writer closes the channel for everyone; reopen it so the log stays usable.
+                // The partial record sits past active.size and is overwritten by the next append.
+                active.channel = FileChannel.open(active.file, StandardOpenOption.WRITE, StandardOpenOption.READ);
+                throw e;
+            } finally {
+                record[1] = null;
+            }
+            active.size = offset + HEADER_BYTES + length;
+            active.add(offset);
+            nextId++;
+            sequence = ++appended;
+        }
+        if (syncer == null) awaitDurable(sequence);
+        return id;
+    }
+
+    public Optional<Entry> read(long id) throws IOException {
+        Map.Entry<Long, Segment> e = segments.floorEntry(id);
+        if (e == null) return Optional.empty();
+        Segment s = e.getValue();
+        int index = (int) (id - s.baseId);
+        if (index >= s.count) return Optional.empty();
+        long offset = s.offsets[index];
+        try (FileChannel ch = FileChannel.open(s.file, StandardOpenOption.READ)) {
+            Entry entry = readAt(ch, offset, ch.size());
+            if (entry == null || entry.id() != id) throw new IOException("corrupt record " + id + " in " + s.file);
+            return Optional.of(entry);
+        }
+    }
+
+    public synchronized long lastId() {
+        return nextId - 1;
+    }
+
+    // segments that are no longer written to, oldest first
+    public synchronized List<Path> sealedSegments() {
+        var sealed = new ArrayList<Path>();
+        for (Segment s : segments.values()) if (s != active) sealed.add(s.file);
+        return sealed;
+    }
+
+    // how many records the log's index holds for a segment; a scan that reads fewer hit damage
+    public synchronized int recordCount(Path segment) {
+        Segment s = segments.get(baseId(segment));
+        if (s == null || !s.file.equals(segment)) throw new IllegalArgumentException("unknown segment " + segment);
+        return s.count;
+    }
+
+    // Deletes a sealed segment once its receipts have been archived elsewhere (see ReceiptCompactor).
+    // Ids in it read as missing afterwards; ids are never reused because the active segment is kept.
+    public void dropSealedSegment(Path segment) throws IOException {
+        Segment s;
+        synchronized (this) {
+            s = segments.get(baseId(segment));
+            if (s == null || !s.file.equals(segment)) throw new IllegalArgumentException("unknown segment " + segment);
+            if (s == active) throw new IllegalStateException("cannot drop the active segment");
+            segments.remove(s.baseId);
+        }
+        Files.deleteIfExists(indexFile(s.file));
+        Files.deleteIfExists(s.file);
+    }
+
+    // Reads every intact record of a segment file in order; stops at the first torn or corrupt record.
+    // Returns where the last record read ends, which is short of the file size if it stopped early.
+    public static long scan(Path segment, Consumer<Entry> consumer) throws IOException {
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long size = ch.size();
+            var header = ByteBuffer.allocate(HEADER_BYTES);
+            long offset = 0;
+            Entry e;
+            while ((e = readAt(ch, offset, size, header)) != null) {
+                consumer.accept(e);
+                offset += HEADER_BYTES + header.getInt(0);
+            }
+            return offset;
+        }
+    }
+
+    // makes everything appended so far durable
+    public void sync() throws IOException {
+        long target;
+        synchronized (this) {
+            target = appended;
+        }
+        awaitDurable(target);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (syncer != null) {
+            // no shutdownNow: interrupting a thread inside force() would close the channel under us
+            syncer.shutdown();
+            try {
+                syncer.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+                try {
+                    active.channel.force(false);
+                    durable = appended;
+                } finally {
+                    active.channel.close();
+                }
+            }
+        }
+    }
+
+    // One thread fsyncs on behalf of everyone who appended before it started; the others wait on syncLock and
+    // usually find their record already covered when they get it.
+    private void awaitDurable(long sequence) throws IOException {
+        if (durable >= sequence) return;
+        synchronized (syncLock) {
+            if (durable >= sequence) return;
+            long target;
+            FileChannel ch;
+            synchronized (this) {
+                target = appended;
+                ch = active.channel;
+            }
+            try {
+                ch.force(false);
+            } catch (ClosedChannelException e) {
+                // Either roll() sealed the segment, and forced it before closing, or an interrupted writer closed
+                // the channel and append reopened it. Forcing whatever is active now covers both cases.
+                synchronized (this) {
+                    ch = active.channel;
+                }
+                ch.force(false);
+            }
+            durable = target;
+        }
+    }
+
+    private void backgroundSync() {
+        try {
+            sync();
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.ERROR, "receipt log sync failed", e);
+        }
+    }
+
+    // called with the write lock held
+    private void roll() throws IOException {
+        Segment sealed = active;
+        sealed.channel.force(false);
+        sealed.channel.close();
+        writeIndex(sealed);
+        active = openSegment(nextId);
+        segments.put(active.baseId, active);
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+        Segment last = null;
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            boolean isLast = i == files.size() - 1;
+            long base = baseId(file);
+            Segment s = new Segment(base, file);
+            if (!isLast && loadIndex(s)) {
+                segments.put(base, s);
+                last = s;
+                continue;
+            }
+            long end = rebuildIndex(s);
+            if (end < s.size) {
+                if (isLast) {
+                    LOG.log(System.Logger.Level.WARNING, "truncating torn tail of " + file + " at " + end);
+                    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                        ch.truncate(end);
+                        ch.force(false);
+                    }
+                    s.size = end;
+                } else {
+                    LOG.log(System.Logger.Level.WARNING, "sealed segment " + file + " is damaged after offset " + end);
+                }
+            }
+            if (!isLast) writeIndex(s);
+            segments.put(base, s);
+            last = s;
+        }
+        if (last == null) {
+            nextId = 1;
+            active = openSegment(1);
+            segments.put(1L, active);
+        } else {
+            nextId = last.baseId + last.count;
+            last.channel = FileChannel.open(last.file, StandardOpenOption.WRITE, StandardOpenOption.READ);
+            active = last;
+        }
+    }
+
+    private Segment openSegment(long baseId) throws IOException {
+        var s = new Segment(baseId, dir.resolve(String.format("%020d.log", baseId)));
+        s.channel = FileChannel.open(s.file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        return s;
+    }
+
+    // scans the segment, fills its offsets and returns where the last intact record ends
+    private static long rebuildIndex(Segment s) throws IOException {
+        try (FileChannel ch = FileChannel.open(s.file, StandardOpenOption.READ)) {
+            s.size = ch.size();
+            var header = ByteBuffer.allocate(HEADER_BYTES);
+            long offset = 0;
+            while (true) {
+                Entry e = readAt(ch, offset, s.size, header);
+                if (e == null || e.id() != s.baseId + s.count) return offset;
+                s.add(offset);
+                offset += HEADER_BYTES + header.getInt(0);
+            }
+        }
+    }
+
+    // <base>.idx holds the record count followed by each record's offset; written next to the segment and
+    // renamed into place so a crash never leaves a partial index behind
+    private static void writeIndex(Segment s) throws IOException {
+        Path idx = indexFile(s.file);
+        Path tmp = idx.resolveSibling(idx.getFileName() + ".tmp");
+        var buf = ByteBuffer.allocate(12 + s.count * 4);
+        buf.putInt(s.count).putLong(s.size);
+        for (int i = 0; i < s.count; i++) buf.putInt(s.offsets[i]);
+        buf.flip();
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(false);
+        }
+        Files.move(tmp, idx, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static boolean loadIndex(Segment s) throws IOException {
+        Path idx = indexFile(s.file);
+        if (!Files.exists(idx)) return false;
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(idx));
+        if (buf.remaining() < 12) return false;
+        int count = buf.getInt();
+        long size = buf.getLong();
+        if (buf.remaining() != count * 4L || size != Files.size(s.file)) return false;
+        s.offsets = new int[Math.max(count, 16)];
+        for (int i = 0; i < count; i++) s.offsets[i] = buf.getInt();
+        s.count = count;
+        s.size = size;
+        return true;
+    }
+
+    static Path indexFile(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.length() - ".log".length()) + ".idx");
+    }
+
+    static long baseId(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - ".log".length()));
+    }
+
+    private static Entry readAt(FileChannel ch, long offset, long size) throws IOException {
+        return readAt(ch, offset, size, ByteBuffer.allocate(HEADER_BYTES));
+    }
+
+    // null if there is no complete, checksum-valid record at offset; header keeps the record's header bytes
+    private static Entry readAt(FileChannel ch, long offset, long size, ByteBuffer header) throws IOException {
+        if (offset + HEADER_BYTES > size) return null;
+        header.clear();
+        readFully(ch, header, offset);
+        header.flip();
+        int length = header.getInt();
+        int crc = header.getInt();
+        long id = header.getLong();
+        long createdAt = header.getLong();
+        if (length < 0 || length > MAX_PAYLOAD_BYTES || offset + HEADER_BYTES + length > size) return null;
+        var payload = ByteBuffer.allocate(length);
+        readFully(ch, payload, offset + HEADER_BYTES);
+        var check = new CRC32C();
+        check.update(header.array(), 8, 16);
+        check.update(payload.array(), 0, length);
+        if ((int) check.getValue() != crc) return null;
+        String text = new String(payload.array(), StandardCharsets.UTF_8);
+        return new Entry(id, Instant.ofEpochMilli(createdAt), List.of(text.split("\n", -1)));
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, position + buf.position());
+            if (n < 0) throw new IOException("unexpected end of segment");
+        }
+    }
+
+    // Offsets are published to readers through the volatile count: an offset is stored before count moves past
+    // it, and a grown array is published before the count that needs it.
+    private static final class Segment {
+        final long baseId;
+        final Path file;
+        FileChannel channel; // only for the active segment
+        long size;
+        volatile int[] offsets = new int[1024];
+        volatile int count;
+
+        Segment(long baseId, Path file) {
+            this.baseId = baseId;
+            this.file = file;
+        }
+
+        void add(long offset) {
+            if (offset > Integer.MAX_VALUE) throw new IllegalStateException("segment too large");
+            int[] o = offsets;
+            if (count == o.length) offsets = o = Arrays.copyOf(o, o.length * 2);
+            o[count] = (int) offset;
+            count = count + 1;
+        }
+    }
+}
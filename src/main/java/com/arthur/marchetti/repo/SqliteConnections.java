@@ -0,0 +1,25 @@
+package com.arthur.marchetti.repo;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+final class SqliteConnections {
+    private SqliteConnections() {}
+
+    static Connection openWal(String jdbcUrl, SqliteReceiptRepository.Synchronous synchronous) throws SQLException {
+        if (synchronous == null) throw new IllegalArgumentException("synchronous required");
+        Connection c = DriverManager.getConnection(jdbcUrl);
+        try (Statement st = c.createStatement()) {
+            st.execute("PRAGMA journal_mode=WAL");
+            st.execute("PRAGMA synchronous=" + synchronous.name());
+            st.execute("PRAGMA busy_timeout=5000");
+            st.execute("PRAGMA foreign_keys=ON");
+            return c;
+        } catch (SQLException e) {
+            c.close();
+            throw e;
+        }
+    }
+}
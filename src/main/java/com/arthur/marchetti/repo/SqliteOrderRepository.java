@@ -0,0 +1,274 @@
+package com.arthur.marchetti.repo;
+
+import com.arthur.marchetti.interfaces.TaxCalculator.OrderRepository;
+import com.arthur.marchetti.interfaces.TaxCalculator.TaxCalculator;
+import com.arthur.marchetti.model.CartItem;
+import com.arthur.marchetti.model.Money;
+import com.arthur.marchetti.model.Order;
+import com.arthur.marchetti.model.SalesTotal;
+import com.arthur.marchetti.model.TaxBatch;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Normalized order storage: money as integer cents, one row per line referencing the item SKU.
+public class SqliteOrderRepository implements OrderRepository, AutoCloseable {
+    private static final String UPSERT_ITEM_SQL =
+            "INSERT INTO items(sku, name, category, price_cents) VALUES(?,?,?,?) " +
+            "ON CONFLICT(sku) DO UPDATE SET name = excluded.name, category = excluded.category, " +
+            "price_cents = excluded.price_cents";
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders(order_ref, customer_name, created_at, subtotal_cents, tax_cents, total_cents) " +
+            "VALUES(?,?,?,?,?,?)";
+    private static final String INSERT_LINE_SQL =
+            "INSERT INTO order_lines(order_id, line_no, sku, category, quantity, unit_price_cents, line_total_cents) " +
+            "VALUES(?,?,?,?,?,?,?)";
+
+    private final Connection conn;
+    private final PreparedStatement upsertItem;
+    private final PreparedStatement insertOrder;
+    private final PreparedStatement insertLine;
+    private final SqliteSalesRollup rollup;
+    // last catalog row written per SKU, so unchanged items are not rewritten on every order
+    private final Map<String, String> knownItems = new HashMap<>();
+    private boolean closed;
+
+    private SqliteOrderRepository(Connection conn, ZoneId zone) throws SQLException {
+        this.conn = conn;
+        ensureSchema(conn);
+        this.upsertItem = conn.prepareStatement(UPSERT_ITEM_SQL);
+        this.insertOrder = conn.prepareStatement(INSERT_ORDER_SQL, Statement.RETURN_GENERATED_KEYS);
+        this.insertLine = conn.prepareStatement(INSERT_LINE_SQL);
+        this.rollup = new SqliteSalesRollup(conn, zone);
+    }
+
+    public static SqliteOrderRepository open(Path dbFile, SqliteReceiptRepository.Synchronous synchronous) throws SQLException {
+        return open("jdbc:sqlite:" + dbFile.toAbsolutePath(), synchronous);
+    }
+
+    public static SqliteOrderRepository open(String jdbcUrl, SqliteReceiptRepository.Synchronous synchronous) throws SQLException {
+        return open(jdbcUrl, synchronous, ZoneId.systemDefault());
+    }
+
+    // zone decides where the hourly and daily sales buckets start
+    public static SqliteOrderRepository open(String jdbcUrl, SqliteReceiptRepository.Synchronous synchronous,
+                                             ZoneId zone) throws SQLException {
+        Connection c = SqliteConnections.openWal(jdbcUrl, synchronous);
+        try {
+            return new SqliteOrderRepository(c, zone);
+        } catch (SQLException e) {
+            c.close();
+            throw e;
+        }
+    }
+
+    static void ensureSchema(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS items (" +
+                    "sku TEXT PRIMARY KEY, " +
+                    "name TEXT NOT NULL, " +
+                    "category TEXT, " +
+                    "price_cents INTEGER NOT NULL)");
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS orders (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "order_ref TEXT NOT NULL, " +
+                    "customer_name TEXT NOT NULL, " +
+                    "created_at INTEGER NOT NULL, " +
+                    "subtotal_cents INTEGER NOT NULL, tax_cents INTEGER NOT NULL, total_cents INTEGER NOT NULL)");
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS orders_created_at_idx ON orders(created_at)");
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS orders_order_ref_idx ON orders(order_ref)");
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS order_lines (" +
+                    "order_id INTEGER NOT NULL REFERENCES orders(id) ON DELETE CASCADE, " +
+                    "line_no INTEGER NOT NULL, " +
+                    "sku TEXT NOT NULL REFERENCES items(sku), " +
+                    "category TEXT, " +
+                    "quantity INTEGER NOT NULL CHECK (quantity > 0), " +
+                    "unit_price_cents INTEGER NOT NULL, " +
+                    "line_total_cents INTEGER NOT NULL, " +
+                    "PRIMARY KEY (order_id, line_no)) WITHOUT ROWID");
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS order_lines_sku_idx ON order_lines(sku)");
+            // Lines written before they kept the category the item had when it was sold lack the column. The
+            // item's current category is the best there is for those, filled in with the column in one step.
+            boolean hasCategory = false;
+            try (ResultSet rs = st.executeQuery("PRAGMA table_info(order_lines)")) {
+                while (rs.next()) hasCategory |= "category".equals(rs.getString("name"));
+            }
+            if (!hasCategory) {
+                c.setAutoCommit(false);
+                try {
+                    st.executeUpdate("ALTER TABLE order_lines ADD COLUMN category TEXT");
+                    st.executeUpdate("UPDATE order_lines SET category = (SELECT category FROM items WHERE items.sku = order_lines.sku)");
+                    c.commit();
+                } catch (SQLException e) {
+                    c.rollback();
+                    throw e;
+                } finally {
+                    c.setAutoCommit(true);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized long save(Order order) throws Exception {
+        if (order == null) throw new IllegalArgumentException("order required");
+        if (closed) throw new IllegalStateException("repository is closed");
+        conn.setAutoCommit(false);
+        try {
+            for (CartItem li : order.lines()) upsertItem(li);
+
+            insertOrder.setString(1, order.orderId());
+            insertOrder.setString(2, order.customerName());
+            insertOrder.setLong(3, order.timestamp().toEpochMilli());
+            insertOrder.setLong(4, toCents(order.subtotal()));
+            insertOrder.setLong(5, toCents(order.tax()));
+            insertOrder.setLong(6, toCents(order.total()));
+            insertOrder.executeUpdate();
+            long orderId;
+            try (ResultSet rs = insertOrder.getGeneratedKeys()) {
+                if (!rs.next()) throw new IllegalStateException("insert failed");
+                orderId = rs.getLong(1);
+            }
+
+            int lineNo = 0;
+            for (CartItem li : order.lines()) {
+                var item = li.getItem();
+                long lineCents = li.lineTotalCents();
+                String category = item.getCategory() == null ? null : item.getCategory().name();
+                insertLine.setLong(1, orderId);
+                insertLine.setInt(2, ++lineNo);
+                insertLine.setString(3, item.getSku());
+                insertLine.setString(4, category);
+                insertLine.setInt(5, li.getQuantity());
+                insertLine.setLong(6, item.getPriceCents());
+                insertLine.setLong(7, lineCents);
+                insertLine.addBatch();
+                rollup.add(item.getSku(), category, li.getQuantity(), lineCents);
+            }
+            insertLine.executeBatch();
+            rollup.apply(order.timestamp().toEpochMilli());
+            conn.commit();
+            return orderId;
+        } catch (Exception e) {
+            rollup.reset();
+            conn.rollback();
+            // the rolled back transaction may have carried item rows we remembered as written
+            knownItems.clear();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private void upsertItem(CartItem li) throws SQLException {
+        var item = li.getItem();
+        String category = item.getCategory() == null ? null : item.getCategory().name();
+        long priceCents = item.getPriceCents();
+        String row = item.getName() + '\u0000' + category + '\u0000' + priceCents;
+        if (row.equals(knownItems.get(item.getSku()))) return;
+
+        upsertItem.setString(1, item.getSku());
+        upsertItem.setString(2, item.getName());
+        upsertItem.setString(3, category);
+        upsertItem.setLong(4, priceCents);
+        upsertItem.executeUpdate();
+        knownItems.put(item.getSku(), row);
+    }
+
+    public synchronized List<SalesTotal> salesByItem(SqliteSalesRollup.Granularity granularity,
+                                                     Instant from, Instant to) throws SQLException {
+        if (closed) throw new IllegalStateException("repository is closed");
+        return SqliteSalesRollup.query(conn, "sales_by_item", "sku", granularity, from, to);
+    }
+
+    public synchronized List<SalesTotal> salesByCategory(SqliteSalesRollup.Granularity granularity,
+                                                         Instant from, Instant to) throws SQLException {
+        if (closed) throw new IllegalStateException("repository is closed");
+        return SqliteSalesRollup.query(conn, "sales_by_category", "category", granularity, from, to);
+    }
+
+    // End-of-day recompute after a rate change: taxes every order created in [from, to) again from its stored
+    // subtotal and rewrites tax and total where they changed, in one transaction. Returns the number of orders
+    // changed. Only calculators that tax the amount work here; per-line rules would need the lines reloaded.
+    public synchronized int retax(TaxCalculator calculator, Instant from, Instant to) throws SQLException {
+        if (calculator == null) throw new IllegalArgumentException("calculator required");
+        if (calculator.taxesByLine()) throw new IllegalArgumentException("per-line tax rules cannot re-tax from subtotals");
+        if (from == null || to == null || !from.isBefore(to)) throw new IllegalArgumentException("from must be before to");
+        if (closed) throw new IllegalStateException("repository is closed");
+
+        long[] ids = new long[1024];
+        long[] subtotals = new long[1024];
+        long[] taxes = new long[1024];
+        int n = 0;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT id, subtotal_cents, tax_cents FROM orders WHERE created_at >= ? AND created_at < ? ORDER BY id")) {
+            ps.setLong(1, from.toEpochMilli());
+            ps.setLong(2, to.toEpochMilli());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (n == ids.length) {
+                        ids = Arrays.copyOf(ids, n * 2);
+                        subtotals = Arrays.copyOf(subtotals, n * 2);
+                        taxes = Arrays.copyOf(taxes, n * 2);
+                    }
+                    ids[n] = rs.getLong(1);
+                    subtotals[n] = rs.getLong(2);
+                    taxes[n] = rs.getLong(3);
+                    n++;
+                }
+            }
+        }
+        long[] retaxed = TaxBatch.parallelTaxCents(calculator, Arrays.copyOf(subtotals, n));
+
+        int changed = 0;
+        conn.setAutoCommit(false);
+        try (PreparedStatement update = conn.prepareStatement("UPDATE orders SET tax_cents = ?, total_cents = ? WHERE id = ?")) {
+            for (int i = 0; i < n; i++) {
+                if (retaxed[i] == taxes[i]) continue;
+                update.setLong(1, retaxed[i]);
+                update.setLong(2, Math.addExact(subtotals[i], retaxed[i]));
+                update.setLong(3, ids[i]);
+                update.addBatch();
+                changed++;
+            }
+            if (changed > 0) update.executeBatch();
+            conn.commit();
+            return changed;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    static long toCents(BigDecimal amount) {
+        if (amount == null) throw new IllegalArgumentException("amount required");
+        try {
+            return Money.of(amount).cents();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("amount is not a whole number of cents: " + amount.toPlainString());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws SQLException {
+        if (closed) return;
+        closed = true;
+        try {
+            upsertItem.close();
+            insertOrder.close();
+            insertLine.close();
+            rollup.close();
+        } finally {
+            conn.close();
+        }
+    }
+}
@@ -1,55 +1,486 @@
 package com.arthur.marchetti.repo;
 
 import com.arthur.marchetti.interfaces.TaxCalculator.ReceiptDBRepository;
+import com.arthur.marchetti.interfaces.TaxCalculator.ReceiptQueryRepository;
+import com.arthur.marchetti.metrics.LatencyHistogram;
+import com.arthur.marchetti.metrics.Metrics;
+import com.arthur.marchetti.metrics.ReceiptPersistedEvent;
+import com.arthur.marchetti.model.ReceiptRecord;
+import com.arthur.marchetti.model.StoredReceipt;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class SqliteReceiptRepository implements ReceiptDBRepository {
-    private final String url; // jdbc:sqlite:/absolute/path/to/receipts.db or jdbc:sqlite::memory:
+public class SqliteReceiptRepository implements ReceiptDBRepository, ReceiptQueryRepository, AutoCloseable {
+    private static final LatencyHistogram SAVE = Metrics.global().histogram("receipt.sqlite.save");
+    private static final String INSERT_SQL =
+            "INSERT INTO receipts(created_at, customer_name, subtotal, tax, total, content) VALUES(?,?,?,?,?,?)";
+    private static final String SELECT_COLUMNS =
+            "SELECT id, created_at, customer_name, subtotal, tax, total, content, archive";
+    // totals are stored as text; this expression is indexed so range queries compare numbers, not strings
+    private static final String TOTAL_CENTS = "CAST(ROUND(total * 100) AS INTEGER)";
+    private static final int DEFAULT_PAGE_SIZE = 500;
+
+    // maps 1:1 to PRAGMA synchronous; NORMAL is durable across app crashes in WAL mode, FULL across power loss
+    public enum Synchronous { OFF, NORMAL, FULL, EXTRA }
+
+    private final String url; // jdbc:sqlite:/absolute/path/to/receipts.db, or jdbc:sqlite::memory: in long-lived mode
     private final DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    // only set in long-lived mode (see open), otherwise every save opens its own connection
+    private final Connection conn;
+    private final PreparedStatement insert;
+    // long-lived mode reads on a second connection so queries do not queue behind writes (WAL allows both)
+    private final Connection reader;
+    private final Object readLock;
+    private volatile boolean schemaReady;
+    private volatile boolean closed;
+    private volatile int pageSize = DEFAULT_PAGE_SIZE;
+    // where ReceiptCompactor moved old receipt text; archived rows keep their amounts but not their content
+    private volatile Path archiveDir;
+    private final Map<String, ReceiptArchive> archives = new ConcurrentHashMap<>();
+
     public SqliteReceiptRepository(Path dbFile){
-        this.url = "jdbc:sqlite:" + dbFile.toAbsolutePath();
+        this("jdbc:sqlite:" + dbFile.toAbsolutePath());
+    }
+    public SqliteReceiptRepository(String jdbcUrl){
+        // a connection per save would give every save its own empty database, so the schema check could not be cached
+        if (jdbcUrl.contains(":memory:")) {
+            throw new IllegalArgumentException("in-memory databases need open(), not a connection per save");
+        }
+        this.url = jdbcUrl;
+        this.conn = null;
+        this.insert = null;
+        this.reader = null;
+        this.readLock = null;
+    }
+
+    private SqliteReceiptRepository(String jdbcUrl, Connection conn) throws SQLException {
+        this.url = jdbcUrl;
+        this.conn = conn;
+        ensureSchema(conn);
+        this.insert = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+        // every connection to :memory: is its own database, so there the writer has to serve reads too
+        if (jdbcUrl.contains(":memory:")) {
+            this.reader = conn;
+            this.readLock = this;
+        } else {
+            this.reader = DriverManager.getConnection(jdbcUrl);
+            this.readLock = new Object();
+        }
+    }
+
+    public static SqliteReceiptRepository open(Path dbFile, Synchronous synchronous) throws SQLException {
+        return open("jdbc:sqlite:" + dbFile.toAbsolutePath(), synchronous);
     }
-    public SqliteReceiptRepository(String jdbcUrl){ this.url = jdbcUrl; }
+
+    // Long-lived mode: one connection in WAL mode, schema created once, insert statement reused.
+    // The caller owns the repository and must close it on shutdown.
+    public static SqliteReceiptRepository open(String jdbcUrl, Synchronous synchronous) throws SQLException {
+        Connection c = SqliteConnections.openWal(jdbcUrl, synchronous);
+        try {
+            return new SqliteReceiptRepository(jdbcUrl, c);
+        } catch (SQLException e) {
+            c.close();
+            throw e;
+        }
+    }
+
+    public boolean isPersistent() { return conn != null; }
 
     private Connection get() throws SQLException { return DriverManager.getConnection(url); }
 
     private void ensureSchema(Connection c) throws SQLException {
+        if (schemaReady) return;
         try (Statement st = c.createStatement()) {
             st.executeUpdate("CREATE TABLE IF NOT EXISTS receipts (" +
                     "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
                     "created_at TEXT NOT NULL, " +
                     "customer_name TEXT NOT NULL, " +
                     "subtotal TEXT NOT NULL, tax TEXT NOT NULL, total TEXT NOT NULL, " +
-                    "content TEXT NOT NULL)");
+                    "content TEXT NOT NULL, " +
+                    "archive TEXT)");
+            // databases created before archiving existed lack the column
+            boolean hasArchive = false;
+            try (ResultSet rs = st.executeQuery("PRAGMA table_info(receipts)")) {
+                while (rs.next()) hasArchive |= "archive".equals(rs.getString("name"));
+            }
+            if (!hasArchive) st.executeUpdate("ALTER TABLE receipts ADD COLUMN archive TEXT");
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS receipts_created_at_idx ON receipts(created_at)");
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS receipts_customer_name_idx ON receipts(customer_name)");
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS receipts_total_cents_idx ON receipts(" + TOTAL_CENTS + ")");
         }
+        schemaReady = true;
+    }
+
+    public void setPageSize(int pageSize) {
+        if (pageSize <= 0) throw new IllegalArgumentException("pageSize must be positive");
+        this.pageSize = pageSize;
+    }
+
+    public void setArchiveDirectory(Path dir) {
+        this.archiveDir = dir;
+        archives.clear();
     }
 
     @Override
     public long save(List<String> lines, String customerName, String subtotal, String tax, String total) throws Exception {
         if (lines == null || lines.isEmpty()) throw new IllegalArgumentException("lines required");
-        String content = String.join(System.lineSeparator(), lines);
-        try (Connection c = get()) {
-            ensureSchema(c);
-            String sql = "INSERT INTO receipts(created_at, customer_name, subtotal, tax, total, content) VALUES(?,?,?,?,?,?)";
-            try (PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                ps.setString(1, LocalDateTime.now().format(fmt));
-                ps.setString(2, customerName);
-                ps.setString(3, subtotal);
-                ps.setString(4, tax);
-                ps.setString(5, total);
-                ps.setString(6, content);
-                ps.executeUpdate();
-                try (ResultSet rs = ps.getGeneratedKeys()) {
-                    if (rs.next()) return rs.getLong(1);
+        return store(String.join(System.lineSeparator(), lines), customerName, subtotal, tax, total);
+    }
+
+    // Stores already rendered text (for example ReceiptService.renderTo with System.lineSeparator()) without
+    // splitting it into lines and joining them again. The driver binds text as a String, so that one copy remains.
+    public long save(CharSequence content, String customerName, String subtotal, String tax, String total) throws SQLException {
+        if (content == null || content.length() == 0) throw new IllegalArgumentException("content required");
+        return store(content.toString(), customerName, subtotal, tax, total);
+    }
+
+    // timed from before the lock, so the histogram shows saves queueing behind each other too
+    private long store(String content, String customerName, String subtotal, String tax, String total) throws SQLException {
+        long start = System.nanoTime();
+        var event = new ReceiptPersistedEvent("sqlite");
+        String row = null;
+        try {
+            long id;
+            if (conn != null) {
+                synchronized (this) {
+                    if (closed) throw new IllegalStateException("repository is closed");
+                    id = insert(insert, customerName, subtotal, tax, total, content);
+                }
+            } else {
+                try (Connection c = get()) {
+                    ensureSchema(c);
+                    try (PreparedStatement ps = c.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                        id = insert(ps, customerName, subtotal, tax, total, content);
+                    }
+                }
+            }
+            row = archiveKey(id);
+            return id;
+        } finally {
+            SAVE.recordSince(start);
+            event.complete(null, content, row);
+        }
+    }
+
+    @Override
+    public long[] saveAll(List<ReceiptRecord> receipts) throws Exception {
+        if (receipts == null) throw new IllegalArgumentException("receipts required");
+        var event = new ReceiptPersistedEvent("sqlite.batch");
+        long[] ids = null;
+        try {
+            if (conn != null) {
+                synchronized (this) {
+                    if (closed) throw new IllegalStateException("repository is closed");
+                    return ids = insertAll(conn, insert, receipts);
+                }
+            }
+            try (Connection c = get()) {
+                ensureSchema(c);
+                try (PreparedStatement ps = c.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                    return ids = insertAll(c, ps, receipts);
+                }
+            }
+        } finally {
+            if (event.isEnabled()) {
+                long bytes = 0;
+                int separator = System.lineSeparator().length();
+                for (var r : receipts) {
+                    for (String line : r.lines()) bytes += line.getBytes(StandardCharsets.UTF_8).length + separator;
+                    bytes -= separator;
                 }
+                event.complete(null, bytes, ids == null ? null
+                        : ids.length == 0 ? "no rows" : archiveKey(ids[0]) + ".." + archiveKey(ids[ids.length - 1]));
+            }
+        }
+    }
+
+    @Override
+    public boolean savesBatchAtomically() {
+        return true;
+    }
+
+    // one transaction (and so one fsync) for the whole batch
+    private long[] insertAll(Connection c, PreparedStatement ps, List<ReceiptRecord> receipts) throws SQLException {
+        long[] ids = new long[receipts.size()];
+        c.setAutoCommit(false);
+        try {
+            for (int i = 0; i < ids.length; i++) {
+                var r = receipts.get(i);
+                ids[i] = insert(ps, r.customerName(), r.subtotal(), r.tax(), r.total(),
+                        String.join(System.lineSeparator(), r.lines()));
             }
+            c.commit();
+            return ids;
+        } catch (SQLException | RuntimeException e) {
+            c.rollback();
+            throw e;
+        } finally {
+            c.setAutoCommit(true);
+        }
+    }
+
+    private long insert(PreparedStatement ps, String customerName, String subtotal, String tax, String total,
+                        String content) throws SQLException {
+        ps.setString(1, LocalDateTime.now().format(fmt));
+        ps.setString(2, customerName);
+        ps.setString(3, subtotal);
+        ps.setString(4, tax);
+        ps.setString(5, total);
+        ps.setString(6, content);
+        ps.executeUpdate();
+        try (ResultSet rs = ps.getGeneratedKeys()) {
+            if (rs.next()) return rs.getLong(1);
         }
         throw new IllegalStateException("insert failed");
     }
-}
\ No newline at end of file
+
+    @Override
+    public Optional<StoredReceipt> findById(long id) throws SQLException {
+        return read(c -> {
+            try (PreparedStatement ps = c.prepareStatement(SELECT_COLUMNS + " FROM receipts WHERE id = ?")) {
+                ps.setLong(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? Optional.of(map(rs)) : Optional.<StoredReceipt>empty();
+                }
+            }
+        });
+    }
+
+    @Override
+    public Stream<StoredReceipt> findByCreatedAt(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) throw new IllegalArgumentException("from and to required");
+        String start = from.format(fmt);
+        return stream(new KeysetCursor("created_at >= ? AND created_at < ?", new Object[]{start, to.format(fmt)},
+                "created_at", start));
+    }
+
+    @Override
+    public Stream<StoredReceipt> findByCustomer(String customerName) {
+        if (customerName == null) throw new IllegalArgumentException("customerName required");
+        return stream(new KeysetCursor("customer_name = ?", new Object[]{customerName}, null, null));
+    }
+
+    @Override
+    public Stream<StoredReceipt> findByTotal(BigDecimal min, BigDecimal max) {
+        if (min == null || max == null) throw new IllegalArgumentException("min and max required");
+        long minCents = cents(min);
+        return stream(new KeysetCursor(TOTAL_CENTS + " BETWEEN ? AND ?", new Object[]{minCents, cents(max)},
+                TOTAL_CENTS, minCents));
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, java.math.RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static Stream<StoredReceipt> stream(Iterator<StoredReceipt> cursor) {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private StoredReceipt map(ResultSet rs) throws SQLException {
+        long id = rs.getLong(1);
+        String archive = rs.getString(8);
+        return new StoredReceipt(
+                id,
+                LocalDateTime.parse(rs.getString(2), fmt),
+                rs.getString(3),
+                rs.getString(4),
+                rs.getString(5),
+                rs.getString(6),
+                archive == null ? rs.getString(7) : archivedContent(id, archive));
+    }
+
+    private String archivedContent(long id, String archiveName) {
+        Path dir = archiveDir;
+        if (dir == null) throw new IllegalStateException("receipt " + id + " is archived in " + archiveName + ", no archive directory set");
+        try {
+            ReceiptArchive archive = archives.get(archiveName);
+            if (archive == null) {
+                archive = ReceiptArchive.open(dir.resolve(archiveName));
+                archives.put(archiveName, archive);
+            }
+            return archive.read(archiveKey(id)).orElseThrow(() ->
+                    new IllegalStateException("receipt " + id + " missing from " + archiveName)).text();
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot read archived receipt " + id, e);
+        }
+    }
+
+    // key of a receipt from this database inside a ReceiptArchive
+    public static String archiveKey(long id) {
+        return "db:" + id;
+    }
+
+    // Receipts created before the given time whose text is still in the database, oldest first.
+    public List<StoredReceipt> findUnarchivedBefore(LocalDateTime before, int limit) throws SQLException {
+        if (before == null) throw new IllegalArgumentException("before required");
+        return read(c -> {
+            try (PreparedStatement ps = c.prepareStatement(SELECT_COLUMNS +
+                    " FROM receipts WHERE created_at < ? AND archive IS NULL ORDER BY created_at, id LIMIT ?")) {
+                ps.setString(1, before.format(fmt));
+                ps.setInt(2, limit);
+                var result = new ArrayList<StoredReceipt>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) result.add(map(rs));
+                }
+                return result;
+            }
+        });
+    }
+
+    // Drops the text of receipts that now live in the named archive (relative to the archive directory).
+    // The freed pages are reused by new receipts; VACUUM shrinks the file itself.
+    public void markArchived(List<Long> ids, String archiveName) throws SQLException {
+        if (ids == null || archiveName == null) throw new IllegalArgumentException("ids and archiveName required");
+        if (ids.isEmpty()) return;
+        archives.remove(archiveName); // the archive file was just rewritten with more receipts
+        String sql = "UPDATE receipts SET content = '', archive = ? WHERE id = ?";
+        if (conn != null) {
+            synchronized (this) {
+                if (closed) throw new IllegalStateException("repository is closed");
+                markArchived(conn, sql, ids, archiveName);
+            }
+            return;
+        }
+        try (Connection c = get()) {
+            ensureSchema(c);
+            markArchived(c, sql, ids, archiveName);
+        }
+    }
+
+    private static void markArchived(Connection c, String sql, List<Long> ids, String archiveName) throws SQLException {
+        c.setAutoCommit(false);
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            for (long id : ids) {
+                ps.setString(1, archiveName);
+                ps.setLong(2, id);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            c.commit();
+        } catch (SQLException | RuntimeException e) {
+            c.rollback();
+            throw e;
+        } finally {
+            c.setAutoCommit(true);
+        }
+    }
+
+    private interface SqlWork<T> {
+        T run(Connection c) throws SQLException;
+    }
+
+    private <T> T read(SqlWork<T> work) throws SQLException {
+        if (conn == null) {
+            try (Connection c = get()) {
+                ensureSchema(c);
+                return work.run(c);
+            }
+        }
+        synchronized (readLock) {
+            if (closed) throw new IllegalStateException("repository is closed");
+            return work.run(reader);
+        }
+    }
+
+    // Forward-only cursor that fetches one page per query and resumes after the last (sortKey, id) it saw,
+    // so no statement or read transaction stays open between pages.
+    private final class KeysetCursor implements Iterator<StoredReceipt> {
+        private final String sql;
+        private final Object[] params;
+        private final boolean sorted;
+        private final ArrayDeque<StoredReceipt> page = new ArrayDeque<>();
+        private Object lastKey;
+        private long lastId;
+        private boolean exhausted;
+
+        KeysetCursor(String filter, Object[] params, String sortKey, Object firstKey) {
+            this.params = params;
+            this.sorted = sortKey != null;
+            this.lastKey = firstKey;
+            this.sql = sorted
+                    ? SELECT_COLUMNS + ", " + sortKey + " FROM receipts WHERE " + filter +
+                      " AND (" + sortKey + ", id) > (?, ?) ORDER BY " + sortKey + ", id LIMIT ?"
+                    : SELECT_COLUMNS + " FROM receipts WHERE " + filter + " AND id > ? ORDER BY id LIMIT ?";
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (page.isEmpty() && !exhausted) fetch();
+            return !page.isEmpty();
+        }
+
+        @Override
+        public StoredReceipt next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return page.poll();
+        }
+
+        private void fetch() {
+            int limit = pageSize;
+            try {
+                int fetched = read(c -> {
+                    try (PreparedStatement ps = c.prepareStatement(sql)) {
+                        int i = 1;
+                        for (Object p : params) ps.setObject(i++, p);
+                        if (sorted) ps.setObject(i++, lastKey);
+                        ps.setLong(i++, lastId);
+                        ps.setInt(i, limit);
+                        int n = 0;
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                var r = map(rs);
+                                page.add(r);
+                                lastId = r.id();
+                                if (sorted) lastKey = rs.getObject(9);
+                                n++;
+                            }
+                        }
+                        return n;
+                    }
+                });
+                if (fetched < limit) exhausted = true;
+            } catch (SQLException e) {
+                throw new IllegalStateException("query failed", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (conn == null) return;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        synchronized (readLock) {
+            if (reader != conn) reader.close();
+        }
+        synchronized (this) {
+            try {
+                insert.close();
+            } finally {
+                conn.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.arthur.marchetti.repo;
+
+import com.arthur.marchetti.model.SalesTotal;
+
+import java.sql.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Hourly and daily sales per item and per category. SqliteOrderRepository folds every order into these
+// tables inside its own insert transaction, so reports read a handful of rollup rows instead of all orders.
+public class SqliteSalesRollup {
+    public enum Granularity { HOUR, DAY }
+
+    static final String UNCATEGORIZED = "UNCATEGORIZED";
+
+    private static final String UPSERT_ITEM_SQL =
+            "INSERT INTO sales_by_item(granularity, bucket_start, sku, quantity, sales_cents) VALUES(?,?,?,?,?) " +
+            "ON CONFLICT(granularity, bucket_start, sku) DO UPDATE SET " +
+            "quantity = quantity + excluded.quantity, sales_cents = sales_cents + excluded.sales_cents";
+    private static final String UPSERT_CATEGORY_SQL =
+            "INSERT INTO sales_by_category(granularity, bucket_start, category, quantity, sales_cents) VALUES(?,?,?,?,?) " +
+            "ON CONFLICT(granularity, bucket_start, category) DO UPDATE SET " +
+            "quantity = quantity + excluded.quantity, sales_cents = sales_cents + excluded.sales_cents";
+    // the category a line was sold under, as the incremental updates used it; not the item's current one
+    private static final String ORDER_LINES_SQL =
+            "SELECT o.created_at, l.sku, l.category, l.quantity, l.line_total_cents FROM orders o " +
+            "JOIN order_lines l ON l.order_id = o.id WHERE o.id BETWEEN ? AND ?";
+
+    private final Buckets buckets;
+    private final PreparedStatement upsertItem;
+    private final PreparedStatement upsertCategory;
+    // totals of the order currently being saved: key -> {quantity, cents}
+    private final Map<String, long[]> orderItems = new HashMap<>();
+    private final Map<String, long[]> orderCategories = new HashMap<>();
+
+    SqliteSalesRollup(Connection c, ZoneId zone) throws SQLException {
+        ensureSchema(c);
+        this.buckets = new Buckets(zone);
+        this.upsertItem = c.prepareStatement(UPSERT_ITEM_SQL);
+        this.upsertCategory = c.prepareStatement(UPSERT_CATEGORY_SQL);
+    }
+
+    static void ensureSchema(Connection c) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS sales_by_item (" +
+                    "granularity TEXT NOT NULL, " +
+                    "bucket_start INTEGER NOT NULL, " +
+                    "sku TEXT NOT NULL, " +
+                    "quantity INTEGER NOT NULL, " +
+                    "sales_cents INTEGER NOT NULL, " +
+                    "PRIMARY KEY (granularity, bucket_start, sku)) WITHOUT ROWID");
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS sales_by_category (" +
+                    "granularity TEXT NOT NULL, " +
+                    "bucket_start INTEGER NOT NULL, " +
+                    "category TEXT NOT NULL, " +
+                    "quantity INTEGER NOT NULL, " +
+                    "sales_cents INTEGER NOT NULL, " +
+                    "PRIMARY KEY (granularity, bucket_start, category)) WITHOUT ROWID");
+        }
+    }
+
+    void add(String sku, String category, int quantity, long salesCents) {
+        accumulate(orderItems, sku, quantity, salesCents);
+        accumulate(orderCategories, category == null ? UNCATEGORIZED : category, quantity, salesCents);
+    }
+
+    // writes the accumulated order into every bucket it belongs to; runs inside the caller's transaction
+    void apply(long createdAtMillis) throws SQLException {
+        try {
+            long hour = buckets.hour(createdAtMillis);
+            long day = buckets.day(createdAtMillis);
+            upsert(upsertItem, orderItems, Granularity.HOUR, hour);
+            upsert(upsertItem, orderItems, Granularity.DAY, day);
+            upsert(upsertCategory, orderCategories, Granularity.HOUR, hour);
+            upsert(upsertCategory, orderCategories, Granularity.DAY, day);
+        } finally {
+            reset();
+        }
+    }
+
+    void reset() {
+        orderItems.clear();
+        orderCategories.clear();
+    }
+
+    void close() throws SQLException {
+        try {
+            upsertItem.close();
+        } finally {
+            upsertCategory.close();
+        }
+    }
+
+    private static void upsert(PreparedStatement ps, Map<String, long[]> totals, Granularity g, long bucket) throws SQLException {
+        for (var e : totals.entrySet()) {
+            ps.setString(1, g.name());
+            ps.setLong(2, bucket);
+            ps.setString(3, e.getKey());
+            ps.setLong(4, e.getValue()[0]);
+            ps.setLong(5, e.getValue()[1]);
+            ps.addBatch();
+        }
+        ps.executeBatch();
+    }
+
+    private static void accumulate(Map<String, long[]> totals, String key, long quantity, long cents) {
+        long[] t = totals.computeIfAbsent(key, k -> new long[2]);
+        t[0] += quantity;
+        t[1] += cents;
+    }
+
+    static List<SalesTotal> query(Connection c, String table, String keyColumn, Granularity g,
+                                  Instant from, Instant to) throws SQLException {
+        String sql = "SELECT bucket_start, " + keyColumn + ", quantity, sales_cents FROM " + table +
+                " WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ? ORDER BY bucket_start, " + keyColumn;
+        var result = new ArrayList<SalesTotal>();
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, g.name());
+            ps.setLong(2, from.toEpochMilli());
+            ps.setLong(3, to.toEpochMilli());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.add(new SalesTotal(Instant.ofEpochMilli(rs.getLong(1)), rs.getString(2),
+                            rs.getLong(3), rs.getLong(4)));
+                }
+            }
+        }
+        return result;
+    }
+
+    // Recomputes both rollup tables from the raw orders. Order id ranges are aggregated in parallel on
+    // separate read connections while this connection holds the write lock, so no order can slip in between
+    // the scan and the swap.
+    public static void rebuild(String jdbcUrl, ZoneId zone, int chunkSize, int parallelism)
+            throws SQLException, InterruptedException {
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive");
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism must be positive");
+        try (Connection writer = SqliteConnections.openWal(jdbcUrl, SqliteReceiptRepository.Synchronous.NORMAL);
+             Statement st = writer.createStatement()) {
+            SqliteOrderRepository.ensureSchema(writer);
+            ensureSchema(writer);
+            st.execute("BEGIN IMMEDIATE");
+            try {
+                Partial totals = new Partial();
+                long min;
+                long max;
+                try (ResultSet rs = st.executeQuery("SELECT MIN(id), MAX(id) FROM orders")) {
+                    rs.next();
+                    min = rs.getLong(1);
+                    max = rs.getLong(2);
+                }
+                if (max > 0) {
+                    ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+                    try {
+                        var parts = new ArrayList<Future<Partial>>();
+                        for (long lo = min; lo <= max; lo += chunkSize) {
+                            long from = lo;
+                            long to = Math.min(max, lo + chunkSize - 1);
+                            parts.add(pool.submit(() -> scan(jdbcUrl, zone, from, to)));
+                        }
+                        for (var part : parts) totals.merge(part.get());
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof SQLException sql) throw sql;
+                        throw new IllegalStateException("rollup rebuild failed", e.getCause());
+                    } finally {
+                        pool.shutdownNow();
+                    }
+                }
+
+                st.executeUpdate("DELETE FROM sales_by_item");
+                st.executeUpdate("DELETE FROM sales_by_category");
+                try (PreparedStatement items = writer.prepareStatement(UPSERT_ITEM_SQL);
+                     PreparedStatement categories = writer.prepareStatement(UPSERT_CATEGORY_SQL)) {
+                    insertAll(items, totals.items);
+                    insertAll(categories, totals.categories);
+                }
+                st.execute("COMMIT");
+            } catch (SQLException | RuntimeException | InterruptedException e) {
+                st.execute("ROLLBACK");
+                throw e;
+            }
+        }
+    }
+
+    private record Key(Granularity granularity, long bucket, String key) {}
+
+    private static final class Partial {
+        final Map<Key, long[]> items = new HashMap<>();
+        final Map<Key, long[]> categories = new HashMap<>();
+
+        void add(Map<Key, long[]> totals, Key key, long quantity, long cents) {
+            long[] t = totals.computeIfAbsent(key, k -> new long[2]);
+            t[0] += quantity;
+            t[1] += cents;
+        }
+
+        void merge(Partial other) {
+            other.items.forEach((k, v) -> add(items, k, v[0], v[1]));
+            other.categories.forEach((k, v) -> add(categories, k, v[0], v[1]));
+        }
+    }
+
+    private static Partial scan(String jdbcUrl, ZoneId zone, long fromId, long toId) throws SQLException {
+        var partial = new Partial();
+        var buckets = new Buckets(zone);
+        try (Connection c = DriverManager.getConnection(jdbcUrl);
+             PreparedStatement ps = c.prepareStatement(ORDER_LINES_SQL)) {
+            ps.setLong(1, fromId);
+            ps.setLong(2, toId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long createdAt = rs.getLong(1);
+                    String sku = rs.getString(2);
+                    String category = rs.getString(3);
+                    if (category == null) category = UNCATEGORIZED;
+                    long quantity = rs.getLong(4);
+                    long cents = rs.getLong(5);
+                    long hour = buckets.hour(createdAt);
+                    long day = buckets.day(createdAt);
+                    partial.add(partial.items, new Key(Granularity.HOUR, hour, sku), quantity, cents);
+                    partial.add(partial.items, new Key(Granularity.DAY, day, sku), quantity, cents);
+                    partial.add(partial.categories, new Key(Granularity.HOUR, hour, category), quantity, cents);
+                    partial.add(partial.categories, new Key(Granularity.DAY, day, category), quantity, cents);
+                }
+            }
+        }
+        return partial;
+    }
+
+    private static void insertAll(PreparedStatement ps, Map<Key, long[]> totals) throws SQLException {
+        for (var e : totals.entrySet()) {
+            ps.setString(1, e.getKey().granularity().name());
+            ps.setLong(2, e.getKey().bucket());
+            ps.setString(3, e.getKey().key());
+            ps.setLong(4, e.getValue()[0]);
+            ps.setLong(5, e.getValue()[1]);
+            ps.addBatch();
+        }
+        ps.executeBatch();
+    }
+
+    // Bucket starts in the configured zone. Orders arrive roughly in time order, so the last hour and day
+    // are remembered and most lookups skip the time-zone arithmetic.
+    static final class Buckets {
+        private final ZoneId zone;
+        private long hourStart = 1, hourEnd = 0;
+        private long dayStart = 1, dayEnd = 0;
+
+        Buckets(ZoneId zone) {
+            if (zone == null) throw new IllegalArgumentException("zone required");
+            this.zone = zone;
+        }
+
+        long hour(long epochMillis) {
+            if (epochMillis < hourStart || epochMillis >= hourEnd) {
+                ZonedDateTime start = Instant.ofEpochMilli(epochMillis).atZone(zone).truncatedTo(ChronoUnit.HOURS);
+                hourStart = start.toInstant().toEpochMilli();
+                hourEnd = start.plusHours(1).toInstant().toEpochMilli();
+            }
+            return hourStart;
+        }
+
+        long day(long epochMillis) {
+            if (epochMillis < dayStart || epochMillis >= dayEnd) {
+                var date = Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalDate();
+                dayStart = date.atStartOfDay(zone).toInstant().toEpochMilli();
+                dayEnd = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            }
+            return dayStart;
+        }
+    }
+}
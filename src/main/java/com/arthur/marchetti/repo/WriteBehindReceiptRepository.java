@@ -0,0 +1,157 @@
+package com.arthur.marchetti.repo;
+
+import com.arthur.marchetti.interfaces.TaxCalculator.ReceiptDBRepository;
+import com.arthur.marchetti.model.ReceiptRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// Queues saves and lets one background writer group-commit them through delegate.saveAll:
+// a batch is flushed once it holds maxBatch receipts or maxDelayMillis after its first receipt arrived.
+// A delegate whose saveAll is not atomic gets the batch one save at a time instead, so that when part of a
+// batch fails each caller still learns whether its own receipt was written.
+public class WriteBehindReceiptRepository implements ReceiptDBRepository, AutoCloseable {
+
+    private record Pending(ReceiptRecord receipt, CompletableFuture<Long> id) {}
+
+    private static final Pending STOP = new Pending(null, null);
+
+    private final ReceiptDBRepository delegate;
+    private final boolean atomicBatches;
+    private final BlockingQueue<Pending> queue;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public WriteBehindReceiptRepository(ReceiptDBRepository delegate, int capacity, int maxBatch, long maxDelayMillis) {
+        if (delegate == null) throw new IllegalArgumentException("delegate required");
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        if (maxBatch <= 0) throw new IllegalArgumentException("maxBatch must be positive");
+        if (maxDelayMillis < 0) throw new IllegalArgumentException("maxDelayMillis must be non negative");
+        this.delegate = delegate;
+        this.atomicBatches = delegate.savesBatchAtomically();
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.writer = new Thread(this::run, "receipt-write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Blocks while the queue is full, which pushes back on callers instead of growing without bound.
+    // Gives up with IllegalStateException once the repository is closed, since the writer may never take it.
+    public CompletableFuture<Long> saveAsync(List<String> lines, String customerName, String subtotal, String tax, String total) {
+        if (closed) throw new IllegalStateException("repository is closed");
+        var pending = new Pending(new ReceiptRecord(lines, customerName, subtotal, tax, total), new CompletableFuture<>());
+        try {
+            while (!queue.offer(pending, 50, TimeUnit.MILLISECONDS)) {
+                if (closed) throw new IllegalStateException("repository is closed");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.id().completeExceptionally(e);
+        }
+        // lost the race with close(): nobody is left to flush it
+        if (closed && !writer.isAlive()) drainRemaining(new ArrayList<>());
+        return pending.id();
+    }
+
+    @Override
+    public long save(List<String> lines, String customerName, String subtotal, String tax, String total) throws Exception {
+        try {
+            return saveAsync(lines, customerName, subtotal, tax, total).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
+
+    public int pending() { return queue.size(); }
+
+    private void run() {
+        var batch = new ArrayList<Pending>(maxBatch);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                Pending first = queue.take();
+                if (first == STOP) break;
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    if (next == STOP) { stopping = true; break; }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            flush(batch);
+        }
+        drainRemaining(batch);
+    }
+
+    private void drainRemaining(List<Pending> batch) {
+        Pending p;
+        while ((p = queue.poll()) != null) {
+            if (p == STOP) continue;
+            batch.add(p);
+            if (batch.size() == maxBatch) flush(batch);
+        }
+        flush(batch);
+    }
+
+    private void flush(List<Pending> batch) {
+        if (batch.isEmpty()) return;
+        if (!atomicBatches) {
+            for (var p : batch) {
+                var r = p.receipt();
+                try {
+                    p.id().complete(delegate.save(r.lines(), r.customerName(), r.subtotal(), r.tax(), r.total()));
+                } catch (Throwable t) {
+                    p.id().completeExceptionally(t);
+                }
+            }
+            batch.clear();
+            return;
+        }
+        var receipts = new ArrayList<ReceiptRecord>(batch.size());
+        for (var p : batch) receipts.add(p.receipt());
+        try {
+            long[] ids = delegate.saveAll(receipts);
+            for (int i = 0; i < batch.size(); i++) batch.get(i).id().complete(ids[i]);
+        } catch (Throwable t) {
+            // the batch was one transaction, so none of it was written
+            for (var p : batch) p.id().completeExceptionally(t);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    // Stops accepting receipts, flushes everything already queued and waits for the writer to finish.
+    // The delegate stays open; its owner closes it.
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            queue.put(STOP);
+            writer.join();
+        } catch (InterruptedException e) {
+            // the writer drains what is queued when interrupted; just don't wait for it
+            writer.interrupt();
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // a save that raced with close may have been queued after STOP
+        drainRemaining(new ArrayList<>());
+    }
+}
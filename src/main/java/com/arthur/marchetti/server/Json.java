@@ -0,0 +1,82 @@
+package com.arthur.marchetti.server;
+
+import com.arthur.marchetti.model.CartItem;
+import com.arthur.marchetti.model.MenuItem;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+// The handful of JSON shapes the server writes; small enough that a JSON library isn't worth the dependency.
+final class Json {
+    private Json() {}
+
+    static String items(List<MenuItem> items) {
+        var sb = new StringBuilder(64 + items.size() * 80).append('[');
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) sb.append(',');
+            item(sb, items.get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    static String cart(List<CartItem> lines, BigDecimal subtotal, BigDecimal tax) {
+        var sb = new StringBuilder(128 + lines.size() * 120).append("{\"lines\":[");
+        for (int i = 0; i < lines.size(); i++) {
+            CartItem line = lines.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"item\":");
+            item(sb, line.getItem());
+            sb.append(",\"qty\":").append(line.getQuantity());
+            sb.append(",\"lineTotal\":").append(money(line.lineTotal())).append('}');
+        }
+        sb.append("],\"subtotal\":").append(money(subtotal));
+        sb.append(",\"tax\":").append(money(tax));
+        sb.append(",\"total\":").append(money(subtotal.add(tax)));
+        return sb.append('}').toString();
+    }
+
+    static String field(String name, String value) {
+        var sb = new StringBuilder().append('{');
+        string(sb, name).append(':');
+        return string(sb, value).append('}').toString();
+    }
+
+    static String receipt(long id, BigDecimal total) {
+        return "{\"receiptId\":" + id + ",\"total\":" + money(total) + "}";
+    }
+
+    static String error(String message) {
+        return field("error", message == null ? "error" : message);
+    }
+
+    private static void item(StringBuilder sb, MenuItem m) {
+        sb.append("{\"sku\":");
+        string(sb, m.getSku()).append(",\"name\":");
+        string(sb, m.getName()).append(",\"category\":");
+        string(sb, String.valueOf(m.getCategory())).append(",\"price\":").append(money(m.getPrice())).append('}');
+    }
+
+    private static String money(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    private static StringBuilder string(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"');
+    }
+}
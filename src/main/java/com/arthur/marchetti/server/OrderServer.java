@@ -0,0 +1,344 @@
+package com.arthur.marchetti.server;
+
+import com.arthur.marchetti.interfaces.TaxCalculator.CatalogRepository;
+import com.arthur.marchetti.interfaces.TaxCalculator.ReceiptDBRepository;
+import com.arthur.marchetti.metrics.Counter;
+import com.arthur.marchetti.metrics.LatencyHistogram;
+import com.arthur.marchetti.metrics.Metrics;
+import com.arthur.marchetti.model.Cart;
+import com.arthur.marchetti.model.CartItem;
+import com.arthur.marchetti.model.Category;
+import com.arthur.marchetti.model.MenuItem;
+import com.arthur.marchetti.services.CartSessionRegistry;
+import com.arthur.marchetti.services.ReceiptService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Headless backend for tablets and self-order screens. One cart per session in a CartSessionRegistry,
+// receipts written through the given ReceiptDBRepository (usually write-behind over SQLite).
+//
+//   GET    /catalog[?category=DRINK][&q=text]
+//   POST   /sessions                          -> {"session": id}
+//   DELETE /sessions/{id}
+//   GET    /sessions/{id}/cart
+//   POST   /sessions/{id}/cart     item=&qty=  add
+//   PUT    /sessions/{id}/cart     item=&qty=  set quantity
+//   DELETE /sessions/{id}/cart[?item=]         remove a line, or everything
+//   POST   /sessions/{id}/checkout customer=
+//
+// Parameters come from the query string or a form-encoded body.
+public class OrderServer implements AutoCloseable {
+    private static final System.Logger LOG = System.getLogger(OrderServer.class.getName());
+    private static final LatencyHistogram CHECKOUT = Metrics.global().histogram("checkout");
+    private static final Counter CHECKOUT_FAILURES = Metrics.global().counter("checkout.failures");
+
+    private final CatalogRepository catalog;
+    private final CartSessionRegistry sessions;
+    private final ReceiptService receipts;
+    private final ReceiptDBRepository receiptRepository;
+    private final Set<String> checkingOut = ConcurrentHashMap.newKeySet();
+    private final HttpServer http;
+    private final ExecutorService executor;
+
+    public OrderServer(InetSocketAddress address, CatalogRepository catalog, CartSessionRegistry sessions,
+                       ReceiptService receipts, ReceiptDBRepository receiptRepository) throws IOException {
+        if (address == null) throw new IllegalArgumentException("address required");
+        if (catalog == null) throw new IllegalArgumentException("catalog required");
+        if (sessions == null) throw new IllegalArgumentException("sessions required");
+        if (receipts == null) throw new IllegalArgumentException("receipts required");
+        if (receiptRepository == null) throw new IllegalArgumentException("receiptRepository required");
+        this.catalog = catalog;
+        this.sessions = sessions;
+        this.receipts = receipts;
+        this.receiptRepository = receiptRepository;
+        this.http = HttpServer.create(address, 4096);
+        this.executor = requestExecutor();
+        http.setExecutor(executor);
+        http.createContext("/", this::handle);
+    }
+
+    public void start() {
+        http.start();
+    }
+
+    public InetSocketAddress address() {
+        return http.getAddress();
+    }
+
+    // Waits up to the given seconds for in-flight exchanges, then stops the request threads.
+    // Sessions and the receipt repository belong to the caller.
+    public void stop(int delaySeconds) {
+        http.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(Math.max(1, delaySeconds), TimeUnit.SECONDS)) executor.shutdownNow();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        stop(0);
+    }
+
+    // One virtual thread per request where the runtime has them (JDK 21+). On older runtimes a fixed pool
+    // stands in; blocking on a receipt save then ties up a platform thread, so the pool is sized well above
+    // the core count.
+    static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            int threads = Math.max(64, Runtime.getRuntime().availableProcessors() * 32);
+            var counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "order-server-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            try {
+                route(ex);
+            } catch (IllegalArgumentException e) {
+                respond(ex, 400, Json.error(e.getMessage()));
+            } catch (IllegalStateException e) {
+                respond(ex, 503, Json.error(e.getMessage()));
+            } catch (Exception e) {
+                LOG.log(System.Logger.Level.ERROR, "request failed: " + ex.getRequestMethod() + " " + ex.getRequestURI(), e);
+                respond(ex, 500, Json.error("internal error"));
+            }
+        }
+    }
+
+    private void route(HttpExchange ex) throws Exception {
+        String method = ex.getRequestMethod();
+        String[] path = segments(ex.getRequestURI().getRawPath());
+        Map<String, String> params = params(ex);
+
+        if (path.length == 1 && path[0].equals("catalog") && method.equals("GET")) {
+            respond(ex, 200, Json.items(browse(params)));
+            return;
+        }
+        if (path.length >= 1 && path[0].equals("sessions")) {
+            if (path.length == 1 && method.equals("POST")) {
+                respond(ex, 201, Json.field("session", sessions.open()));
+                return;
+            }
+            if (path.length >= 2) {
+                String id = path[1];
+                if (path.length == 2 && method.equals("DELETE")) {
+                    respond(ex, sessions.remove(id) ? 204 : 404, null);
+                    return;
+                }
+                Cart cart = sessions.get(id).orElse(null);
+                if (cart == null) {
+                    respond(ex, 404, Json.error("unknown session"));
+                    return;
+                }
+                if (path.length == 3 && path[2].equals("cart")) {
+                    cartRequest(ex, method, cart, params);
+                    return;
+                }
+                if (path.length == 3 && path[2].equals("checkout")) {
+                    if (method.equals("POST")) checkout(ex, id, cart, params.get("customer"));
+                    else methodNotAllowed(ex, "POST");
+                    return;
+                }
+            }
+        }
+        respond(ex, 404, Json.error("not found"));
+    }
+
+    private List<MenuItem> browse(Map<String, String> params) {
+        String category = params.get("category");
+        String q = params.get("q");
+        if (category == null) return catalog.search(q);
+        Category c;
+        try {
+            c = Category.valueOf(category.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown category " + category);
+        }
+        List<MenuItem> items = catalog.byCategory(c);
+        if (q == null || q.isBlank()) return items;
+        var matches = new ArrayList<MenuItem>();
+        for (MenuItem m : catalog.search(q)) if (m.getCategory() == c) matches.add(m);
+        return matches;
+    }
+
+    private void cartRequest(HttpExchange ex, String method, Cart cart, Map<String, String> params) throws IOException {
+        switch (method) {
+            case "GET" -> { }
+            case "POST" -> cart.add(item(params), quantity(params));
+            case "PUT" -> cart.updateQty(item(params), quantity(params));
+            case "DELETE" -> {
+                if (params.containsKey("item")) cart.remove(params.get("item"));
+                else cart.clear();
+            }
+            default -> {
+                methodNotAllowed(ex, "GET, POST, PUT, DELETE");
+                return;
+            }
+        }
+        respond(ex, 200, cartJson(cart));
+    }
+
+    private String cartJson(Cart cart) {
+        synchronized (cart) {
+            BigDecimal sub = cart.getSubtotal();
+            return Json.cart(cart.items(), sub, cart.getTax(receipts.getTaxCalculator()));
+        }
+    }
+
+    // The cart is rendered under its lock but saved without it, so a slow write never blocks other requests
+    // on that cart. Only the lines that were paid for are taken out afterwards; anything the terminal added
+    // meanwhile stays in the cart. If the save fails the cart is left untouched.
+    private void checkout(HttpExchange ex, String id, Cart cart, String customer) throws Exception {
+        if (customer == null || customer.isBlank()) throw new IllegalArgumentException("customer required");
+        if (!checkingOut.add(id)) {
+            respond(ex, 409, Json.error("checkout already in progress"));
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            List<String> lines = null;
+            List<CartItem> paid = null;
+            BigDecimal sub = null;
+            BigDecimal tax = null;
+            synchronized (cart) {
+                if (!cart.isEmpty()) {
+                    lines = receipts.render(cart);
+                    paid = cart.items();
+                    sub = cart.getSubtotal();
+                    tax = cart.getTax(receipts.getTaxCalculator());
+                }
+            }
+            if (lines == null) {
+                respond(ex, 409, Json.error("cart is empty"));
+                return;
+            }
+            BigDecimal total = sub.add(tax);
+            long receiptId;
+            try {
+                receiptId = receiptRepository.save(lines, customer.strip(), money(sub), money(tax), money(total));
+            } catch (Exception e) {
+                CHECKOUT_FAILURES.increment();
+                throw e;
+            }
+            synchronized (cart) {
+                removePaid(cart, paid);
+            }
+            CHECKOUT.recordSince(start);
+            respond(ex, 200, Json.receipt(receiptId, total));
+        } finally {
+            checkingOut.remove(id);
+        }
+    }
+
+    private static void removePaid(Cart cart, List<CartItem> paid) {
+        var current = new HashMap<String, CartItem>();
+        for (CartItem ci : cart.items()) current.put(ci.getItem().getName(), ci);
+        for (CartItem p : paid) {
+            CartItem now = current.get(p.getItem().getName());
+            if (now == null) continue;
+            int left = now.getQuantity() - p.getQuantity();
+            if (left > 0) cart.updateQty(now.getItem(), left);
+            else cart.remove(now.getItem().getName());
+        }
+    }
+
+    private MenuItem item(Map<String, String> params) {
+        String name = params.get("item");
+        if (name == null || name.isBlank()) throw new IllegalArgumentException("item required");
+        return catalog.byName(name).orElseThrow(() -> new IllegalArgumentException("unknown item " + name));
+    }
+
+    private static int quantity(Map<String, String> params) {
+        String qty = params.getOrDefault("qty", "1");
+        try {
+            return Integer.parseInt(qty);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("qty must be a number");
+        }
+    }
+
+    private static String money(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    private static String[] segments(String rawPath) {
+        String trimmed = rawPath.replaceAll("^/+|/+$", "");
+        if (trimmed.isEmpty()) return new String[0];
+        String[] parts = trimmed.split("/+");
+        for (int i = 0; i < parts.length; i++) parts[i] = URLDecoder.decode(parts[i], StandardCharsets.UTF_8);
+        return parts;
+    }
+
+    private static Map<String, String> params(HttpExchange ex) throws IOException {
+        var params = new HashMap<String, String>();
+        parseForm(ex.getRequestURI().getRawQuery(), params);
+        String type = ex.getRequestHeaders().getFirst("Content-Type");
+        try (InputStream body = ex.getRequestBody()) {
+            byte[] bytes = body.readNBytes(64 * 1024);
+            if (type != null && type.startsWith("application/x-www-form-urlencoded")) {
+                parseForm(new String(bytes, StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> into) {
+        if (form == null || form.isEmpty()) return;
+        for (String pair : form.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            into.put(key, value);
+        }
+    }
+
+    private static void methodNotAllowed(HttpExchange ex, String allow) throws IOException {
+        ex.getResponseHeaders().set("Allow", allow);
+        respond(ex, 405, Json.error("method not allowed"));
+    }
+
+    private static void respond(HttpExchange ex, int status, String json) throws IOException {
+        if (json == null) {
+            ex.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.arthur.marchetti.services;
+
+import com.arthur.marchetti.model.Cart;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Carts for many terminals served by one JVM, keyed by session id. Sessions live in a ConcurrentHashMap, so
+// terminals only contend with each other on the same cart (whose own lock serializes its updates).
+// A session expires after idleTimeout without access and at most maxSessions are held at once.
+public class CartSessionRegistry implements AutoCloseable {
+
+    private static final class Session {
+        final Cart cart = new Cart();
+        volatile long lastAccessMillis;
+
+        Session(long now) { this.lastAccessMillis = now; }
+    }
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger count = new AtomicInteger();
+    private final int maxSessions;
+    private final long idleMillis;
+    private final Clock clock;
+    private ScheduledExecutorService sweeper;
+
+    public CartSessionRegistry(int maxSessions, Duration idleTimeout) {
+        this(maxSessions, idleTimeout, Clock.systemUTC());
+    }
+
+    public CartSessionRegistry(int maxSessions, Duration idleTimeout, Clock clock) {
+        if (maxSessions <= 0) throw new IllegalArgumentException("maxSessions must be positive");
+        if (idleTimeout == null || idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("idleTimeout must be positive");
+        }
+        if (clock == null) throw new IllegalArgumentException("clock required");
+        this.maxSessions = maxSessions;
+        this.idleMillis = idleTimeout.toMillis();
+        this.clock = clock;
+    }
+
+    // starts a session with a fresh random id
+    public String open() {
+        String id = UUID.randomUUID().toString();
+        getOrCreate(id);
+        return id;
+    }
+
+    // Throws IllegalStateException when the registry is full even after dropping expired sessions.
+    public Cart getOrCreate(String sessionId) {
+        requireId(sessionId);
+        Optional<Cart> existing = get(sessionId);
+        if (existing.isPresent()) return existing.get();
+        reserveSlot();
+        boolean[] created = {false};
+        Session s = sessions.compute(sessionId, (id, current) -> {
+            long now = clock.millis();
+            if (current != null && !expired(current, now)) {
+                current.lastAccessMillis = now;
+                return current;
+            }
+            if (current != null) count.decrementAndGet(); // replaced an expired session
+            created[0] = true;
+            return new Session(now);
+        });
+        if (!created[0]) count.decrementAndGet(); // another thread created it first, give the slot back
+        return s.cart;
+    }
+
+    // Returns the session's cart and marks it used; an expired session is removed and reported as absent.
+    // Touching and expiring both happen inside compute, so a cart handed out here was live at that moment.
+    public Optional<Cart> get(String sessionId) {
+        requireId(sessionId);
+        Session s = sessions.computeIfPresent(sessionId, (id, current) -> {
+            long now = clock.millis();
+            if (expired(current, now)) {
+                count.decrementAndGet();
+                return null;
+            }
+            current.lastAccessMillis = now;
+            return current;
+        });
+        return s == null ? Optional.empty() : Optional.of(s.cart);
+    }
+
+    public boolean remove(String sessionId) {
+        requireId(sessionId);
+        if (sessions.remove(sessionId) == null) return false;
+        count.decrementAndGet();
+        return true;
+    }
+
+    public int size() {
+        return count.get();
+    }
+
+    public int maxSessions() {
+        return maxSessions;
+    }
+
+    // drops every session idle for longer than the timeout; returns how many were removed
+    public int evictExpired() {
+        int[] removed = {0};
+        for (String id : sessions.keySet()) {
+            sessions.computeIfPresent(id, (k, current) -> {
+                if (!expired(current, clock.millis())) return current;
+                count.decrementAndGet();
+                removed[0]++;
+                return null;
+            });
+        }
+        return removed[0];
+    }
+
+    // evicts expired sessions in the background every interval; stopped by close()
+    public synchronized void startSweeper(Duration interval) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        if (sweeper != null) throw new IllegalStateException("sweeper already running");
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cart-session-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long millis = interval.toMillis();
+        sweeper.scheduleWithFixedDelay(this::evictExpired, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    private void reserveSlot() {
+        if (count.incrementAndGet() <= maxSessions) return;
+        count.decrementAndGet();
+        evictExpired();
+        if (count.incrementAndGet() <= maxSessions) return;
+        count.decrementAndGet();
+        throw new IllegalStateException("session limit reached");
+    }
+
+    private boolean expired(Session s, long now) {
+        return now - s.lastAccessMillis > idleMillis;
+    }
+
+    private static void requireId(String sessionId) {
+        if (sessionId == null || sessionId.isBlank()) throw new IllegalArgumentException("sessionId required");
+    }
+}
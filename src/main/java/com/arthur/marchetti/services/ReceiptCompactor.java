@@ -0,0 +1,272 @@
+package com.arthur.marchetti.services;
+
+import com.arthur.marchetti.model.StoredReceipt;
+import com.arthur.marchetti.repo.ReceiptArchive;
+import com.arthur.marchetti.repo.SegmentedReceiptLog;
+import com.arthur.marchetti.repo.SqliteReceiptRepository;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Moves receipts older than maxAge out of their live storage into one ReceiptArchive per day under archiveDir.
+// Only whole days are archived, so a day's archive is normally written once. Each run writes the archive
+// (fsynced, renamed into place) before it removes anything from the source, and archives skip keys they already
+// hold, so a run that dies halfway is simply repeated by the next one.
+//
+// Keys: "file:<name>" for the per-receipt text files, "db:<id>" for SQLite rows, "log:<id>" for log records.
+public class ReceiptCompactor implements AutoCloseable {
+    private static final System.Logger LOG = System.getLogger(ReceiptCompactor.class.getName());
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+    private static final int DB_BATCH = 1000;
+
+    private final Path archiveDir;
+    private final Duration maxAge;
+    private final ZoneId zone;
+    private final Clock clock;
+    private final List<Path> textDirs = new CopyOnWriteArrayList<>();
+    private final List<SqliteReceiptRepository> databases = new CopyOnWriteArrayList<>();
+    private final List<SegmentedReceiptLog> logs = new CopyOnWriteArrayList<>();
+    private final Map<Path, OpenedArchive> opened = new ConcurrentHashMap<>();
+    private ScheduledExecutorService worker;
+
+    // an archive's index with the size and mtime its file had just before it was read
+    private record OpenedArchive(ReceiptArchive archive, long size, FileTime modified) {}
+
+    public ReceiptCompactor(Path archiveDir, Duration maxAge, ZoneId zone) {
+        this(archiveDir, maxAge, zone, Clock.system(zone));
+    }
+
+    public ReceiptCompactor(Path archiveDir, Duration maxAge, ZoneId zone, Clock clock) {
+        if (archiveDir == null) throw new IllegalArgumentException("archiveDir required");
+        if (maxAge == null || maxAge.isNegative()) throw new IllegalArgumentException("maxAge must not be negative");
+        if (zone == null || clock == null) throw new IllegalArgumentException("zone and clock required");
+        this.archiveDir = archiveDir;
+        this.maxAge = maxAge;
+        this.zone = zone;
+        this.clock = clock;
+    }
+
+    // receipt_yyyyMMdd_HHmmss.txt files as written by FileReceiptRepository; archived files are deleted
+    public void addTextDirectory(Path dir) {
+        if (dir == null) throw new IllegalArgumentException("dir required");
+        textDirs.add(dir);
+    }
+
+    // archived rows keep their amounts and lose their content, which the repository then reads from the archive
+    public void addDatabase(SqliteReceiptRepository repository) {
+        if (repository == null) throw new IllegalArgumentException("repository required");
+        repository.setArchiveDirectory(archiveDir);
+        databases.add(repository);
+    }
+
+    // sealed segments are archived and deleted once every receipt in them is old enough
+    public void addLog(SegmentedReceiptLog log) {
+        if (log == null) throw new IllegalArgumentException("log required");
+        logs.add(log);
+    }
+
+    public static String fileKey(Path receiptFile) { return "file:" + receiptFile.getFileName(); }
+
+    public static String logKey(long id) { return "log:" + id; }
+
+    // receipts created on or after this day stay where they are
+    public LocalDate cutoff() {
+        return LocalDate.ofInstant(clock.instant().minus(maxAge), zone);
+    }
+
+    // returns the number of receipts archived
+    public synchronized int runOnce() throws IOException, SQLException {
+        LocalDate cutoff = cutoff();
+        int archived = 0;
+        for (Path dir : textDirs) archived += compactTextDirectory(dir, cutoff);
+        for (SqliteReceiptRepository db : databases) archived += compactDatabase(db, cutoff);
+        for (SegmentedReceiptLog log : logs) archived += compactLog(log, cutoff);
+        return archived;
+    }
+
+    // Looks the key up in the archives, newest day first. Only the index of each archive is kept in memory, and
+    // it is reread whenever the file has changed since, as append replaces it without taking find's locks.
+    public Optional<ReceiptArchive.Entry> find(String key) throws IOException {
+        if (!Files.isDirectory(archiveDir)) return Optional.empty();
+        List<Path> files;
+        try (Stream<Path> list = Files.list(archiveDir)) {
+            files = list.filter(p -> p.getFileName().toString().endsWith(".rca"))
+                    .sorted(Comparator.reverseOrder()).toList();
+        }
+        for (Path file : files) {
+            ReceiptArchive archive = current(file);
+            if (archive.contains(key)) return archive.read(key);
+        }
+        return Optional.empty();
+    }
+
+    private ReceiptArchive current(Path file) throws IOException {
+        var attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        OpenedArchive cached = opened.get(file);
+        if (cached != null && cached.size() == attrs.size() && cached.modified().equals(attrs.lastModifiedTime())) {
+            return cached.archive();
+        }
+        // stamped before reading: if the file is replaced meanwhile, the next call sees the mismatch and rereads
+        var fresh = new OpenedArchive(ReceiptArchive.open(file), attrs.size(), attrs.lastModifiedTime());
+        opened.put(file, fresh);
+        return fresh.archive();
+    }
+
+    public synchronized void start(Duration interval) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        if (worker != null) throw new IllegalStateException("compactor already running");
+        worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "receipt-compactor");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY); // never compete with the till
+            return t;
+        });
+        long millis = interval.toMillis();
+        worker.scheduleWithFixedDelay(this::runQuietly, 0, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService w;
+        synchronized (this) {
+            w = worker;
+            worker = null;
+        }
+        if (w == null) return;
+        // let a running compaction finish its current step instead of interrupting a file write
+        w.shutdown();
+        try {
+            w.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runQuietly() {
+        try {
+            int n = runOnce();
+            if (n > 0) LOG.log(System.Logger.Level.INFO, "archived " + n + " receipts into " + archiveDir);
+        } catch (Exception e) {
+            LOG.log(System.Logger.Level.WARNING, "receipt compaction failed, will retry", e);
+        }
+    }
+
+    private int compactTextDirectory(Path dir, LocalDate cutoff) throws IOException {
+        if (!Files.isDirectory(dir)) return 0;
+        var byDay = new TreeMap<LocalDate, List<Path>>();
+        try (Stream<Path> list = Files.list(dir)) {
+            list.forEach(p -> {
+                LocalDateTime t = receiptFileTime(p);
+                if (t != null && t.toLocalDate().isBefore(cutoff)) {
+                    byDay.computeIfAbsent(t.toLocalDate(), d -> new ArrayList<>()).add(p);
+                }
+            });
+        }
+        int archived = 0;
+        for (var day : byDay.entrySet()) {
+            var entries = new ArrayList<ReceiptArchive.Entry>();
+            for (Path p : day.getValue()) {
+                entries.add(new ReceiptArchive.Entry(fileKey(p), receiptFileTime(p).atZone(zone).toInstant(),
+                        Files.readString(p, StandardCharsets.UTF_8)));
+            }
+            archived += append(day.getKey(), entries);
+            for (Path p : day.getValue()) Files.deleteIfExists(p);
+        }
+        return archived;
+    }
+
+    private int compactDatabase(SqliteReceiptRepository db, LocalDate cutoff) throws IOException, SQLException {
+        int archived = 0;
+        while (true) {
+            List<StoredReceipt> batch = db.findUnarchivedBefore(cutoff.atStartOfDay(), DB_BATCH);
+            if (batch.isEmpty()) return archived;
+            var byDay = new TreeMap<LocalDate, List<StoredReceipt>>();
+            for (StoredReceipt r : batch) byDay.computeIfAbsent(r.createdAt().toLocalDate(), d -> new ArrayList<>()).add(r);
+            for (var day : byDay.entrySet()) {
+                var entries = new ArrayList<ReceiptArchive.Entry>();
+                var ids = new ArrayList<Long>();
+                for (StoredReceipt r : day.getValue()) {
+                    entries.add(new ReceiptArchive.Entry(SqliteReceiptRepository.archiveKey(r.id()),
+                            r.createdAt().atZone(zone).toInstant(), r.content()));
+                    ids.add(r.id());
+                }
+                archived += append(day.getKey(), entries);
+                db.markArchived(ids, ReceiptArchive.fileFor(archiveDir, day.getKey()).getFileName().toString());
+            }
+        }
+    }
+
+    private int compactLog(SegmentedReceiptLog log, LocalDate cutoff) throws IOException {
+        int archived = 0;
+        for (Path segment : log.sealedSegments()) {
+            var byDay = new TreeMap<LocalDate, List<ReceiptArchive.Entry>>();
+            boolean[] tooNew = {false};
+            int[] read = {0};
+            long end = SegmentedReceiptLog.scan(segment, e -> {
+                LocalDate day = LocalDate.ofInstant(e.createdAt(), zone);
+                if (!day.isBefore(cutoff)) tooNew[0] = true;
+                read[0]++;
+                byDay.computeIfAbsent(day, d -> new ArrayList<>())
+                        .add(new ReceiptArchive.Entry(logKey(e.id()), e.createdAt(), String.join("\n", e.lines())));
+            });
+            // segments are in id (and so time) order; once one is too new the rest are too
+            if (tooNew[0]) break;
+            // the scan stopped at damage: dropping the file would lose every record behind it
+            int indexed = log.recordCount(segment);
+            long size = Files.size(segment);
+            if (read[0] != indexed || end != size) {
+                LOG.log(System.Logger.Level.WARNING, "keeping damaged segment " + segment + ": read " + read[0]
+                        + " of " + indexed + " records, " + end + " of " + size + " bytes");
+                continue;
+            }
+            for (var day : byDay.entrySet()) archived += append(day.getKey(), day.getValue());
+            log.dropSealedSegment(segment);
+        }
+        return archived;
+    }
+
+    private int append(LocalDate day, List<ReceiptArchive.Entry> entries) throws IOException {
+        Files.createDirectories(archiveDir);
+        Path file = ReceiptArchive.fileFor(archiveDir, day);
+        int added = ReceiptArchive.append(file, entries);
+        opened.remove(file);
+        return added;
+    }
+
+    private static LocalDateTime receiptFileTime(Path p) {
+        String name = p.getFileName().toString();
+        if (!name.startsWith("receipt_") || !name.endsWith(".txt")) return null;
+        try {
+            return LocalDateTime.parse(name.substring("receipt_".length(), name.length() - ".txt".length()), FILE_TIME);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
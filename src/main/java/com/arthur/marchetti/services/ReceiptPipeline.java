@@ -0,0 +1,202 @@
+package com.arthur.marchetti.services;
+
+import com.arthur.marchetti.interfaces.TaxCalculator.ReceiptDBRepository;
+import com.arthur.marchetti.interfaces.TaxCalculator.ReceiptRepository;
+import com.arthur.marchetti.metrics.LatencyHistogram;
+import com.arthur.marchetti.metrics.Metrics;
+import com.arthur.marchetti.metrics.ReceiptPersistedEvent;
+import com.arthur.marchetti.model.Order;
+import com.arthur.marchetti.model.RenderedReceipt;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+// Renders an order once and hands the same RenderedReceipt to every sink at the same time. Each sink has its
+// own writer thread, so a slow or stuck sink only queues up its own work: the others finish, and their futures
+// complete, at their own pace. Within one sink receipts are written in submission order.
+//
+// A sink failing never fails the submission; its SinkResult carries the exception instead. Latency is measured
+// from submit to the sink finishing, so it includes time spent queued behind earlier receipts for that sink.
+public class ReceiptPipeline implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface Writer {
+        // returns where the receipt went (a file, a row id, ...) for the caller to show
+        Object write(RenderedReceipt receipt) throws Exception;
+    }
+
+    public record Sink(String name, Writer writer) {
+        public Sink {
+            if (name == null || name.isBlank()) throw new IllegalArgumentException("name required");
+            if (writer == null) throw new IllegalArgumentException("writer required");
+        }
+
+        // the customer receipt as UTF-8 (receipt log, text files, print spool)
+        public static Sink text(String name, ReceiptRepository repository) {
+            return new Sink(name, r -> repository.save(r.customerBytes()));
+        }
+
+        // the till table plus amounts, as ReceiptDbSaver stores them
+        public static Sink database(String name, ReceiptDBRepository repository) {
+            return new Sink(name, r -> repository.save(r.tillLines(), r.order().customerName(), r.subtotal(), r.tax(), r.total()));
+        }
+    }
+
+    public record SinkResult(String sink, Object value, Throwable failure, long nanos) {
+        public boolean ok() { return failure == null; }
+        public double millis() { return nanos / 1e6; }
+    }
+
+    public record SinkStats(String sink, long writes, long failures, long totalNanos, long maxNanos) {
+        public double meanMillis() { return writes == 0 ? 0 : totalNanos / 1e6 / writes; }
+    }
+
+    public static final class Submission {
+        private final RenderedReceipt receipt;
+        private final Map<String, CompletableFuture<SinkResult>> results;
+
+        private Submission(RenderedReceipt receipt, Map<String, CompletableFuture<SinkResult>> results) {
+            this.receipt = receipt;
+            this.results = results;
+        }
+
+        public RenderedReceipt receipt() { return receipt; }
+
+        // completes when that sink is done, whatever the other sinks are doing; never completes exceptionally
+        public CompletableFuture<SinkResult> result(String sink) {
+            var f = results.get(sink);
+            if (f == null) throw new IllegalArgumentException("unknown sink " + sink);
+            return f;
+        }
+
+        // every sink's result, in the order the sinks were configured
+        public CompletableFuture<List<SinkResult>> all() {
+            var futures = results.values().toArray(new CompletableFuture[0]);
+            return CompletableFuture.allOf(futures).thenApply(v -> {
+                var list = new ArrayList<SinkResult>(futures.length);
+                for (var f : results.values()) list.add(f.join());
+                return list;
+            });
+        }
+    }
+
+    private static final class Lane {
+        final Sink sink;
+        final ExecutorService writer;
+        final AtomicLong writes = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final LatencyHistogram latency;
+        final String eventStore;
+
+        Lane(Sink sink) {
+            this.sink = sink;
+            this.latency = Metrics.global().histogram("receipt.sink." + sink.name());
+            this.eventStore = "sink:" + sink.name();
+            this.writer = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "receipt-sink-" + sink.name());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private final List<Lane> lanes;
+    private final ZoneId zone;
+    private volatile boolean closed;
+
+    public ReceiptPipeline(List<Sink> sinks, ZoneId zone) {
+        if (sinks == null || sinks.isEmpty()) throw new IllegalArgumentException("sinks required");
+        if (zone == null) throw new IllegalArgumentException("zone required");
+        var names = new HashSet<String>();
+        for (Sink s : sinks) {
+            if (!names.add(s.name())) throw new IllegalArgumentException("duplicate sink " + s.name());
+        }
+        var lanes = new ArrayList<Lane>(sinks.size());
+        for (Sink s : sinks) lanes.add(new Lane(s));
+        this.lanes = List.copyOf(lanes);
+        this.zone = zone;
+    }
+
+    // renders on the calling thread, then returns without waiting for any sink
+    public Submission submit(Order order) {
+        if (closed) throw new IllegalStateException("pipeline is closed");
+        RenderedReceipt receipt = RenderedReceipt.of(order, zone);
+        long start = System.nanoTime();
+        var results = new LinkedHashMap<String, CompletableFuture<SinkResult>>();
+        for (Lane lane : lanes) {
+            results.put(lane.sink.name(), CompletableFuture.supplyAsync(() -> write(lane, receipt, start), lane.writer));
+        }
+        return new Submission(receipt, results);
+    }
+
+    // writes an already rendered receipt to one sink again, for example after that sink failed
+    public CompletableFuture<SinkResult> resubmit(RenderedReceipt receipt, String sink) {
+        if (receipt == null) throw new IllegalArgumentException("receipt required");
+        if (closed) throw new IllegalStateException("pipeline is closed");
+        for (Lane lane : lanes) {
+            if (lane.sink.name().equals(sink)) {
+                long start = System.nanoTime();
+                return CompletableFuture.supplyAsync(() -> write(lane, receipt, start), lane.writer);
+            }
+        }
+        throw new IllegalArgumentException("unknown sink " + sink);
+    }
+
+    public List<SinkResult> process(Order order) {
+        return submit(order).all().join();
+    }
+
+    public List<SinkStats> stats() {
+        var stats = new ArrayList<SinkStats>(lanes.size());
+        for (Lane l : lanes) {
+            stats.add(new SinkStats(l.sink.name(), l.writes.get(), l.failures.get(), l.totalNanos.get(), l.maxNanos.get()));
+        }
+        return stats;
+    }
+
+    // lets every sink finish what was already submitted
+    @Override
+    public void close() {
+        closed = true;
+        for (Lane l : lanes) l.writer.shutdown();
+        try {
+            for (Lane l : lanes) l.writer.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static SinkResult write(Lane lane, RenderedReceipt receipt, long start) {
+        Object value = null;
+        Throwable failure = null;
+        var event = new ReceiptPersistedEvent(lane.eventStore);
+        try {
+            value = lane.sink.writer().write(receipt);
+        } catch (Throwable t) {
+            // Errors too: a result must come back whatever the sink did, or a waiting caller never hears of it
+            failure = t;
+        }
+        // the size is the customer receipt's; database sinks store the till table instead
+        event.complete(receipt.order().orderId(), receipt.customerBytes().remaining(),
+                failure != null ? null : value != null ? value : "");
+        long nanos = System.nanoTime() - start;
+        lane.writes.incrementAndGet();
+        if (failure != null) lane.failures.incrementAndGet();
+        lane.totalNanos.addAndGet(nanos);
+        lane.maxNanos.accumulate(nanos);
+        lane.latency.record(nanos);
+        return new SinkResult(lane.sink.name(), value, failure, nanos);
+    }
+}
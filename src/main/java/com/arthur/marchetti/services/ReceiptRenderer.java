@@ -0,0 +1,324 @@
+package com.arthur.marchetti.services;
+
+import com.arthur.marchetti.interfaces.TaxCalculator.TaxCalculator;
+import com.arthur.marchetti.model.Cart;
+import com.arthur.marchetti.model.CartItem;
+import com.arthur.marchetti.model.Money;
+import com.arthur.marchetti.model.Order;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+// Writes receipts straight into an Appendable (StringBuilder, Writer, ...) or into a reusable UTF-8 ByteBuffer
+// that goes to a FileChannel as is. No String.format and no list of lines in between.
+//
+// Two layouts, each byte-for-byte the text the older code produced:
+// - till: ReceiptService.render, the "%-20s %3d %7.2f %7.2f" table, lines joined with a caller-chosen separator
+// - customer: ReceiptFormatter.format, every line ending in '\n'
+// Amounts are written from whole cents (every MenuItem price is), always with '.' as the decimal point.
+//
+// The static render methods are thread-safe. An instance owns the encode buffer, so use one per thread.
+public final class ReceiptRenderer {
+    static final String TABLE_HEADER = "Item                 Qty   Price   Total";
+    static final String TABLE_RULE = "----------------------------------------";
+    private static final String ORDER_RULE = "------------------------------------------";
+    // till columns: name, quantity, unit price, line total; totals are a label and an amount
+    private static final int NAME_WIDTH = 20;
+    private static final int QTY_WIDTH = 3;
+    private static final int MONEY_WIDTH = 7;
+    private static final int LABEL_WIDTH = 27;
+    private static final int AMOUNT_WIDTH = 10;
+    private static final String SPACES = " ".repeat(64);
+    private static final long[] POWERS_OF_TEN = new long[19];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+    private static final DateTimeFormatter ORDER_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final Utf8Buffer bytes = new Utf8Buffer(2048);
+
+    public static void renderTable(Cart cart, TaxCalculator taxCalc, String lineSeparator, Appendable out) throws IOException {
+        if (taxCalc == null) throw new IllegalArgumentException("taxCalculator required");
+        List<CartItem> items;
+        long sub;
+        long tax;
+        synchronized (cart) {
+            items = cart.items();
+            sub = cart.getSubtotalCents();
+            tax = cart.getTaxCents(taxCalc);
+        }
+        renderTable(items, sub, tax, lineSeparator, out);
+    }
+
+    // the till table for an order that was already priced; amounts print as %.2f would round them
+    public static void renderTable(Order order, String lineSeparator, Appendable out) throws IOException {
+        long sub = Money.of(order.subtotal(), RoundingMode.HALF_UP).cents();
+        long tax = Money.of(order.tax(), RoundingMode.HALF_UP).cents();
+        renderTable(order.lines(), sub, tax, lineSeparator, out);
+    }
+
+    private static void renderTable(List<CartItem> items, long sub, long tax, String lineSeparator, Appendable out)
+            throws IOException {
+        out.append(TABLE_HEADER);
+        for (CartItem ci : items) {
+            String name = ci.getItem().getName();
+            out.append(lineSeparator).append(name);
+            pad(out, NAME_WIDTH - name.length());
+            out.append(' ');
+            pad(out, QTY_WIDTH - digits(ci.getQuantity()));
+            writeLong(out, ci.getQuantity());
+            out.append(' ');
+            writeCents(out, ci.getItem().getPriceCents(), MONEY_WIDTH);
+            out.append(' ');
+            writeCents(out, ci.lineTotalCents(), MONEY_WIDTH);
+        }
+        out.append(lineSeparator).append(TABLE_RULE);
+        totalLine(out.append(lineSeparator), "Subtotal:", sub);
+        totalLine(out.append(lineSeparator), "Tax:", tax);
+        totalLine(out.append(lineSeparator), "Total:", Math.addExact(sub, tax));
+    }
+
+    public static void renderOrder(Order order, ZoneId zone, Appendable out) throws IOException {
+        out.append("Cafe Receipt\n");
+        out.append("Order: ").append(order.orderId()).append("    Date: ");
+        ORDER_DATE.withZone(zone).formatTo(order.timestamp(), out);
+        out.append('\n');
+        out.append("Customer: ").append(order.customerName()).append('\n');
+        out.append(ORDER_RULE).append('\n');
+        for (CartItem li : order.lines()) {
+            writeLong(out, li.getQuantity());
+            out.append(" x ").append(li.getItem().getName()).append(" @ ");
+            // toPlainString keeps the scale the price was written with ("3", "3.5", "3.00"), so follow that
+            BigDecimal price = li.getItem().getPrice();
+            long unscaled = unscaledFromCents(li.getItem().getPriceCents(), price.scale());
+            long line = unscaled == Long.MIN_VALUE ? Long.MIN_VALUE : multiplyOrMin(unscaled, li.getQuantity());
+            if (line == Long.MIN_VALUE) {
+                out.append(price.toPlainString()).append(" = ").append(li.lineTotal().toPlainString());
+            } else {
+                writePlain(out, unscaled, price.scale());
+                out.append(" = ");
+                writePlain(out, line, price.scale());
+            }
+            out.append('\n');
+        }
+        out.append(ORDER_RULE).append('\n');
+        writePlain(out.append("Subtotal: "), order.subtotal()).append('\n');
+        writePlain(out.append("Tax: "), order.tax()).append('\n');
+        writePlain(out.append("Total: "), order.total()).append('\n');
+        out.append("Thank you!\n");
+    }
+
+    // The till receipt as UTF-8 in this renderer's buffer, ready to read; valid until the next encode call.
+    public ByteBuffer encodeTable(Cart cart, TaxCalculator taxCalc, String lineSeparator) {
+        bytes.clear();
+        try {
+            renderTable(cart, taxCalc, lineSeparator, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Utf8Buffer never throws
+        }
+        return bytes.flip();
+    }
+
+    // The customer receipt as UTF-8 in this renderer's buffer, ready to read; valid until the next encode call.
+    public ByteBuffer encodeOrder(Order order, ZoneId zone) {
+        bytes.clear();
+        try {
+            renderOrder(order, zone, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.flip();
+    }
+
+    private static void totalLine(Appendable out, String label, long cents) throws IOException {
+        out.append(label);
+        pad(out, LABEL_WIDTH - label.length());
+        out.append(' ');
+        writeCents(out, cents, AMOUNT_WIDTH);
+    }
+
+    private static void pad(Appendable out, int n) throws IOException {
+        while (n > 0) {
+            int k = Math.min(n, SPACES.length());
+            out.append(SPACES, 0, k);
+            n -= k;
+        }
+    }
+
+    // cents as "-12.34", right-aligned in width like %<width>.2f
+    private static void writeCents(Appendable out, long cents, int width) throws IOException {
+        long abs = Math.abs(cents);
+        int whole = digits(abs / 100);
+        pad(out, width - whole - 3 - (cents < 0 ? 1 : 0));
+        if (cents < 0) out.append('-');
+        writeLong(out, abs / 100);
+        out.append('.').append((char) ('0' + abs / 10 % 10)).append((char) ('0' + abs % 10));
+    }
+
+    private static Appendable writePlain(Appendable out, BigDecimal amount) throws IOException {
+        if (amount.scale() >= 0 && amount.scale() < 19 && amount.precision() < 19) {
+            writePlain(out, amount.unscaledValue().longValue(), amount.scale());
+        } else {
+            out.append(amount.toPlainString());
+        }
+        return out;
+    }
+
+    // unscaled / 10^scale the way BigDecimal.toPlainString prints it; 0 <= scale <= 18
+    private static void writePlain(Appendable out, long unscaled, int scale) throws IOException {
+        if (unscaled < 0) out.append('-');
+        long abs = Math.abs(unscaled);
+        long pow = pow10(scale);
+        writeLong(out, abs / pow);
+        if (scale == 0) return;
+        out.append('.');
+        long frac = abs % pow;
+        for (long p = pow / 10; p > 0; p /= 10) out.append((char) ('0' + frac / p % 10));
+    }
+
+    // price in cents rescaled to the price's own scale, or Long.MIN_VALUE when that does not fit
+    private static long unscaledFromCents(long cents, int scale) {
+        if (scale == 2) return cents;
+        if (scale < 0 || scale > 18) return Long.MIN_VALUE;
+        if (scale < 2) return cents / pow10(2 - scale);
+        return multiplyOrMin(cents, pow10(scale - 2));
+    }
+
+    private static long multiplyOrMin(long a, long b) {
+        long hi = Math.multiplyHigh(a, b);
+        long lo = a * b;
+        return (hi == 0 && lo >= 0) || (hi == -1 && lo < 0) ? lo : Long.MIN_VALUE;
+    }
+
+    private static void writeLong(Appendable out, long v) throws IOException {
+        if (v < 0) {
+            out.append('-');
+            if (v == Long.MIN_VALUE) {
+                out.append("9223372036854775808");
+                return;
+            }
+            v = -v;
+        }
+        for (long p = pow10(digits(v) - 1); p > 0; p /= 10) out.append((char) ('0' + v / p % 10));
+    }
+
+    private static int digits(long v) {
+        int n = 1;
+        if (v < 0) {
+            n++;
+            v = v == Long.MIN_VALUE ? Long.MAX_VALUE : -v;
+        }
+        while (v >= 10) {
+            v /= 10;
+            n++;
+        }
+        return n;
+    }
+
+    private static long pow10(int n) {
+        return POWERS_OF_TEN[n];
+    }
+
+    // Growable byte array that encodes chars as UTF-8 on the way in, with the same replacement of unpaired
+    // surrogates ('?') as String.getBytes. Writing into the array directly is several times faster than
+    // ByteBuffer.put per char; the heap buffer handed out wraps the same array.
+    private static final class Utf8Buffer implements Appendable {
+        private byte[] bytes;
+        private ByteBuffer view;
+        private int length;
+        private char high;
+
+        Utf8Buffer(int capacity) {
+            bytes = new byte[capacity];
+            view = ByteBuffer.wrap(bytes);
+        }
+
+        void clear() {
+            length = 0;
+            high = 0;
+        }
+
+        ByteBuffer flip() {
+            if (high != 0) {
+                ensure(1);
+                bytes[length++] = '?';
+                high = 0;
+            }
+            return view.limit(length).position(0);
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            ensure((end - start) * 3 + 1);
+            byte[] b = bytes;
+            int n = length;
+            int i = start;
+            // ASCII runs, which is nearly all of a receipt, go straight in
+            if (high == 0) {
+                for (; i < end; i++) {
+                    char c = csq.charAt(i);
+                    if (c >= 0x80) break;
+                    b[n++] = (byte) c;
+                }
+            }
+            length = n;
+            for (; i < end; i++) append(csq.charAt(i));
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            ensure(4);
+            byte[] b = bytes;
+            if (high != 0) {
+                char h = high;
+                high = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int cp = Character.toCodePoint(h, c);
+                    b[length++] = (byte) (0xF0 | cp >> 18);
+                    b[length++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                    b[length++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                    b[length++] = (byte) (0x80 | cp & 0x3F);
+                    return this;
+                }
+                b[length++] = '?';
+                ensure(3);
+                b = bytes;
+            }
+            if (c < 0x80) {
+                b[length++] = (byte) c;
+            } else if (c < 0x800) {
+                b[length++] = (byte) (0xC0 | c >> 6);
+                b[length++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c)) {
+                high = c;
+            } else if (Character.isLowSurrogate(c)) {
+                b[length++] = '?';
+            } else {
+                b[length++] = (byte) (0xE0 | c >> 12);
+                b[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                b[length++] = (byte) (0x80 | c & 0x3F);
+            }
+            return this;
+        }
+
+        private void ensure(int more) {
+            if (length + more <= bytes.length) return;
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + more));
+            view = ByteBuffer.wrap(bytes);
+        }
+    }
+}
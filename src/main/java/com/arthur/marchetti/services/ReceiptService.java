@@ -2,31 +2,51 @@ package com.arthur.marchetti.services;
 
 
 import com.arthur.marchetti.interfaces.TaxCalculator.TaxCalculator;
+import com.arthur.marchetti.metrics.LatencyHistogram;
+import com.arthur.marchetti.metrics.Metrics;
+import com.arthur.marchetti.metrics.ReceiptRenderedEvent;
 import com.arthur.marchetti.model.Cart;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 public class ReceiptService {
+    private static final LatencyHistogram RENDER = Metrics.global().histogram("receipt.render");
+
     private final TaxCalculator taxCalc;
     public ReceiptService(TaxCalculator taxCalc){ this.taxCalc = taxCalc; }
 
+    public TaxCalculator getTaxCalculator(){ return taxCalc; }
+
     public List<String> render(Cart cart){
-        var lines = new java.util.ArrayList<String>();
-        lines.add("Item                 Qty   Price   Total");
-        for(var ci : cart.items()){
-            String line = String.format("%-20s %3d %7.2f %7.2f",
-                    ci.getItem().getName(), ci.getQuantity(),
-                    ci.getItem().getPrice(), ci.lineTotal());
-            lines.add(line);
-        }
-        BigDecimal sub = cart.getSubtotal();
-        BigDecimal tax = taxCalc.tax(sub);
-        BigDecimal grand = sub.add(tax);
-        lines.add("----------------------------------------");
-        lines.add(String.format("%-27s %10.2f","Subtotal:", sub));
-        lines.add(String.format("%-27s %10.2f","Tax:", tax));
-        lines.add(String.format("%-27s %10.2f","Total:", grand));
+        long start = System.nanoTime();
+        var event = new ReceiptRenderedEvent();
+        event.begin();
+        var text = new StringBuilder(256);
+        render(cart, "\n", text);
+        if (event.isEnabled()) event.completeCart(cart, cart.items().size(), text, 0);
+        var lines = text.toString().lines().toList();
+        RENDER.recordSince(start);
         return lines;
     }
-}
\ No newline at end of file
+
+    // same text as render, lines joined with lineSeparator, written straight into out
+    public void renderTo(Cart cart, String lineSeparator, Appendable out){
+        long start = System.nanoTime();
+        var event = new ReceiptRenderedEvent();
+        event.begin();
+        int from = out instanceof CharSequence text ? text.length() : 0;
+        render(cart, lineSeparator, out);
+        RENDER.recordSince(start);
+        if (event.isEnabled()) event.completeCart(cart, cart.items().size(), out instanceof CharSequence text ? text : null, from);
+    }
+
+    private void render(Cart cart, String lineSeparator, Appendable out){
+        try {
+            ReceiptRenderer.renderTable(cart, taxCalc, lineSeparator, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -6,5 +6,60 @@ CREATE TABLE IF NOT EXISTS receipts (
   subtotal TEXT NOT NULL,
   tax TEXT NOT NULL,
   total TEXT NOT NULL,
-  content TEXT NOT NULL
-);
\ No newline at end of file
+  content TEXT NOT NULL,        -- '' once the receipt has been moved to an archive
+  archive TEXT                  -- archive file holding the text, NULL while it is still here
+);
+CREATE INDEX IF NOT EXISTS receipts_created_at_idx ON receipts(created_at);
+CREATE INDEX IF NOT EXISTS receipts_customer_name_idx ON receipts(customer_name);
+CREATE INDEX IF NOT EXISTS receipts_total_cents_idx ON receipts(CAST(ROUND(total * 100) AS INTEGER));
+
+-- normalized orders: money as integer cents, lines reference items by SKU
+CREATE TABLE IF NOT EXISTS items (
+  sku TEXT PRIMARY KEY,
+  name TEXT NOT NULL,
+  category TEXT,
+  price_cents INTEGER NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS orders (
+  id INTEGER PRIMARY KEY AUTOINCREMENT,
+  order_ref TEXT NOT NULL,
+  customer_name TEXT NOT NULL,
+  created_at INTEGER NOT NULL, -- epoch millis
+  subtotal_cents INTEGER NOT NULL,
+  tax_cents INTEGER NOT NULL,
+  total_cents INTEGER NOT NULL
+);
+CREATE INDEX IF NOT EXISTS orders_created_at_idx ON orders(created_at);
+CREATE INDEX IF NOT EXISTS orders_order_ref_idx ON orders(order_ref);
+
+CREATE TABLE IF NOT EXISTS order_lines (
+  order_id INTEGER NOT NULL REFERENCES orders(id) ON DELETE CASCADE,
+  line_no INTEGER NOT NULL,
+  sku TEXT NOT NULL REFERENCES items(sku),
+  category TEXT, -- the item's category when it was sold; rollup rebuilds group by this
+  quantity INTEGER NOT NULL CHECK (quantity > 0),
+  unit_price_cents INTEGER NOT NULL,
+  line_total_cents INTEGER NOT NULL,
+  PRIMARY KEY (order_id, line_no)
+) WITHOUT ROWID;
+CREATE INDEX IF NOT EXISTS order_lines_sku_idx ON order_lines(sku);
+
+-- hourly/daily sales rollups, maintained in the same transaction as each order insert
+CREATE TABLE IF NOT EXISTS sales_by_item (
+  granularity TEXT NOT NULL, -- HOUR or DAY
+  bucket_start INTEGER NOT NULL, -- epoch millis
+  sku TEXT NOT NULL,
+  quantity INTEGER NOT NULL,
+  sales_cents INTEGER NOT NULL,
+  PRIMARY KEY (granularity, bucket_start, sku)
+) WITHOUT ROWID;
+
+CREATE TABLE IF NOT EXISTS sales_by_category (
+  granularity TEXT NOT NULL,
+  bucket_start INTEGER NOT NULL,
+  category TEXT NOT NULL,
+  quantity INTEGER NOT NULL,
+  sales_cents INTEGER NOT NULL,
+  PRIMARY KEY (granularity, bucket_start, category)
+) WITHOUT ROWID;
@@ -0,0 +1,187 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.model.Cart;
+import com.arthur.marchetti.model.CartItem;
+import com.arthur.marchetti.model.Category;
+import com.arthur.marchetti.model.MenuItem;
+import com.arthur.marchetti.services.CartSessionRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartSessionRegistryTest {
+
+    private static final MenuItem COFFEE = new MenuItem("Coffee", new BigDecimal("3.00"), Category.DRINK);
+    private static final MenuItem TEA = new MenuItem("Tea", new BigDecimal("2.50"), Category.DRINK);
+    private static final MenuItem SALAD = new MenuItem("Salad", new BigDecimal("9.50"), Category.MEAL);
+
+    private static final class ManualClock extends Clock {
+        volatile long millis;
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+        @Override public Instant instant() { return Instant.ofEpochMilli(millis); }
+    }
+
+    @Test
+    void concurrent_adds_never_lose_quantity() throws Exception {
+        var registry = new CartSessionRegistry(10_000, Duration.ofMinutes(5));
+        int threads = 16;
+        int addsPerThread = 2_000;
+        var ids = new ArrayList<String>();
+        for (int i = 0; i < 8; i++) ids.add(registry.open());
+
+        runConcurrently(threads, t -> {
+            var items = new MenuItem[]{COFFEE, TEA, SALAD};
+            for (int i = 0; i < addsPerThread; i++) {
+                // every thread hits every session, so each cart sees contention from all of them
+                Cart cart = registry.getOrCreate(ids.get(i % ids.size()));
+                cart.add(items[(t + i) % items.length], 1);
+            }
+        });
+
+        long totalQty = 0;
+        for (String id : ids) {
+            Cart cart = registry.get(id).orElseThrow();
+            totalQty += cart.items().stream().mapToInt(CartItem::getQuantity).sum();
+            assertRunningTotalsMatchLines(cart);
+        }
+        assertEquals((long) threads * addsPerThread, totalQty);
+    }
+
+    @Test
+    void updateQty_under_contention_keeps_totals_consistent() throws Exception {
+        var cart = new Cart();
+        cart.add(COFFEE, 1);
+        cart.add(TEA, 1);
+        int threads = 16;
+        int rounds = 2_000;
+
+        runConcurrently(threads, t -> {
+            var random = ThreadLocalRandom.current();
+            for (int i = 0; i < rounds; i++) {
+                if (t % 2 == 0) {
+                    cart.updateQty(random.nextBoolean() ? COFFEE : TEA, 1 + random.nextInt(20));
+                } else {
+                    // read-modify-write under the cart's lock must not lose increments from other threads
+                    synchronized (cart) {
+                        int q = cart.items().get(1).getQuantity();
+                        cart.updateQty(TEA, q + 1);
+                    }
+                    cart.add(COFFEE, 1);
+                }
+            }
+        });
+
+        assertRunningTotalsMatchLines(cart);
+    }
+
+    @Test
+    void increments_through_updateQty_are_not_lost() throws Exception {
+        var cart = new Cart();
+        cart.add(SALAD, 1);
+        int threads = 8;
+        int rounds = 1_000;
+
+        runConcurrently(threads, t -> {
+            for (int i = 0; i < rounds; i++) {
+                synchronized (cart) {
+                    cart.updateQty(SALAD, cart.items().get(0).getQuantity() + 1);
+                }
+            }
+        });
+
+        assertEquals(1 + threads * rounds, cart.items().get(0).getQuantity());
+        assertRunningTotalsMatchLines(cart);
+    }
+
+    @Test
+    void idle_sessions_expire_and_free_their_slot() {
+        var clock = new ManualClock();
+        var registry = new CartSessionRegistry(2, Duration.ofMinutes(10), clock);
+        String a = registry.open();
+        String b = registry.open();
+        assertThrows(IllegalStateException.class, registry::open);
+
+        clock.millis = Duration.ofMinutes(6).toMillis();
+        registry.get(a).orElseThrow().add(COFFEE, 1); // keeps a alive
+        clock.millis = Duration.ofMinutes(11).toMillis();
+
+        String c = registry.open(); // b is idle for 11 minutes and makes room
+        assertEquals(2, registry.size());
+        assertTrue(registry.get(b).isEmpty());
+        assertEquals(1, registry.get(a).orElseThrow().items().size());
+        assertTrue(registry.get(c).isPresent());
+
+        clock.millis += Duration.ofMinutes(11).toMillis();
+        assertEquals(2, registry.evictExpired());
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void concurrent_getOrCreate_shares_one_cart_and_respects_the_limit() throws Exception {
+        var registry = new CartSessionRegistry(100, Duration.ofMinutes(5));
+        var carts = new Cart[8];
+        runConcurrently(8, t -> {
+            carts[t] = registry.getOrCreate("terminal-0");
+            // terminals 100 and up don't fit and end the worker with IllegalStateException
+            for (int i = 1; i < 150; i++) registry.getOrCreate("terminal-" + i);
+        }, IllegalStateException.class);
+
+        for (Cart cart : carts) assertSame(carts[0], cart);
+        assertEquals(100, registry.size());
+        assertThrows(IllegalStateException.class, () -> registry.getOrCreate("terminal-100"));
+        assertTrue(registry.remove("terminal-0"));
+        registry.getOrCreate("terminal-100");
+        assertEquals(100, registry.size());
+    }
+
+    private static void assertRunningTotalsMatchLines(Cart cart) {
+        synchronized (cart) {
+            long cents = cart.items().stream().mapToLong(CartItem::lineTotalCents).sum();
+            assertEquals(cents, cart.getSubtotalCents());
+            assertEquals(BigDecimal.valueOf(cents, 2).compareTo(cart.getSubtotal()), 0);
+        }
+    }
+
+    private interface Worker { void run(int thread) throws Exception; }
+
+    // runs the worker on n threads released together; exceptions of the ignored type end that worker quietly
+    private static void runConcurrently(int n, Worker worker, Class<?>... ignored) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(n);
+        try {
+            var start = new CountDownLatch(1);
+            var futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < n; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        worker.run(thread);
+                    } catch (Exception e) {
+                        for (Class<?> c : ignored) if (c.isInstance(e)) return null;
+                        throw e;
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var f : futures) f.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.cli.CartTableModel;
+import com.arthur.marchetti.model.Cart;
+import com.arthur.marchetti.model.Category;
+import com.arthur.marchetti.model.MenuItem;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CartTableModelTest {
+
+    private static final MenuItem COFFEE = new MenuItem("Coffee", new BigDecimal("3.00"), Category.DRINK);
+    private static final MenuItem TEA = new MenuItem("Tea", new BigDecimal("2.50"), Category.DRINK);
+    private static final MenuItem CROISSANT = new MenuItem("Croissant", new BigDecimal("4.25"), Category.BAKERY);
+
+    // type:firstRow-lastRow, or "all" for a whole-table change
+    private static String describe(TableModelEvent e) {
+        if (e.getFirstRow() == TableModelEvent.HEADER_ROW || e.getLastRow() == Integer.MAX_VALUE) return "all";
+        String type = switch (e.getType()) {
+            case TableModelEvent.INSERT -> "insert";
+            case TableModelEvent.DELETE -> "delete";
+            default -> "update";
+        };
+        return type + ":" + e.getFirstRow() + "-" + e.getLastRow();
+    }
+
+    @Test
+    void edits_on_the_edt_fire_events_for_just_the_rows_they_touch() throws Exception {
+        var cart = new Cart();
+        cart.add(COFFEE, 1);
+        var events = new ArrayList<String>();
+        var rows = new ArrayList<Integer>();
+        SwingUtilities.invokeAndWait(() -> {
+            var model = new CartTableModel(cart);
+            model.addTableModelListener(e -> {
+                events.add(describe(e));
+                rows.add(model.getRowCount());
+            });
+            cart.add(TEA, 1);
+            cart.add(CROISSANT, 2);
+            cart.add(TEA, 1);
+            model.setValueAt("5", 2, 1);
+            cart.remove("Coffee");
+            cart.undo();
+            cart.clear();
+            assertEquals(0, model.getRowCount());
+        });
+        assertEquals(List.of("insert:1-1", "insert:2-2", "update:1-1", "update:2-2", "delete:0-0", "all", "delete:0-2"), events);
+        assertEquals(List.of(2, 3, 3, 3, 2, 3, 0), rows);
+    }
+
+    @Test
+    void edits_from_other_threads_reach_the_table_in_order() throws Exception {
+        var cart = new Cart();
+        var model = new CartTableModel(cart);
+        var events = new ArrayList<String>();
+        model.addTableModelListener(e -> events.add(describe(e)));
+
+        var worker = new Thread(() -> {
+            cart.add(COFFEE, 1);
+            cart.add(TEA, 1);
+        });
+        // the EDT is held up until the worker is done, so its edit has to queue behind the worker's
+        SwingUtilities.invokeAndWait(() -> {
+            worker.start();
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            cart.remove("Coffee");
+            assertEquals(0, model.getRowCount());
+        });
+        SwingUtilities.invokeAndWait(() -> { });
+
+        assertEquals(List.of("insert:0-0", "insert:1-1", "delete:0-0"), events);
+        SwingUtilities.invokeAndWait(() -> {
+            assertEquals(1, model.getRowCount());
+            assertEquals("Tea", model.getValueAt(0, 0));
+        });
+    }
+}
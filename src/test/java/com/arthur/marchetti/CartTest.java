@@ -1,13 +1,23 @@
 package com.arthur.marchetti;
 
 import com.arthur.marchetti.model.Cart;
+import com.arthur.marchetti.model.CartChange;
+import com.arthur.marchetti.model.CartItem;
 import com.arthur.marchetti.model.Category;
 import com.arthur.marchetti.model.MenuItem;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class CartTest {
 
@@ -30,4 +40,167 @@ public class CartTest {
         assertEquals(coffe.getPrice().multiply(new BigDecimal(qty)), subtotal);
 
     }
+
+    @Test
+    public void runningTotalsFollowEveryChange(){
+        var coffee = new MenuItem("Coffee", new BigDecimal("3.00"), Category.DRINK);
+        var tea = new MenuItem("Tea", new BigDecimal("2.50"), Category.DRINK);
+        var croissant = new MenuItem("Croissant", new BigDecimal("4.25"), Category.BAKERY);
+        Cart cart = new Cart();
+
+        cart.add(coffee, 2);
+        cart.add(tea, 1);
+        cart.add(croissant, 3);
+        cart.add(coffee, 1);
+        assertEquals(new BigDecimal("24.25"), cart.getSubtotal());
+        assertEquals(new BigDecimal("11.50"), cart.getCategorySubtotal(Category.DRINK));
+        assertEquals(new BigDecimal("12.75"), cart.getCategorySubtotal(Category.BAKERY));
+
+        cart.updateQty(croissant, 1);
+        cart.remove("Tea");
+        assertEquals(new BigDecimal("13.25"), cart.getSubtotal());
+        assertEquals(new BigDecimal("9.00"), cart.getCategorySubtotal(Category.DRINK));
+
+        var recomputed = cart.items().stream()
+                .map(li -> li.lineTotal())
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(recomputed, cart.getSubtotal());
+
+        cart.remove("Croissant");
+        assertTrue(cart.getCategorySubtotals().keySet().stream().allMatch(c -> c == Category.DRINK));
+
+        cart.clear();
+        assertEquals(BigDecimal.ZERO, cart.getSubtotal());
+        assertTrue(cart.getCategorySubtotals().isEmpty());
+    }
+
+    @Test
+    public void snapshotsNeverChangeAndUndoRedoStepThroughVersions(){
+        var coffee = new MenuItem("Coffee", new BigDecimal("3.00"), Category.DRINK);
+        var croissant = new MenuItem("Croissant", new BigDecimal("4.25"), Category.BAKERY);
+        Cart cart = new Cart();
+        assertFalse(cart.undo());
+
+        cart.add(coffee, 2);
+        var first = cart.items();
+        assertSame(first, cart.items()); // no copy until something changes
+        cart.add(croissant, 1);
+        cart.add(coffee, 1);
+        var merged = cart.items();
+        assertThrows(UnsupportedOperationException.class, () -> merged.add(new CartItem(coffee, 1)));
+
+        assertEquals(List.of(2), first.stream().map(CartItem::getQuantity).toList());
+        assertEquals(List.of("Coffee", "Croissant"), merged.stream().map(li -> li.getItem().getName()).toList());
+        assertEquals(3, merged.get(0).getQuantity());
+        assertSame(merged.get(1), cart.items().get(1));
+
+        cart.clear();
+        assertTrue(cart.undo());
+        assertSame(merged, cart.items());
+        assertEquals(new BigDecimal("13.25"), cart.getSubtotal());
+        assertTrue(cart.undo());
+        assertTrue(cart.undo());
+        assertSame(first, cart.items());
+        assertEquals(new BigDecimal("6.00"), cart.getSubtotal());
+        assertEquals(0, cart.getCategorySubtotalCents(Category.BAKERY));
+
+        assertTrue(cart.redo());
+        assertEquals(425, cart.getCategorySubtotalCents(Category.BAKERY));
+        cart.updateQty(croissant, 2); // a new edit drops the versions that could have been redone
+        assertFalse(cart.canRedo());
+        assertEquals(new BigDecimal("14.50"), cart.getSubtotal());
+
+        cart.clearHistory();
+        assertFalse(cart.undo());
+    }
+
+    @Test
+    public void randomEditsMatchAnOrderedMapAndKeepEverySnapshot(){
+        var menu = new ArrayList<MenuItem>();
+        for(int i = 0; i < 40; i++){
+            menu.add(new MenuItem("Item " + i, BigDecimal.valueOf(50 + i * 25L, 2), Category.values()[i % Category.values().length]));
+        }
+        var random = new Random(42);
+        var cart = new Cart();
+        var model = new LinkedHashMap<String, Integer>();
+        var snapshots = new ArrayList<List<CartItem>>();
+        var expected = new ArrayList<List<String>>();
+        for(int step = 0; step < 3_000; step++){
+            var item = menu.get(random.nextInt(menu.size()));
+            switch(random.nextInt(4)){
+                case 0, 1 -> {
+                    cart.add(item, 1 + random.nextInt(3));
+                    model.put(item.getName(), cart.items().stream()
+                            .filter(li -> li.getItem() == item).findFirst().orElseThrow().getQuantity());
+                }
+                case 2 -> {
+                    cart.remove(item.getName());
+                    model.remove(item.getName());
+                }
+                default -> {
+                    if(model.containsKey(item.getName())){
+                        int qty = 1 + random.nextInt(9);
+                        cart.updateQty(item, qty);
+                        model.put(item.getName(), qty);
+                    }
+                }
+            }
+            var lines = cart.items();
+            var described = new ArrayList<String>();
+            long cents = 0;
+            for(int i = 0; i < lines.size(); i++){
+                described.add(lines.get(i).getItem().getName() + "x" + lines.get(i).getQuantity());
+                cents += lines.get(i).lineTotalCents();
+            }
+            var fromModel = new ArrayList<String>();
+            model.forEach((name, qty) -> fromModel.add(name + "x" + qty));
+            assertEquals(fromModel, described);
+            assertEquals(cents, cart.getSubtotalCents());
+            if(step % 100 == 0){
+                snapshots.add(lines);
+                expected.add(described);
+            }
+        }
+        for(int i = 0; i < snapshots.size(); i++){
+            assertEquals(expected.get(i), snapshots.get(i).stream().map(li -> li.getItem().getName() + "x" + li.getQuantity()).toList());
+        }
+    }
+
+    @Test
+    public void listenersGetTypedChangesWithPositions(){
+        var coffee = new MenuItem("Coffee", new BigDecimal("3.00"), Category.DRINK);
+        var tea = new MenuItem("Tea", new BigDecimal("2.50"), Category.DRINK);
+        var croissant = new MenuItem("Croissant", new BigDecimal("4.25"), Category.BAKERY);
+        Cart cart = new Cart();
+        var changes = new ArrayList<CartChange>();
+        cart.addChangeListener(changes::add);
+
+        cart.add(coffee, 1);
+        cart.add(tea, 1);
+        cart.add(croissant, 1);
+        cart.add(tea, 2);
+        cart.updateQty(croissant, 4);
+        cart.updateQty(croissant, 4); // unchanged, nothing to report
+        cart.remove("Coffee");
+        cart.remove("Coffee");
+        cart.undo();
+        cart.clear();
+
+        assertEquals(8, changes.size());
+        assertEquals(new CartChange.LineAdded(changes.get(2).lines(), 2, changes.get(2).lines().get(2)), changes.get(2));
+        var merged = (CartChange.QuantityChanged) changes.get(3);
+        assertEquals(1, merged.index());
+        assertEquals(1, merged.before().getQuantity());
+        assertEquals(3, merged.after().getQuantity());
+        assertEquals(2, ((CartChange.QuantityChanged) changes.get(4)).index());
+        var removed = (CartChange.LineRemoved) changes.get(5);
+        assertEquals(0, removed.index());
+        assertEquals(List.of("Tea", "Croissant"), removed.lines().stream().map(li -> li.getItem().getName()).toList());
+        var restored = (CartChange.Restored) changes.get(6);
+        assertSame(removed.lines(), restored.previous());
+        assertEquals(3, restored.lines().size());
+        var cleared = (CartChange.Cleared) changes.get(7);
+        assertSame(restored.lines(), cleared.removed());
+        assertTrue(cleared.lines().isEmpty());
+    }
 }
@@ -0,0 +1,103 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.model.BeverageCategory;
+import com.arthur.marchetti.model.Category;
+import com.arthur.marchetti.model.MenuItem;
+import com.arthur.marchetti.repo.CatalogIndex;
+import com.arthur.marchetti.repo.InMemoryCatalogRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogIndexTest {
+
+    @Test
+    void default_catalog_is_indexed_by_category_and_name() {
+        var repo = new InMemoryCatalogRepository();
+        assertEquals(List.of("Coffee", "Tea"), repo.byCategory(Category.DRINK).stream().map(MenuItem::getName).toList());
+        assertEquals(4, repo.byCategory(Category.SANDWITCH).size());
+        assertEquals(new BigDecimal("4.25"), repo.byName("Croissant").orElseThrow().getPrice());
+        assertTrue(repo.byName("croissant").isEmpty());
+    }
+
+    @Test
+    void search_puts_prefix_matches_first() {
+        var repo = new InMemoryCatalogRepository();
+        assertEquals(List.of("Coffee", "Croissant", "Club Sandwitch", "Cuban sandwich", "Pesto focaccia sandwich",
+                        "Egg sandwich"),
+                repo.search("c").stream().map(MenuItem::getName).toList());
+        assertEquals(List.of("Club Sandwitch", "Cuban sandwich", "Pesto focaccia sandwich", "Egg sandwich"),
+                repo.search("SANDWI").stream().map(MenuItem::getName).toList());
+        assertEquals(List.of("Pesto focaccia sandwich"), repo.search("focac").stream().map(MenuItem::getName).toList());
+        assertTrue(repo.search("pizza").isEmpty());
+        assertEquals(repo.all().size(), repo.search("  ").size());
+    }
+
+    @Test
+    void search_matches_a_linear_scan_on_a_large_catalog() {
+        var random = new Random(3);
+        var words = new String[]{"latte", "mocha", "flat", "white", "oat", "bagel", "rye", "turkey", "brie", "club"};
+        var items = new ArrayList<MenuItem>();
+        for (int i = 0; i < 20_000; i++) {
+            String name = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " #" + i;
+            items.add(new MenuItem(name, BigDecimal.valueOf(100 + i, 2),
+                    i % 7 == 0 ? BeverageCategory.HOT : Category.values()[i % 4]));
+        }
+        var index = new CatalogIndex(items);
+        for (var q : new String[]{"la", "latte", "at", "TE MO", "ye tu", "#1999", "oat oat", "xyz"}) {
+            String folded = q.toLowerCase(Locale.ROOT);
+            var expected = new ArrayList<MenuItem>();
+            items.stream().filter(m -> m.getName().toLowerCase(Locale.ROOT).startsWith(folded)).forEach(expected::add);
+            items.stream().filter(m -> m.getName().toLowerCase(Locale.ROOT).indexOf(folded) > 0).forEach(expected::add);
+            assertEquals(expected, index.search(q), q);
+        }
+        assertEquals(items.stream().filter(m -> m.getCategory() == Category.MEAL).toList(), index.byCategory(Category.MEAL));
+    }
+
+    @Test
+    void narrowing_while_typing_gives_what_a_fresh_search_gives() {
+        var random = new Random(7);
+        var words = new String[]{"latte", "mocha", "flat", "white", "oat", "bagel", "rye", "turkey", "brie", "club"};
+        var items = new ArrayList<MenuItem>();
+        for (int i = 0; i < 5_000; i++) {
+            items.add(new MenuItem(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " #" + i,
+                    BigDecimal.ONE, Category.values()[i % 4]));
+        }
+        var index = new CatalogIndex(items);
+        // typing on narrows, backspacing and retyping start over, and each step must match search()
+        for (var typed : List.of("l", "la", "lat", "latt", "latte", "latte ", "latte m", "latt", "lat", "at", "oat w",
+                "OAT WHITE #1", "", "c", "cl", "xcl", "club brie")) {
+            var matches = index.matches("");
+            for (int end = 1; end <= typed.length(); end++) {
+                var next = matches.narrow(typed.substring(0, end));
+                assertEquals(index.search(typed.substring(0, end)), next.items(), typed.substring(0, end));
+                matches = next;
+            }
+        }
+        var latte = index.matches("latte");
+        assertSame(latte, latte.narrow(" LATTE "));
+        assertEquals(latte.items().size(), latte.size());
+        assertEquals(index.search("te"), latte.narrow("te").items());
+        assertTrue(latte.narrow("latte zzz").items().isEmpty());
+    }
+
+    @Test
+    void a_search_on_an_interrupted_thread_is_cancelled() {
+        var items = new ArrayList<MenuItem>();
+        for (int i = 0; i < 10_000; i++) items.add(new MenuItem("Item " + i, BigDecimal.ONE, Category.DRINK));
+        var index = new CatalogIndex(items);
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(java.util.concurrent.CancellationException.class, () -> index.search("it"));
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(10_000, index.search("it").size());
+    }
+}
@@ -0,0 +1,87 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.model.BeverageCategory;
+import com.arthur.marchetti.model.Category;
+import com.arthur.marchetti.model.MenuItem;
+import com.arthur.marchetti.repo.FileCatalogRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileCatalogRepositoryTest {
+
+    @TempDir
+    Path temp;
+
+    private static final String MENU = """
+            sku,name,category,price
+            # drinks
+            DRK-1,Coffee,DRINK,3.00
+            DRK-2,"Tea, green",drink,2.50
+            BEV-1,Espresso,HOT,2.75
+            SND-1,Club Sandwitch,SANDWITCH,9.50
+            """;
+
+    @Test
+    void loads_csv_into_snapshot() throws IOException {
+        Path file = temp.resolve("catalog.csv");
+        Files.writeString(file, MENU);
+
+        try (var repo = new FileCatalogRepository(file)) {
+            assertEquals(4, repo.all().size());
+            assertEquals(List.of("Coffee", "Tea, green"), repo.byCategory(Category.DRINK).stream().map(MenuItem::getName).toList());
+            MenuItem espresso = repo.byName("Espresso").orElseThrow();
+            assertEquals(BeverageCategory.HOT, espresso.getCategory());
+            assertEquals("BEV-1", espresso.getSku());
+            assertEquals(List.of("Club Sandwitch"), repo.search("club").stream().map(MenuItem::getName).toList());
+        }
+    }
+
+    @Test
+    void bad_file_keeps_previous_snapshot() throws IOException {
+        Path file = temp.resolve("catalog.csv");
+        Files.writeString(file, MENU);
+
+        try (var repo = new FileCatalogRepository(file)) {
+            var before = repo.snapshot();
+            Files.writeString(file, "DRK-1,Coffee,DRINK,free\n");
+            var e = assertThrows(IOException.class, repo::reload);
+            assertTrue(e.getMessage().contains("line 1"));
+            assertSame(before, repo.snapshot());
+
+            Files.writeString(file, "DRK-1,Coffee,LUNCH,3.00\n");
+            assertThrows(IOException.class, repo::reload);
+            assertSame(before, repo.snapshot());
+        }
+    }
+
+    @Test
+    void watcher_picks_up_price_change() throws Exception {
+        Path file = temp.resolve("catalog.csv");
+        Files.writeString(file, MENU);
+
+        try (var repo = new FileCatalogRepository(file)) {
+            var reloaded = new CountDownLatch(1);
+            repo.addReloadListener(reloaded::countDown);
+            repo.watch();
+
+            // write next to it and rename over, the way deploy scripts replace the file
+            Path staged = temp.resolve("catalog.csv.tmp");
+            Files.writeString(staged, MENU.replace("Coffee,DRINK,3.00", "Coffee,DRINK,3.25"));
+            Files.move(staged, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            assertTrue(reloaded.await(10, TimeUnit.SECONDS), "no reload after file change");
+            assertEquals(new BigDecimal("3.25"), repo.byName("Coffee").orElseThrow().getPrice());
+        }
+    }
+}
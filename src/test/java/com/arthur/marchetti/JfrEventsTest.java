@@ -0,0 +1,87 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.model.Cart;
+import com.arthur.marchetti.model.Category;
+import com.arthur.marchetti.model.FlatRateTaxCalculator;
+import com.arthur.marchetti.model.MenuItem;
+import com.arthur.marchetti.model.Order;
+import com.arthur.marchetti.repo.SegmentedReceiptLog;
+import com.arthur.marchetti.services.ReceiptPipeline;
+import com.arthur.marchetti.services.ReceiptPipeline.Sink;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventsTest {
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void order_lifecycle_is_recorded_with_order_id_and_sizes() throws Exception {
+        var tax = new FlatRateTaxCalculator(new BigDecimal("0.06"));
+        List<RecordedEvent> events;
+        try (var recording = new Recording();
+             var log = new SegmentedReceiptLog(temp.resolve("log"))) {
+            for (String name : List.of("CartChanged", "OrderSnapshot", "TaxCalculated", "ReceiptRendered", "ReceiptPersisted")) {
+                recording.enable("com.arthur.marchetti." + name).withoutThreshold();
+            }
+            recording.start();
+
+            var cart = new Cart();
+            cart.add(new MenuItem("Coffee", new BigDecimal("3.00"), Category.DRINK), 2);
+            cart.add(new MenuItem("Croissant", new BigDecimal("4.25"), Category.BAKERY), 1);
+            var order = new Order("20250101_120000", "Alice", Instant.now(), cart.items(),
+                    cart.getSubtotal(), cart.getTax(tax), cart.getTotal(tax));
+            try (var pipeline = new ReceiptPipeline(List.of(Sink.text("log", log)), ZoneId.systemDefault())) {
+                assertTrue(pipeline.process(order).get(0).ok());
+            }
+
+            recording.stop();
+            Path file = temp.resolve("order.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        var changes = named(events, "CartChanged");
+        assertEquals(2, changes.size());
+        assertEquals("Croissant", changes.get(1).getString("item"));
+        assertEquals(2, changes.get(1).getInt("lineCount"));
+        assertEquals(1025, changes.get(1).getLong("subtotalCents"));
+
+        var snapshot = named(events, "OrderSnapshot").get(0);
+        assertEquals("20250101_120000", snapshot.getString("orderId"));
+        assertEquals(3, snapshot.getInt("itemCount"));
+
+        assertTrue(named(events, "TaxCalculated").stream().anyMatch(e -> e.getLong("taxCents") == 62));
+
+        var rendered = named(events, "ReceiptRendered").get(0);
+        assertEquals("20250101_120000", rendered.getString("orderId"));
+        assertTrue(rendered.getLong("bytes") > 0);
+
+        var persisted = named(events, "ReceiptPersisted");
+        var sink = persisted.stream().filter(e -> e.getString("store").equals("sink:log")).findFirst().orElseThrow();
+        var append = persisted.stream().filter(e -> e.getString("store").equals("log")).findFirst().orElseThrow();
+        assertEquals("20250101_120000", sink.getString("orderId"));
+        assertTrue(sink.getBoolean("succeeded"));
+        assertEquals("log:1", append.getString("location"));
+        // the log append runs inside the sink write, on the same thread
+        assertEquals(sink.getThread().getJavaThreadId(), append.getThread().getJavaThreadId());
+        assertFalse(append.getStartTime().isBefore(sink.getStartTime()));
+        assertFalse(append.getEndTime().isAfter(sink.getEndTime()));
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals("com.arthur.marchetti." + name)).toList();
+    }
+}
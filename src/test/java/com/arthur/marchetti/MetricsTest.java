@@ -0,0 +1,89 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.metrics.LatencyHistogram;
+import com.arthur.marchetti.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void percentiles_stay_within_bucket_precision() {
+        var histogram = new Metrics().histogram("test.latency");
+        var random = new Random(42);
+        var values = new ArrayList<Long>();
+        for (int i = 0; i < 100_000; i++) {
+            // mostly around 50 µs with a long tail up to 200 ms
+            long v = i % 500 == 0 ? 1_000_000 + random.nextInt(200_000_000) : 20_000 + random.nextInt(60_000);
+            values.add(v);
+            histogram.record(v);
+        }
+        Collections.sort(values);
+        var s = histogram.snapshot();
+        assertEquals(100_000, s.count());
+        assertEquals(values.get(values.size() - 1), s.maxNanos());
+        assertClose(exact(values, 0.50), s.p50Nanos());
+        assertClose(exact(values, 0.99), s.p99Nanos());
+        assertClose(exact(values, 0.999), s.p999Nanos());
+        assertEquals(values.stream().mapToLong(Long::longValue).sum(), s.sumNanos());
+    }
+
+    @Test
+    void small_and_huge_values_have_buckets() {
+        var histogram = new Metrics().histogram("edges");
+        histogram.record(0);
+        histogram.record(-5);
+        histogram.record(7);
+        histogram.record(Long.MAX_VALUE);
+        var s = histogram.snapshot();
+        assertEquals(4, s.count());
+        assertEquals(0, s.p50Nanos());
+        assertEquals(Long.MAX_VALUE, s.p999Nanos());
+        assertEquals(0, new Metrics().histogram("empty").snapshot().p99Nanos());
+    }
+
+    @Test
+    void metrics_are_shared_by_name_and_show_up_in_jmx_and_the_report() throws Exception {
+        var metrics = new Metrics();
+        var early = metrics.counter("orders");
+        assertSame(early, metrics.counter("orders"));
+        assertThrows(IllegalArgumentException.class, () -> metrics.counter("bad name"));
+
+        var server = MBeanServerFactory.newMBeanServer();
+        metrics.registerMBeans(server);
+        LatencyHistogram late = metrics.histogram("checkout");
+        early.add(3);
+        late.record(2_000_000);
+
+        assertEquals(3L, server.getAttribute(new ObjectName("com.arthur.marchetti:type=Counter,name=orders"), "Count"));
+        var name = new ObjectName("com.arthur.marchetti:type=Histogram,name=checkout");
+        assertEquals(1L, server.getAttribute(name, "Count"));
+        assertEquals(2.0, (Double) server.getAttribute(name, "P99Millis"), 2.0 / 16);
+
+        metrics.histogram("idle");
+        List<String> report = metrics.report();
+        assertEquals(2, report.size());
+        assertTrue(report.get(0).startsWith("orders count=3"));
+        assertTrue(report.get(1).startsWith("checkout count=1 mean=2.000ms"));
+
+        metrics.unregisterMBeans();
+        assertFalse(server.isRegistered(name));
+    }
+
+    private static long exact(List<Long> sorted, double quantile) {
+        return sorted.get((int) Math.ceil(quantile * sorted.size()) - 1);
+    }
+
+    private static void assertClose(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / 16,
+                () -> "expected " + expected + " (+6.25%) but was " + actual);
+    }
+}
@@ -0,0 +1,72 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void divide_matches_big_decimal_for_every_rounding_mode() {
+        var random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long numerator = random.nextInt(2_000_001) - 1_000_000;
+            long divisor = 1 + random.nextInt(i % 2 == 0 ? 10 : 1000);
+            for (var mode : RoundingMode.values()) {
+                if (mode == RoundingMode.UNNECESSARY) continue;
+                long expected = BigDecimal.valueOf(numerator).divide(BigDecimal.valueOf(divisor), 0, mode).longValueExact();
+                assertEquals(expected, Money.divide(numerator, divisor, mode), numerator + "/" + divisor + " " + mode);
+            }
+        }
+    }
+
+    @Test
+    void flat_rate_cents_path_matches_big_decimal_path() {
+        var random = new Random(7);
+        for (var rate : new String[]{"0.06", "0.0825", "0.13", "0", "1.5", "0.0000001"}) {
+            var calc = new FlatRateTaxCalculator(new BigDecimal(rate));
+            for (int i = 0; i < 5_000; i++) {
+                long cents = i < 1_000 ? i : random.nextInt(10_000_000);
+                var expected = calc.tax(BigDecimal.valueOf(cents, 2));
+                assertEquals(expected, BigDecimal.valueOf(calc.taxCents(cents), 2), rate + " on " + cents);
+            }
+        }
+        // rates that do not fit in a long fall back to BigDecimal arithmetic
+        var exotic = new FlatRateTaxCalculator(new BigDecimal(0.06));
+        assertEquals(exotic.tax(new BigDecimal("123.45")), BigDecimal.valueOf(exotic.taxCents(12_345), 2));
+    }
+
+    @Test
+    void cart_keeps_cents_and_big_decimal_views_in_step() {
+        var cart = new Cart();
+        var coffee = new MenuItem("Coffee", new BigDecimal("3.00"), Category.DRINK);
+        var croissant = new MenuItem("Croissant", new BigDecimal("4.25"), Category.BAKERY);
+        cart.add(coffee, 3);
+        cart.add(croissant, 2);
+        cart.updateQty(coffee, 1);
+        var tax = new FlatRateTaxCalculator(new BigDecimal("0.06"));
+
+        assertEquals(1150, cart.getSubtotalCents());
+        assertEquals(Money.of(cart.getSubtotal()), cart.getSubtotalMoney());
+        assertEquals(Money.of(cart.getTax(tax)).cents(), cart.getTaxCents(tax));
+        assertEquals(Money.of(cart.getTotal(tax)).cents(), cart.getTotalCents(tax));
+        assertEquals(850, cart.getCategorySubtotalCents(Category.BAKERY));
+    }
+
+    @Test
+    void money_conversions_are_explicit_about_rounding() {
+        assertEquals(1234, Money.of(new BigDecimal("12.34")).cents());
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("12.345")));
+        assertEquals(1235, Money.of(new BigDecimal("12.345"), RoundingMode.HALF_UP).cents());
+        assertEquals(1234, Money.of(new BigDecimal("12.345"), RoundingMode.HALF_EVEN).cents());
+        assertEquals(new BigDecimal("0.75"), Money.ofCents(25).times(3).toBigDecimal());
+        assertEquals(Money.ofCents(18), Money.ofCents(300).multiply(new BigDecimal("0.06"), RoundingMode.HALF_UP));
+        assertThrows(IllegalArgumentException.class,
+                () -> new MenuItem("Half cent", new BigDecimal("0.005"), Category.DRINK));
+    }
+}
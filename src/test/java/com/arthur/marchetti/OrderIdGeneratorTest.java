@@ -0,0 +1,83 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.model.OrderIdGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderIdGeneratorTest {
+
+    // a clock the test moves by hand
+    private static final class ManualClock extends Clock {
+        final AtomicLong millis = new AtomicLong(Instant.parse("2025-06-01T12:00:00Z").toEpochMilli());
+        @Override public ZoneId getZone() { return ZoneId.of("UTC"); }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+        @Override public Instant instant() { return Instant.ofEpochMilli(millis.get()); }
+    }
+
+    @Test
+    void ids_keep_increasing_through_bursts_and_clock_steps_back() {
+        var clock = new ManualClock();
+        var ids = new OrderIdGenerator(37, clock);
+        long first = ids.next();
+        assertEquals(Instant.parse("2025-06-01T12:00:00Z"), OrderIdGenerator.timestampOf(first));
+        assertEquals(37, OrderIdGenerator.terminalOf(first));
+
+        long prev = first;
+        for (int i = 0; i < 10_000; i++) { // more than one millisecond's worth of sequence numbers
+            long id = ids.next();
+            assertTrue(id > prev);
+            assertEquals(37, OrderIdGenerator.terminalOf(id));
+            prev = id;
+        }
+        clock.millis.addAndGet(-60_000);
+        assertTrue(ids.next() > prev);
+
+        clock.millis.addAndGet(120_000);
+        long later = ids.next();
+        assertEquals(Instant.parse("2025-06-01T12:01:00Z"), OrderIdGenerator.timestampOf(later));
+    }
+
+    @Test
+    void terminals_never_collide_and_threads_get_unique_ids() throws Exception {
+        var clock = new ManualClock();
+        var a = new OrderIdGenerator(1, clock);
+        var b = new OrderIdGenerator(2, clock);
+        assertNotEquals(a.next(), b.next());
+
+        var seen = ConcurrentHashMap.<Long>newKeySet();
+        var threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) assertTrue(seen.add(a.next()));
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+        assertEquals(200_000, seen.size());
+    }
+
+    @Test
+    void display_form_round_trips_and_sorts_like_the_ids() {
+        var ids = new OrderIdGenerator(1023);
+        long one = ids.next();
+        long two = ids.next();
+        String first = OrderIdGenerator.format(one);
+        String second = OrderIdGenerator.format(two);
+        assertEquals(13, first.length());
+        assertTrue(first.compareTo(second) < 0);
+        assertEquals(one, OrderIdGenerator.parse(first));
+        assertEquals(two, OrderIdGenerator.parse(second.toLowerCase().substring(0, 6) + "-" + second.substring(6)));
+        assertEquals(OrderIdGenerator.parse("0000000000011"), OrderIdGenerator.parse("OOOOOOOOOOOiL"));
+        assertEquals("7ZZZZZZZZZZZZ", OrderIdGenerator.format(Long.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> OrderIdGenerator.parse("0000000000U00"));
+        assertThrows(IllegalArgumentException.class, () -> OrderIdGenerator.parse("00000000000"));
+        assertThrows(IllegalArgumentException.class, () -> new OrderIdGenerator(1024));
+    }
+}
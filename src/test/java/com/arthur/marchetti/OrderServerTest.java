@@ -0,0 +1,144 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.model.FlatRateTaxCalculator;
+import com.arthur.marchetti.repo.InMemoryCatalogRepository;
+import com.arthur.marchetti.repo.SqliteReceiptRepository;
+import com.arthur.marchetti.repo.WriteBehindReceiptRepository;
+import com.arthur.marchetti.server.OrderServer;
+import com.arthur.marchetti.services.CartSessionRegistry;
+import com.arthur.marchetti.services.ReceiptService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderServerTest {
+
+    @TempDir
+    Path temp;
+
+    private SqliteReceiptRepository sqlite;
+    private WriteBehindReceiptRepository receipts;
+    private CartSessionRegistry sessions;
+    private OrderServer server;
+    private HttpClient client;
+    private String base;
+
+    @BeforeEach
+    void start() throws Exception {
+        sqlite = SqliteReceiptRepository.open(temp.resolve("receipts.db"), SqliteReceiptRepository.Synchronous.NORMAL);
+        receipts = new WriteBehindReceiptRepository(sqlite, 4096, 256, 5);
+        sessions = new CartSessionRegistry(10_000, Duration.ofMinutes(5));
+        var service = new ReceiptService(new FlatRateTaxCalculator(new BigDecimal("0.06")));
+        server = new OrderServer(new InetSocketAddress("127.0.0.1", 0), new InMemoryCatalogRepository(), sessions, service, receipts);
+        server.start();
+        base = "http://127.0.0.1:" + server.address().getPort();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        server.close();
+        receipts.close();
+        sqlite.close();
+    }
+
+    @Test
+    void browse_fill_cart_and_checkout() throws Exception {
+        var catalog = send("GET", "/catalog?category=drink", null);
+        assertEquals(200, catalog.statusCode());
+        assertTrue(catalog.body().contains("\"name\":\"Coffee\"") && catalog.body().contains("\"name\":\"Tea\""));
+
+        String session = field(send("POST", "/sessions", null).body(), "session");
+        assertEquals(200, send("POST", "/sessions/" + session + "/cart", "item=Coffee&qty=2").statusCode());
+        assertEquals(200, send("POST", "/sessions/" + session + "/cart", "item=Croissant").statusCode());
+        var cart = send("PUT", "/sessions/" + session + "/cart", "item=Coffee&qty=3");
+        assertTrue(cart.body().contains("\"subtotal\":13.25"), cart.body());
+        assertTrue(cart.body().contains("\"total\":14.05"), cart.body());
+
+        assertEquals(400, send("POST", "/sessions/" + session + "/cart", "item=Pizza").statusCode());
+        assertEquals(400, send("POST", "/sessions/" + session + "/checkout", null).statusCode());
+        var wrongMethod = send("GET", "/sessions/" + session + "/checkout", null);
+        assertEquals(405, wrongMethod.statusCode());
+        assertEquals("POST", wrongMethod.headers().firstValue("Allow").orElse(null));
+
+        var checkout = send("POST", "/sessions/" + session + "/checkout", "customer=Alice");
+        assertEquals(200, checkout.statusCode(), checkout.body());
+        long id = Long.parseLong(field(checkout.body(), "receiptId"));
+        var stored = sqlite.findById(id).orElseThrow();
+        assertEquals("Alice", stored.customerName());
+        assertEquals("14.05", stored.total());
+
+        assertEquals(409, send("POST", "/sessions/" + session + "/checkout", "customer=Alice").statusCode());
+        assertEquals(204, send("DELETE", "/sessions/" + session, null).statusCode());
+        assertEquals(404, send("GET", "/sessions/" + session + "/cart", null).statusCode());
+    }
+
+    // Many terminals ordering at once: every checkout gets its own receipt and nothing is lost. The server runs
+    // with the JDK's default HttpServer settings, so stay under its 200 idle keep-alive connections: past that
+    // it closes connections the client is about to reuse. ServerMain raises the limit for real deployments.
+    @Test
+    void concurrent_orders_all_get_receipts() throws Exception {
+        int orders = 1_000;
+        var inFlight = new Semaphore(100);
+        var results = new ArrayList<CompletableFuture<Long>>();
+        for (int i = 0; i < orders; i++) {
+            inFlight.acquire();
+            var order = sendAsync("POST", "/sessions", null)
+                    .thenCompose(r -> {
+                        String s = field(r.body(), "session");
+                        return sendAsync("POST", "/sessions/" + s + "/cart", "item=Coffee&qty=2")
+                                .thenCompose(x -> sendAsync("POST", "/sessions/" + s + "/cart", "item=Salad"))
+                                .thenCompose(x -> sendAsync("POST", "/sessions/" + s + "/checkout", "customer=Guest"));
+                    })
+                    .thenApply(r -> {
+                        assertEquals(200, r.statusCode(), r.body());
+                        return Long.parseLong(field(r.body(), "receiptId"));
+                    })
+                    .whenComplete((id, e) -> inFlight.release());
+            results.add(order);
+        }
+        var ids = new HashSet<Long>();
+        for (var r : results) ids.add(r.get(60, TimeUnit.SECONDS));
+        assertEquals(orders, ids.size());
+        assertEquals(orders, sqlite.findByCustomer("Guest").count());
+    }
+
+    private HttpResponse<String> send(String method, String path, String form) throws Exception {
+        return client.send(request(method, path, form), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private CompletableFuture<HttpResponse<String>> sendAsync(String method, String path, String form) {
+        return client.sendAsync(request(method, path, form), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest request(String method, String path, String form) {
+        var builder = HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(30));
+        if (form == null) return builder.method(method, HttpRequest.BodyPublishers.noBody()).build();
+        return builder.header("Content-Type", "application/x-www-form-urlencoded")
+                .method(method, HttpRequest.BodyPublishers.ofString(form)).build();
+    }
+
+    private static String field(String json, String name) {
+        var m = Pattern.compile("\"" + name + "\":\"?([^\",}]*)").matcher(json);
+        assertTrue(m.find(), json);
+        return m.group(1);
+    }
+}
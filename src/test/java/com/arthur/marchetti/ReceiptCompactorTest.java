@@ -0,0 +1,222 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.repo.ReceiptArchive;
+import com.arthur.marchetti.repo.SegmentedReceiptLog;
+import com.arthur.marchetti.repo.SqliteReceiptRepository;
+import com.arthur.marchetti.services.ReceiptCompactor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceiptCompactorTest {
+
+    @TempDir
+    Path temp;
+
+    private static final ZoneId ZONE = ZoneOffset.UTC;
+
+    private static List<String> receipt(int n) {
+        return List.of("Cafe Receipt", "Order: 20250101_1200" + n, "Item                 Qty   Price   Total",
+                "Coffee                 " + n + "    3.00    " + (3 * n) + ".00", "Total:                            3.18");
+    }
+
+    // 40 days from now with a 30 day limit, so everything written during the test is old enough
+    private static ReceiptCompactor compactor(Path archiveDir) {
+        var later = Clock.fixed(Instant.now().plus(Duration.ofDays(40)), ZONE);
+        return new ReceiptCompactor(archiveDir, Duration.ofDays(30), ZONE, later);
+    }
+
+    @Test
+    void text_files_older_than_the_cutoff_are_archived_per_day() throws Exception {
+        Path dir = temp.resolve("receipts");
+        Files.createDirectories(dir);
+        Files.write(dir.resolve("receipt_20250101_090000.txt"), receipt(1));
+        Files.write(dir.resolve("receipt_20250101_170000.txt"), receipt(2));
+        Files.write(dir.resolve("receipt_20250102_120000.txt"), receipt(3));
+        Path recent = dir.resolve("receipt_" + LocalDate.now(ZONE).toString().replace("-", "") + "_120000.txt");
+        Files.write(recent, receipt(4));
+
+        var compactor = new ReceiptCompactor(temp.resolve("archive"), Duration.ofDays(30), ZONE);
+        compactor.addTextDirectory(dir);
+        assertEquals(3, compactor.runOnce());
+        assertEquals(0, compactor.runOnce());
+
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(recent), files.toList());
+        }
+        var day = ReceiptArchive.open(ReceiptArchive.fileFor(temp.resolve("archive"), LocalDate.of(2025, 1, 1)));
+        assertEquals(2, day.size());
+        var entry = compactor.find("file:receipt_20250101_170000.txt").orElseThrow();
+        assertEquals(receipt(2), entry.text().lines().toList());
+        assertEquals(Instant.parse("2025-01-01T17:00:00Z"), entry.createdAt());
+        assertTrue(compactor.find("file:receipt_20250103_120000.txt").isEmpty());
+    }
+
+    @Test
+    void database_rows_keep_amounts_and_read_text_from_the_archive() throws Exception {
+        try (var db = SqliteReceiptRepository.open(temp.resolve("receipts.db"), SqliteReceiptRepository.Synchronous.NORMAL)) {
+            long first = db.save(receipt(1), "Alice", "3.00", "0.18", "3.18");
+            long second = db.save(receipt(2), "Bob", "6.00", "0.36", "6.36");
+
+            var compactor = compactor(temp.resolve("archive"));
+            compactor.addDatabase(db);
+            assertEquals(2, compactor.runOnce());
+            assertTrue(db.findUnarchivedBefore(compactor.cutoff().atStartOfDay(), 10).isEmpty());
+
+            var stored = db.findById(second).orElseThrow();
+            assertEquals("6.36", stored.total());
+            assertEquals(receipt(2), stored.lines());
+            assertEquals(receipt(1), compactor.find(SqliteReceiptRepository.archiveKey(first)).orElseThrow()
+                    .text().lines().toList());
+
+            // a third receipt archived later lands in the same day file without losing the first two
+            long third = db.save(receipt(3), "Carol", "9.00", "0.54", "9.54");
+            assertEquals(1, compactor.runOnce());
+            assertEquals(receipt(3), db.findById(third).orElseThrow().lines());
+            assertEquals(receipt(1), db.findById(first).orElseThrow().lines());
+        }
+    }
+
+    @Test
+    void sealed_log_segments_are_archived_and_dropped() throws Exception {
+        Path logDir = temp.resolve("log");
+        int sealedCount;
+        long lastId;
+        try (var log = new SegmentedReceiptLog(logDir, 1024, 0)) {
+            for (int i = 1; i <= 50; i++) log.append(receipt(i % 9 + 1));
+            sealedCount = log.sealedSegments().size();
+            lastId = log.lastId();
+            assertTrue(sealedCount > 2);
+
+            var compactor = compactor(temp.resolve("archive"));
+            compactor.addLog(log);
+            int archived = compactor.runOnce();
+            assertTrue(archived > 0 && archived < 50);
+            assertTrue(log.sealedSegments().isEmpty());
+            assertTrue(log.read(1).isEmpty());
+            assertEquals(receipt(1 % 9 + 1), compactor.find(ReceiptCompactor.logKey(1)).orElseThrow().text().lines().toList());
+            assertTrue(log.read(lastId).isPresent());
+        }
+        try (var log = new SegmentedReceiptLog(logDir, 1024, 0)) {
+            assertEquals(lastId, log.lastId());
+            assertEquals(lastId + 1, log.append(receipt(1)));
+        }
+    }
+
+    @Test
+    void damaged_log_segments_are_kept() throws Exception {
+        Path logDir = temp.resolve("log");
+        List<Path> sealed;
+        try (var log = new SegmentedReceiptLog(logDir, 1024, 0)) {
+            for (int i = 1; i <= 50; i++) log.append(receipt(i % 9 + 1));
+            sealed = log.sealedSegments();
+            assertTrue(sealed.size() > 2);
+        }
+        // one segment rots after its index was written, the other is reindexed on open from the damaged file
+        corruptMiddle(sealed.get(0));
+        corruptMiddle(sealed.get(1));
+        Files.delete(logDir.resolve(sealed.get(1).getFileName().toString().replace(".log", ".idx")));
+
+        try (var log = new SegmentedReceiptLog(logDir, 1024, 0)) {
+            var compactor = compactor(temp.resolve("archive"));
+            compactor.addLog(log);
+            assertTrue(compactor.runOnce() > 0);
+            assertEquals(sealed.subList(0, 2), log.sealedSegments());
+            assertTrue(Files.exists(sealed.get(0)) && Files.exists(sealed.get(1)));
+            assertTrue(compactor.find(ReceiptCompactor.logKey(1)).isEmpty());
+            for (Path p : sealed.subList(2, sealed.size())) assertFalse(Files.exists(p));
+        }
+    }
+
+    private static void corruptMiddle(Path file) throws Exception {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x55;
+        Files.write(file, bytes);
+    }
+
+    @Test
+    void find_rereads_an_archive_replaced_after_it_was_cached() throws Exception {
+        Path dir = temp.resolve("archive");
+        Files.createDirectories(dir);
+        Path file = ReceiptArchive.fileFor(dir, LocalDate.of(2025, 1, 1));
+        ReceiptArchive.append(file, List.of(new ReceiptArchive.Entry("a", Instant.EPOCH, "first")));
+        var compactor = compactor(dir);
+        assertEquals("first", compactor.find("a").orElseThrow().text());
+
+        // written by someone else, as a concurrent compaction run would
+        ReceiptArchive.append(file, List.of(new ReceiptArchive.Entry("b", Instant.EPOCH, "second")));
+        assertEquals("second", compactor.find("b").orElseThrow().text());
+        assertEquals("first", compactor.find("a").orElseThrow().text());
+    }
+
+    @Test
+    void archive_compresses_receipts_well_below_their_text_size() throws Exception {
+        var entries = new ArrayList<ReceiptArchive.Entry>();
+        long raw = 0;
+        for (int i = 0; i < 500; i++) {
+            String text = String.join("\n", receipt(i % 9 + 1));
+            raw += text.length();
+            entries.add(new ReceiptArchive.Entry("k" + i, Instant.EPOCH, text));
+        }
+        Path file = temp.resolve("day.rca");
+        assertEquals(500, ReceiptArchive.append(file, entries));
+        assertEquals(0, ReceiptArchive.append(file, entries));
+        assertTrue(Files.size(file) < raw / 2, "archive " + Files.size(file) + " bytes for " + raw + " bytes of text");
+        assertEquals(entries.get(123).text(), ReceiptArchive.open(file).read("k123").orElseThrow().text());
+    }
+
+    // an RCA1 file as it was written before the dictionary was versioned, with that dictionary copied verbatim
+    @Test
+    void rca1_archives_stay_readable_and_are_rewritten_on_append() throws Exception {
+        byte[] dictionary = ("Cafe Receipt\nOrder: Date: Customer: Thank you!\n" +
+                " x Coffee @ 3.00 =  x Tea @ 2.50 =  x Croissant @ 4.25 =  sandwich @ " +
+                "Subtotal: Tax: Total: \n" +
+                "Item                 Qty   Price   Total\n" +
+                "------------------------------------------\n" +
+                "----------------------------------------\n" +
+                "Subtotal:                       \nTax:                            \nTotal:                          ")
+                .getBytes(StandardCharsets.UTF_8);
+        String text = String.join("\n", receipt(2));
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        var deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        deflater.setDictionary(dictionary);
+        deflater.setInput(raw);
+        deflater.finish();
+        byte[] block = new byte[raw.length + 64];
+        int length = deflater.deflate(block);
+        deflater.end();
+        var crc = new CRC32C();
+        crc.update(raw);
+        byte[] key = "old".getBytes(StandardCharsets.UTF_8);
+        var file = ByteBuffer.allocate(4 + length + 2 + key.length + 28 + 16)
+                .putInt(0x52434131).put(block, 0, length)
+                .putShort((short) key.length).put(key).putLong(0).putLong(4).putInt(length).putInt(raw.length)
+                .putInt((int) crc.getValue())
+                .putLong(4 + length).putInt(1).putInt(0x52434131);
+        Path path = temp.resolve("old.rca");
+        Files.write(path, file.array());
+
+        assertEquals(text, ReceiptArchive.open(path).read("old").orElseThrow().text());
+        assertEquals(1, ReceiptArchive.append(path, List.of(new ReceiptArchive.Entry("new", Instant.EPOCH, "Cafe Receipt"))));
+        var archive = ReceiptArchive.open(path);
+        assertEquals(text, archive.read("old").orElseThrow().text());
+        assertEquals("Cafe Receipt", archive.read("new").orElseThrow().text());
+        assertEquals(0x52434132, ByteBuffer.wrap(Files.readAllBytes(path)).getInt());
+    }
+}
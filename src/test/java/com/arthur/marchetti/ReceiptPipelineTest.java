@@ -0,0 +1,164 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.cli.ReceiptFormatter;
+import com.arthur.marchetti.model.Cart;
+import com.arthur.marchetti.model.Category;
+import com.arthur.marchetti.model.FlatRateTaxCalculator;
+import com.arthur.marchetti.model.MenuItem;
+import com.arthur.marchetti.model.Order;
+import com.arthur.marchetti.model.RenderedReceipt;
+import com.arthur.marchetti.repo.PrintSpool;
+import com.arthur.marchetti.repo.SegmentedReceiptLog;
+import com.arthur.marchetti.repo.SqliteReceiptRepository;
+import com.arthur.marchetti.services.ReceiptPipeline;
+import com.arthur.marchetti.services.ReceiptPipeline.Sink;
+import com.arthur.marchetti.services.ReceiptService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceiptPipelineTest {
+
+    @TempDir
+    Path temp;
+
+    private static final FlatRateTaxCalculator TAX = new FlatRateTaxCalculator(new BigDecimal("0.06"));
+
+    private static Cart cart() {
+        var cart = new Cart();
+        cart.add(new MenuItem("Coffee", new BigDecimal("3.00"), Category.DRINK), 2);
+        cart.add(new MenuItem("Croissant", new BigDecimal("4.25"), Category.BAKERY), 1);
+        return cart;
+    }
+
+    private static Order order(Cart cart) {
+        return new Order("20250101_120000", "Alice", Instant.now(), cart.items(),
+                cart.getSubtotal(), cart.getTax(TAX), cart.getTotal(TAX));
+    }
+
+    @Test
+    void renders_once_and_every_sink_stores_its_form() throws Exception {
+        var cart = cart();
+        var order = order(cart);
+        var seen = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<RenderedReceipt, Boolean>()));
+        try (var log = new SegmentedReceiptLog(temp.resolve("log"));
+             var db = SqliteReceiptRepository.open(temp.resolve("receipts.db"), SqliteReceiptRepository.Synchronous.NORMAL)) {
+            var sinks = List.of(
+                    Sink.text("log", log),
+                    Sink.database("db", db),
+                    Sink.text("print", new PrintSpool(temp.resolve("spool"))),
+                    new Sink("probe", r -> seen.add(r)));
+            var pipeline = new ReceiptPipeline(sinks, ZoneId.systemDefault());
+            List<ReceiptPipeline.SinkResult> results = pipeline.process(order);
+            pipeline.close();
+
+            assertEquals(List.of("log", "db", "print", "probe"), results.stream().map(ReceiptPipeline.SinkResult::sink).toList());
+            assertTrue(results.stream().allMatch(ReceiptPipeline.SinkResult::ok));
+            assertEquals(1, seen.size());
+
+            var customer = ReceiptFormatter.format(order);
+            assertEquals(customer.lines().toList(), log.read(1).orElseThrow().lines());
+            var stored = db.findById((Long) results.get(1).value()).orElseThrow();
+            assertEquals(new ReceiptService(TAX).render(cart), stored.lines());
+            assertEquals("Alice", stored.customerName());
+            assertEquals("10.87", stored.total());
+            Path job = (Path) results.get(2).value();
+            assertEquals(customer, Files.readString(job));
+            try (var files = Files.list(temp.resolve("spool"))) {
+                assertEquals(List.of(job), files.toList()); // no .tmp left behind
+            }
+        }
+    }
+
+    @Test
+    void slow_sink_does_not_hold_up_fast_one_and_failures_are_reported() throws Exception {
+        var release = new CountDownLatch(1);
+        var sinks = List.of(
+                new Sink("fast", r -> "done"),
+                new Sink("slow", r -> release.await(10, TimeUnit.SECONDS)),
+                new Sink("broken", r -> { throw new IOException("printer on fire"); }));
+        var pipeline = new ReceiptPipeline(sinks, ZoneId.systemDefault());
+        try {
+            var submission = pipeline.submit(order(cart()));
+            assertEquals("done", submission.result("fast").get(5, TimeUnit.SECONDS).value());
+            var broken = submission.result("broken").get(5, TimeUnit.SECONDS);
+            assertFalse(broken.ok());
+            assertEquals("printer on fire", broken.failure().getMessage());
+            assertFalse(submission.result("slow").isDone());
+            assertFalse(submission.all().isDone());
+
+            // a second receipt gets past the fast sink while the slow one is still stuck on the first
+            var second = pipeline.submit(order(cart()));
+            assertTrue(second.result("fast").get(5, TimeUnit.SECONDS).ok());
+
+            release.countDown();
+            assertEquals(3, second.all().get(5, TimeUnit.SECONDS).size());
+            var stats = pipeline.stats();
+            assertEquals(Set.of(2L), Set.copyOf(stats.stream().map(ReceiptPipeline.SinkStats::writes).toList()));
+            assertEquals(2, stats.get(2).failures());
+            assertEquals(0, stats.get(0).failures());
+            assertTrue(stats.get(1).maxNanos() >= stats.get(0).maxNanos());
+        } finally {
+            release.countDown();
+            pipeline.close();
+        }
+    }
+
+    @Test
+    void sink_throwing_an_error_still_gets_a_result() throws Exception {
+        var pipeline = new ReceiptPipeline(List.of(new Sink("log", r -> { throw new AssertionError("bug"); })),
+                ZoneId.systemDefault());
+        try {
+            var result = pipeline.submit(order(cart())).result("log").get(5, TimeUnit.SECONDS);
+            assertFalse(result.ok());
+            assertEquals("bug", result.failure().getMessage());
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    void failed_sink_can_be_retried_with_the_same_receipt() throws Exception {
+        var attempts = new AtomicInteger();
+        var written = Collections.synchronizedList(new ArrayList<RenderedReceipt>());
+        var sinks = List.of(
+                new Sink("log", r -> {
+                    if (attempts.incrementAndGet() == 1) throw new IOException("disk full");
+                    written.add(r);
+                    return "saved";
+                }),
+                new Sink("print", r -> { written.add(r); return "printed"; }));
+        var pipeline = new ReceiptPipeline(sinks, ZoneId.systemDefault());
+        try {
+            var submission = pipeline.submit(order(cart()));
+            assertFalse(submission.result("log").get(5, TimeUnit.SECONDS).ok());
+
+            var retry = pipeline.resubmit(submission.receipt(), "log").get(5, TimeUnit.SECONDS);
+            assertTrue(retry.ok());
+            assertEquals("saved", retry.value());
+            submission.all().get(5, TimeUnit.SECONDS);
+            assertEquals(2, written.size()); // printed once, logged once
+            assertSame(written.get(0), written.get(1));
+            assertThrows(IllegalArgumentException.class, () -> pipeline.resubmit(submission.receipt(), "nope"));
+        } finally {
+            pipeline.close();
+        }
+        assertThrows(IllegalStateException.class, () -> pipeline.resubmit(RenderedReceipt.of(order(cart()), ZoneId.systemDefault()), "log"));
+    }
+}
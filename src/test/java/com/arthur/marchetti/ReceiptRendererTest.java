@@ -0,0 +1,141 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.model.BeverageCategory;
+import com.arthur.marchetti.model.Cart;
+import com.arthur.marchetti.model.CartItem;
+import com.arthur.marchetti.model.Category;
+import com.arthur.marchetti.model.FlatRateTaxCalculator;
+import com.arthur.marchetti.model.MenuItem;
+import com.arthur.marchetti.model.Order;
+import com.arthur.marchetti.repo.FileReceiptRepository;
+import com.arthur.marchetti.repo.SegmentedReceiptLog;
+import com.arthur.marchetti.services.ReceiptRenderer;
+import com.arthur.marchetti.services.ReceiptService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceiptRendererTest {
+
+    @TempDir
+    Path temp;
+
+    private static final FlatRateTaxCalculator TAX = new FlatRateTaxCalculator(new BigDecimal("0.06"));
+
+    private static Cart cart() {
+        var cart = new Cart();
+        cart.add(new MenuItem("Coffee", new BigDecimal("3.00"), Category.DRINK), 2);
+        cart.add(new MenuItem("Croissant", new BigDecimal("4.25"), Category.BAKERY), 1);
+        cart.add(new MenuItem("Iced Matcha Latte Grande", new BigDecimal("6.5"), BeverageCategory.COLD), 12);
+        cart.add(new MenuItem("Café crème ☕", new BigDecimal("3"), BeverageCategory.HOT), 1000);
+        cart.add(new MenuItem("Catering tray 🥐", new BigDecimal("1234.99"), Category.BAKERY), 3);
+        return cart;
+    }
+
+    // the renderers this class replaced, kept here as the reference for the exact text
+    private static List<String> legacyTable(Cart cart) {
+        var lines = new ArrayList<String>();
+        lines.add("Item                 Qty   Price   Total");
+        for (var ci : cart.items()) {
+            lines.add(String.format(Locale.ROOT, "%-20s %3d %7.2f %7.2f",
+                    ci.getItem().getName(), ci.getQuantity(), ci.getItem().getPrice(), ci.lineTotal()));
+        }
+        BigDecimal sub = cart.getSubtotal();
+        BigDecimal tax = TAX.tax(sub);
+        lines.add("----------------------------------------");
+        lines.add(String.format(Locale.ROOT, "%-27s %10.2f", "Subtotal:", sub));
+        lines.add(String.format(Locale.ROOT, "%-27s %10.2f", "Tax:", tax));
+        lines.add(String.format(Locale.ROOT, "%-27s %10.2f", "Total:", sub.add(tax)));
+        return lines;
+    }
+
+    private static String legacyOrder(Order order, ZoneId zone) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Cafe Receipt\n");
+        sb.append("Order: ").append(order.orderId()).append("    Date: ")
+                .append(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(zone).format(order.timestamp())).append("\n");
+        sb.append("Customer: ").append(order.customerName()).append("\n");
+        sb.append("------------------------------------------\n");
+        for (CartItem li : order.lines()) {
+            sb.append(li.getQuantity()).append(" x ").append(li.getItem().getName())
+                    .append(" @ ").append(li.getItem().getPrice().toPlainString())
+                    .append(" = ").append(li.lineTotal().toPlainString()).append("\n");
+        }
+        sb.append("------------------------------------------\n");
+        sb.append("Subtotal: ").append(order.subtotal().toPlainString()).append("\n");
+        sb.append("Tax: ").append(order.tax().toPlainString()).append("\n");
+        sb.append("Total: ").append(order.total().toPlainString()).append("\n");
+        sb.append("Thank you!\n");
+        return sb.toString();
+    }
+
+    private static Order order(Cart cart) {
+        return new Order("20250101_120000", "Zoë", Instant.parse("2025-01-01T12:34:56Z"), cart.items(),
+                cart.getSubtotal(), cart.getTax(TAX), cart.getTotal(TAX));
+    }
+
+    @Test
+    void table_matches_the_string_format_layout() throws Exception {
+        var cart = cart();
+        var text = new StringBuilder();
+        ReceiptRenderer.renderTable(cart, TAX, "\n", text);
+        assertEquals(String.join("\n", legacyTable(cart)), text.toString());
+        assertEquals(legacyTable(cart), new ReceiptService(TAX).render(cart));
+
+        var bytes = new ReceiptRenderer().encodeTable(cart, TAX, "\r\n");
+        assertEquals(String.join("\r\n", legacyTable(cart)), StandardCharsets.UTF_8.decode(bytes).toString());
+    }
+
+    @Test
+    void order_matches_the_string_builder_layout() throws Exception {
+        var order = order(cart());
+        var text = new StringBuilder();
+        ReceiptRenderer.renderOrder(order, ZoneOffset.UTC, text);
+        assertEquals(legacyOrder(order, ZoneOffset.UTC), text.toString());
+
+        var renderer = new ReceiptRenderer();
+        for (int i = 0; i < 3; i++) { // the buffer is reused and grows as needed
+            var bytes = renderer.encodeOrder(order, ZoneOffset.UTC);
+            assertArrayEquals(legacyOrder(order, ZoneOffset.UTC).getBytes(StandardCharsets.UTF_8), toArray(bytes));
+        }
+    }
+
+    @Test
+    void encoded_receipts_store_like_their_lines() throws Exception {
+        var order = order(cart());
+        var renderer = new ReceiptRenderer();
+        var lines = legacyOrder(order, ZoneOffset.UTC).lines().toList();
+
+        try (var log = new SegmentedReceiptLog(temp.resolve("log"))) {
+            long fromLines = log.append(lines);
+            var bytes = renderer.encodeOrder(order, ZoneOffset.UTC);
+            long fromBytes = log.append(bytes);
+            assertFalse(bytes.hasRemaining());
+            assertEquals(lines, log.read(fromLines).orElseThrow().lines());
+            assertEquals(lines, log.read(fromBytes).orElseThrow().lines());
+        }
+
+        Path file = new FileReceiptRepository(temp.resolve("files")).save(renderer.encodeOrder(order, ZoneOffset.UTC));
+        assertEquals(lines, Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] toArray(ByteBuffer buf) {
+        byte[] b = new byte[buf.remaining()];
+        buf.get(b);
+        return b;
+    }
+}
@@ -27,6 +27,6 @@ public class ReceiptServiceTest {
 
         var lastLine = lines.get(lines.size() - 1);
 
-        assertTrue(lastLine.contains("Total:cu"));
+        assertTrue(lastLine.contains("Total:"));
     }
 }
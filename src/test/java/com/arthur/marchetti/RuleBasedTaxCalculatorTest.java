@@ -0,0 +1,86 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.model.BeverageCategory;
+import com.arthur.marchetti.model.Cart;
+import com.arthur.marchetti.model.Category;
+import com.arthur.marchetti.model.FlatRateTaxCalculator;
+import com.arthur.marchetti.model.MenuItem;
+import com.arthur.marchetti.model.RuleBasedTaxCalculator;
+import com.arthur.marchetti.services.ReceiptService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleBasedTaxCalculatorTest {
+
+    private static final RuleBasedTaxCalculator RULES = RuleBasedTaxCalculator.builder(new BigDecimal("0.06"))
+            .rate(Category.DRINK, new BigDecimal("0.05"))
+            .rate(Category.BAKERY, BigDecimal.ZERO)
+            .rate(Category.MEAL, new BigDecimal("0.0825"))
+            .rate(BeverageCategory.class, new BigDecimal("0.05"))
+            .surcharge(BeverageCategory.ALCOHOLIC, new BigDecimal("0.10"))
+            .build();
+
+    @Test
+    void lines_are_taxed_at_their_category_rate_and_summed() {
+        var cart = new Cart();
+        cart.add(new MenuItem("Coffee", new BigDecimal("3.00"), Category.DRINK), 2);        // 6.00 * 5%    = 0.30
+        cart.add(new MenuItem("Croissant", new BigDecimal("4.25"), Category.BAKERY), 1);    // 0
+        cart.add(new MenuItem("Lasagna", new BigDecimal("12.99"), Category.MEAL), 1);       // 12.99 * 8.25% = 1.071675 -> 1.07
+        cart.add(new MenuItem("Beer", new BigDecimal("6.50"), BeverageCategory.ALCOHOLIC), 3); // 19.50 * 15% = 2.925 -> 2.93
+        cart.add(new MenuItem("Soda", new BigDecimal("2.10"), BeverageCategory.COLD), 1);   // 2.10 * 5% = 0.105 -> 0.11
+        cart.add(new MenuItem("Wrap", new BigDecimal("7.00"), Category.SANDWITCH), 1);      // default 6% = 0.42
+
+        assertArrayEquals(new long[]{30, 0, 107, 293, 11, 42}, cart.getLineTaxCents(RULES));
+        assertEquals(483, cart.getTaxCents(RULES));
+        assertEquals(new BigDecimal("4.83"), cart.getTax(RULES));
+        assertEquals(cart.getSubtotalCents() + 483, cart.getTotalCents(RULES));
+        assertTrue(new ReceiptService(RULES).render(cart).stream().anyMatch(l -> l.contains("4.83")));
+
+        assertEquals(new BigDecimal("0.15"), RULES.rate(BeverageCategory.ALCOHOLIC));
+        assertEquals(new BigDecimal("0.06"), RULES.rate(Category.SANDWITCH));
+        assertEquals(new BigDecimal("0.60"), RULES.tax(new BigDecimal("10.00")));
+    }
+
+    @Test
+    void matches_bigdecimal_reference_on_random_carts() {
+        var random = new Random(7);
+        Enum<?>[] categories = {Category.DRINK, Category.BAKERY, Category.MEAL, Category.SANDWITCH,
+                BeverageCategory.HOT, BeverageCategory.ALCOHOLIC};
+        for (int round = 0; round < 200; round++) {
+            var cart = new Cart();
+            long expected = 0;
+            for (int i = 0; i < 1 + random.nextInt(20); i++) {
+                var price = BigDecimal.valueOf(1 + random.nextInt(5_000), 2);
+                int qty = 1 + random.nextInt(5);
+                Enum<?> category = categories[random.nextInt(categories.length)];
+                cart.add(new MenuItem("item" + i, price, (Enum) category), qty);
+                expected += price.multiply(BigDecimal.valueOf(qty)).multiply(RULES.rate(category))
+                        .setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+            }
+            assertEquals(expected, cart.getTaxCents(RULES));
+        }
+    }
+
+    @Test
+    void parses_rules_and_keeps_flat_calculators_on_the_subtotal() {
+        var parsed = RuleBasedTaxCalculator.parse("0.06; DRINK=0.05, BAKERY=0; MEAL=0.0825; BeverageCategory=0.05; ALCOHOLIC+0.10");
+        for (Enum<?> c : new Enum<?>[]{Category.DRINK, Category.BAKERY, Category.MEAL, Category.SANDWITCH, BeverageCategory.ALCOHOLIC, BeverageCategory.HOT}) {
+            assertEquals(RULES.rate(c), parsed.rate(c), c.name());
+        }
+        assertThrows(IllegalArgumentException.class, () -> RuleBasedTaxCalculator.parse("0.06;PIZZA=0.1"));
+        assertThrows(IllegalArgumentException.class, () -> RuleBasedTaxCalculator.parse("0.06;DRINK=-1"));
+        assertThrows(IllegalArgumentException.class, () -> RuleBasedTaxCalculator.parse("abc"));
+
+        var flat = new FlatRateTaxCalculator(new BigDecimal("0.06"));
+        var cart = new Cart();
+        cart.add(new MenuItem("Soda", new BigDecimal("2.10"), Category.DRINK), 1);   // 0.126 -> 0.13
+        cart.add(new MenuItem("Tea", new BigDecimal("2.10"), Category.DRINK), 1);
+        assertArrayEquals(new long[]{13, 13}, cart.getLineTaxCents(flat));
+        assertEquals(25, cart.getTaxCents(flat)); // 4.20 * 6% = 0.252, taxed once on the subtotal
+    }
+}
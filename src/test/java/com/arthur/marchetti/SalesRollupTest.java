@@ -0,0 +1,100 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.model.*;
+import com.arthur.marchetti.repo.SqliteOrderRepository;
+import com.arthur.marchetti.repo.SqliteReceiptRepository;
+import com.arthur.marchetti.repo.SqliteSalesRollup;
+import com.arthur.marchetti.repo.SqliteSalesRollup.Granularity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SalesRollupTest {
+    @TempDir
+    Path temp;
+
+    private final MenuItem coffee = new MenuItem("DRK-001", "Coffee", new BigDecimal("3.00"), Category.DRINK);
+    private final MenuItem tea = new MenuItem("DRK-002", "Tea", new BigDecimal("2.50"), Category.DRINK);
+    private final MenuItem croissant = new MenuItem("BAK-001", "Croissant", new BigDecimal("4.25"), Category.BAKERY);
+
+    private Order order(String at, Object... itemsAndQty) {
+        var cart = new Cart();
+        for (int i = 0; i < itemsAndQty.length; i += 2) cart.add((MenuItem) itemsAndQty[i], (Integer) itemsAndQty[i + 1]);
+        var tax = new FlatRateTaxCalculator(new BigDecimal("0.06"));
+        return new Order("o-" + at, "Alice", Instant.parse(at), cart.items(),
+                cart.getSubtotal(), cart.getTax(tax), cart.getTotal(tax));
+    }
+
+    @Test
+    void orders_update_rollups_and_rebuild_reproduces_them() throws Exception {
+        String url = "jdbc:sqlite:" + temp.resolve("orders.db").toAbsolutePath();
+        var dayStart = Instant.parse("2025-03-01T00:00:00Z");
+        var dayEnd = Instant.parse("2025-03-02T00:00:00Z");
+
+        List<SalesTotal> itemsByDay;
+        List<SalesTotal> categoriesByHour;
+        try (var repo = SqliteOrderRepository.open(url, SqliteReceiptRepository.Synchronous.NORMAL, ZoneOffset.UTC)) {
+            repo.save(order("2025-03-01T08:15:00Z", coffee, 2, croissant, 1));
+            repo.save(order("2025-03-01T08:45:00Z", coffee, 1, tea, 1));
+            repo.save(order("2025-03-01T09:05:00Z", tea, 3));
+            repo.save(order("2025-03-02T10:00:00Z", coffee, 1));
+
+            itemsByDay = repo.salesByItem(Granularity.DAY, dayStart, dayEnd);
+            assertEquals(List.of(
+                    new SalesTotal(dayStart, "BAK-001", 1, 425),
+                    new SalesTotal(dayStart, "DRK-001", 3, 900),
+                    new SalesTotal(dayStart, "DRK-002", 4, 1000)), itemsByDay);
+
+            categoriesByHour = repo.salesByCategory(Granularity.HOUR, dayStart, dayEnd);
+            var eight = Instant.parse("2025-03-01T08:00:00Z");
+            var nine = Instant.parse("2025-03-01T09:00:00Z");
+            assertEquals(List.of(
+                    new SalesTotal(eight, "BAKERY", 1, 425),
+                    new SalesTotal(eight, "DRINK", 4, 1150),
+                    new SalesTotal(nine, "DRINK", 3, 750)), categoriesByHour);
+        }
+
+        try (var c = DriverManager.getConnection(url)) {
+            c.createStatement().executeUpdate("DELETE FROM sales_by_item");
+            c.createStatement().executeUpdate("UPDATE sales_by_category SET quantity = 0");
+        }
+        SqliteSalesRollup.rebuild(url, ZoneOffset.UTC, 1, 3);
+
+        try (var repo = SqliteOrderRepository.open(url, SqliteReceiptRepository.Synchronous.NORMAL, ZoneOffset.UTC)) {
+            assertEquals(itemsByDay, repo.salesByItem(Granularity.DAY, dayStart, dayEnd));
+            assertEquals(categoriesByHour, repo.salesByCategory(Granularity.HOUR, dayStart, dayEnd));
+            assertEquals(1, repo.salesByItem(Granularity.DAY, dayEnd, dayEnd.plusSeconds(86_400)).size());
+        }
+    }
+
+    @Test
+    void rebuild_keeps_the_category_a_line_was_sold_under() throws Exception {
+        String url = "jdbc:sqlite:" + temp.resolve("orders.db").toAbsolutePath();
+        var dayStart = Instant.parse("2025-03-01T00:00:00Z");
+        var dayEnd = Instant.parse("2025-03-02T00:00:00Z");
+        var recategorized = new MenuItem("DRK-002", "Tea", new BigDecimal("2.50"), Category.BAKERY);
+
+        List<SalesTotal> categories;
+        try (var repo = SqliteOrderRepository.open(url, SqliteReceiptRepository.Synchronous.NORMAL, ZoneOffset.UTC)) {
+            repo.save(order("2025-03-01T08:00:00Z", tea, 2));
+            repo.save(order("2025-03-01T09:00:00Z", recategorized, 1));
+            categories = repo.salesByCategory(Granularity.DAY, dayStart, dayEnd);
+            assertEquals(List.of(
+                    new SalesTotal(dayStart, "BAKERY", 1, 250),
+                    new SalesTotal(dayStart, "DRINK", 2, 500)), categories);
+        }
+
+        SqliteSalesRollup.rebuild(url, ZoneOffset.UTC, 10, 1);
+        try (var repo = SqliteOrderRepository.open(url, SqliteReceiptRepository.Synchronous.NORMAL, ZoneOffset.UTC)) {
+            assertEquals(categories, repo.salesByCategory(Granularity.DAY, dayStart, dayEnd));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.repo.SegmentedReceiptLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedReceiptLogTest {
+
+    @TempDir
+    Path temp;
+
+    private static List<String> receipt(int n) {
+        return List.of("Item                 Qty   Price   Total", "Coffee #" + n + "              1    3.00    3.00",
+                "Total:                            3.18");
+    }
+
+    @Test
+    void appends_and_reads_back_by_id() throws Exception {
+        try (var log = new SegmentedReceiptLog(temp)) {
+            long first = log.append(receipt(1));
+            long second = log.append(receipt(2));
+            assertEquals(1, first);
+            assertEquals(2, second);
+            assertEquals(receipt(2), log.read(second).orElseThrow().lines());
+            assertTrue(log.read(3).isEmpty());
+            assertTrue(Files.exists(log.save(receipt(3))));
+        }
+        // same second, no FileAlreadyExistsException, and only one data file
+        try (Stream<Path> files = Files.list(temp)) {
+            assertEquals(1, files.filter(p -> p.toString().endsWith(".log")).count());
+        }
+    }
+
+    @Test
+    void rolls_segments_and_reopens_from_index() throws Exception {
+        try (var log = new SegmentedReceiptLog(temp, 1024, 0)) {
+            for (int i = 1; i <= 200; i++) log.append(receipt(i));
+            assertTrue(log.sealedSegments().size() > 5);
+        }
+        try (var log = new SegmentedReceiptLog(temp, 1024, 0)) {
+            assertEquals(200, log.lastId());
+            for (int i = 1; i <= 200; i++) assertEquals(receipt(i), log.read(i).orElseThrow().lines());
+            assertEquals(201, log.append(receipt(201)));
+        }
+    }
+
+    @Test
+    void torn_tail_is_cut_off_on_open() throws Exception {
+        try (var log = new SegmentedReceiptLog(temp)) {
+            for (int i = 1; i <= 3; i++) log.append(receipt(i));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(temp)) {
+            segment = files.filter(p -> p.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        long size = Files.size(segment);
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ch.truncate(size - 5); // crash in the middle of writing receipt 3
+        }
+
+        try (var log = new SegmentedReceiptLog(temp)) {
+            assertEquals(2, log.lastId());
+            assertTrue(log.read(3).isEmpty());
+            assertEquals(3, log.append(receipt(30)));
+            assertEquals(receipt(30), log.read(3).orElseThrow().lines());
+        }
+        var scanned = new ArrayList<Long>();
+        SegmentedReceiptLog.scan(segment, e -> scanned.add(e.id()));
+        assertEquals(List.of(1L, 2L, 3L), scanned);
+    }
+
+    @Test
+    void concurrent_appends_get_unique_ids() throws Exception {
+        int threads = 8;
+        int perThread = 250;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (var log = new SegmentedReceiptLog(temp, 16 * 1024, 0)) {
+            var ids = Collections.synchronizedList(new ArrayList<Long>());
+            var futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) ids.add(log.append(receipt(i)));
+                    return null;
+                }));
+            }
+            for (var f : futures) f.get();
+            assertEquals(threads * perThread, ids.stream().distinct().count());
+            assertEquals(threads * perThread, log.lastId());
+            for (long id : ids) assertEquals(id, log.read(id).orElseThrow().id());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void segments_over_2_gib_are_rejected() {
+        // offsets within a segment are ints; a bigger segment would wrap them and read the wrong record
+        assertThrows(IllegalArgumentException.class, () -> new SegmentedReceiptLog(temp, Integer.MAX_VALUE + 1L, 0));
+    }
+}
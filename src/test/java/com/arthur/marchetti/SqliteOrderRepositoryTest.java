@@ -0,0 +1,116 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.model.*;
+import com.arthur.marchetti.repo.SqliteOrderRepository;
+import com.arthur.marchetti.repo.SqliteReceiptRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqliteOrderRepositoryTest {
+    @TempDir
+    Path temp;
+
+    @Test
+    void stores_order_and_lines_as_cents() throws Exception {
+        var cart = new Cart();
+        cart.add(new MenuItem("DRK-001", "Coffee", new BigDecimal("3.00"), Category.DRINK), 2);
+        cart.add(new MenuItem("BAK-001", "Croissant", new BigDecimal("4.25"), Category.BAKERY), 1);
+        var tax = new FlatRateTaxCalculator(new BigDecimal("0.06"));
+        var order = new Order("20250101_120000", "Alice", Instant.ofEpochMilli(1_700_000_000_000L),
+                cart.items(), cart.getSubtotal(), cart.getTax(tax), cart.getTotal(tax));
+
+        Path db = temp.resolve("orders.db");
+        long id;
+        try (var repo = SqliteOrderRepository.open(db, SqliteReceiptRepository.Synchronous.NORMAL)) {
+            id = repo.save(order);
+            assertTrue(repo.save(order) > id);
+        }
+
+        try (var c = DriverManager.getConnection("jdbc:sqlite:" + db.toAbsolutePath())) {
+            try (var ps = c.prepareStatement("SELECT created_at, subtotal_cents, tax_cents, total_cents FROM orders WHERE id = ?")) {
+                ps.setLong(1, id);
+                try (var rs = ps.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(1_700_000_000_000L, rs.getLong(1));
+                    assertEquals(1025, rs.getLong(2));
+                    assertEquals(62, rs.getLong(3));
+                    assertEquals(1087, rs.getLong(4));
+                }
+            }
+            try (var ps = c.prepareStatement("SELECT sku, quantity, unit_price_cents, line_total_cents FROM order_lines " +
+                    "WHERE order_id = ? ORDER BY line_no")) {
+                ps.setLong(1, id);
+                try (var rs = ps.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals("DRK-001", rs.getString(1));
+                    assertEquals(2, rs.getInt(2));
+                    assertEquals(300, rs.getLong(3));
+                    assertEquals(600, rs.getLong(4));
+                    assertTrue(rs.next());
+                    assertEquals("BAK-001", rs.getString(1));
+                    assertFalse(rs.next());
+                }
+            }
+            try (var rs = c.createStatement().executeQuery("SELECT COUNT(*) FROM items")) {
+                assertTrue(rs.next());
+                assertEquals(2, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    void rejects_sub_cent_amounts_and_keeps_nothing() throws Exception {
+        var cart = new Cart();
+        cart.add(new MenuItem("Tea", new BigDecimal("2.50"), Category.DRINK), 1);
+        var order = new Order("20250101_120001", "Bob", Instant.now(), cart.items(),
+                new BigDecimal("2.50"), new BigDecimal("0.155"), new BigDecimal("2.655"));
+
+        Path db = temp.resolve("orders.db");
+        try (var repo = SqliteOrderRepository.open(db, SqliteReceiptRepository.Synchronous.NORMAL)) {
+            assertThrows(IllegalArgumentException.class, () -> repo.save(order));
+        }
+        try (var c = DriverManager.getConnection("jdbc:sqlite:" + db.toAbsolutePath());
+             var rs = c.createStatement().executeQuery("SELECT COUNT(*) FROM items")) {
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void retax_rewrites_only_orders_in_the_period_whose_tax_changed() throws Exception {
+        var six = new FlatRateTaxCalculator(new BigDecimal("0.06"));
+        var item = new MenuItem("DRK-001", "Coffee", new BigDecimal("3.00"), Category.DRINK);
+        Path db = temp.resolve("orders.db");
+        try (var repo = SqliteOrderRepository.open(db, SqliteReceiptRepository.Synchronous.NORMAL)) {
+            for (int qty = 1; qty <= 3; qty++) {
+                var cart = new Cart();
+                cart.add(item, qty);
+                repo.save(new Order("o" + qty, "Alice", Instant.ofEpochMilli(1_000L * qty), cart.items(),
+                        cart.getSubtotal(), cart.getTax(six), cart.getTotal(six)));
+            }
+            // the 1 and 2 coffee orders fall in the period; the 3 coffee order keeps its 6%
+            assertEquals(2, repo.retax(new FlatRateTaxCalculator(new BigDecimal("0.05")),
+                    Instant.ofEpochMilli(1_000), Instant.ofEpochMilli(3_000)));
+            assertEquals(0, repo.retax(new FlatRateTaxCalculator(new BigDecimal("0.05")),
+                    Instant.ofEpochMilli(1_000), Instant.ofEpochMilli(3_000)));
+            assertThrows(IllegalArgumentException.class, () -> repo.retax(
+                    RuleBasedTaxCalculator.builder(BigDecimal.ZERO).build(), Instant.EPOCH, Instant.ofEpochMilli(1)));
+        }
+        try (var c = DriverManager.getConnection("jdbc:sqlite:" + db.toAbsolutePath());
+             var rs = c.createStatement().executeQuery("SELECT tax_cents, total_cents FROM orders ORDER BY id")) {
+            long[][] expected = {{15, 315}, {30, 630}, {54, 954}};
+            for (long[] row : expected) {
+                assertTrue(rs.next());
+                assertEquals(row[0], rs.getLong(1));
+                assertEquals(row[1], rs.getLong(2));
+            }
+        }
+    }
+}
@@ -9,8 +9,11 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.math.BigDecimal;
 import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.time.LocalDateTime;
+import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 class SqliteReceiptRepositoryTest {
     @TempDir
@@ -24,9 +27,7 @@ class SqliteReceiptRepositoryTest {
         ReceiptService svc = new ReceiptService(new FlatRateTaxCalculator(new BigDecimal("0.06")));
 
 
-//        var repo = new SqliteReceiptRepository(temp.resolve("receipts.db"));
-        
-        var repo = new SqliteReceiptRepository(Path.of("/home/arthur/Arthur/College/rp.db"));
+        var repo = new SqliteReceiptRepository(temp.resolve("receipts.db"));
 
         var saver = new ReceiptDbSaver(svc, repo);
 
@@ -36,4 +37,65 @@ class SqliteReceiptRepositoryTest {
         // Assert
         assertTrue(id > 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    void in_memory_database_needs_long_lived_mode() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> new SqliteReceiptRepository("jdbc:sqlite::memory:"));
+        try (var repo = SqliteReceiptRepository.open("jdbc:sqlite::memory:", SqliteReceiptRepository.Synchronous.NORMAL)) {
+            assertTrue(repo.save(List.of("Tea"), "Ann", "2.50", "0.15", "2.65") > 0);
+            assertTrue(repo.save(List.of("Tea"), "Ann", "2.50", "0.15", "2.65") > 0);
+        }
+    }
+
+    @Test
+    void persistent_mode_reuses_connection_in_wal() throws Exception {
+        Path db = temp.resolve("persistent.db");
+        long first;
+        long second;
+        try (var repo = SqliteReceiptRepository.open(db, SqliteReceiptRepository.Synchronous.NORMAL)) {
+            assertTrue(repo.isPersistent());
+            first = repo.save(List.of("Coffee x1"), "Alice", "3.00", "0.18", "3.18");
+            second = repo.save(List.of("Tea x1"), "Bob", "2.50", "0.15", "2.65");
+
+            try (var c = DriverManager.getConnection("jdbc:sqlite:" + db.toAbsolutePath());
+                 var rs = c.createStatement().executeQuery("PRAGMA journal_mode")) {
+                assertTrue(rs.next());
+                assertEquals("wal", rs.getString(1));
+            }
+
+            repo.close();
+            assertThrows(IllegalStateException.class,
+                    () -> repo.save(List.of("late"), "Carol", "1.00", "0.06", "1.06"));
+        }
+        assertTrue(second > first);
+    }
+
+    @Test
+    void queries_page_through_indexed_ranges() throws Exception {
+        try (var repo = SqliteReceiptRepository.open(temp.resolve("query.db"), SqliteReceiptRepository.Synchronous.NORMAL)) {
+            repo.setPageSize(2);
+            long first = repo.save(List.of("Coffee x1"), "Alice", "3.00", "0.18", "3.18");
+            repo.save(List.of("Tea x1"), "Bob", "2.50", "0.15", "2.65");
+            repo.save(List.of("Salad x1"), "Alice", "9.50", "0.57", "10.07");
+            repo.save(List.of("Coffee x3"), "Alice", "9.00", "0.54", "9.54");
+            repo.save(List.of("Croissant x1"), "Alice", "4.25", "0.26", "4.51");
+
+            var stored = repo.findById(first).orElseThrow();
+            assertEquals("Alice", stored.customerName());
+            assertEquals(List.of("Coffee x1"), stored.lines());
+            assertTrue(repo.findById(first + 100).isEmpty());
+
+            assertEquals(4, repo.findByCustomer("Alice").count());
+            assertEquals(0, repo.findByCustomer("Nobody").count());
+
+            // "10.07" sorts before "9.54" as text, so this only works on the numeric index
+            var totals = repo.findByTotal(new BigDecimal("4.51"), new BigDecimal("10.07"))
+                    .map(r -> r.total()).toList();
+            assertEquals(List.of("4.51", "9.54", "10.07"), totals);
+
+            var now = LocalDateTime.now();
+            assertEquals(5, repo.findByCreatedAt(now.minusMinutes(5), now.plusMinutes(5)).count());
+            assertEquals(0, repo.findByCreatedAt(now.plusMinutes(5), now.plusMinutes(10)).count());
+        }
+    }
+}
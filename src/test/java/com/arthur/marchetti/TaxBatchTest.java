@@ -0,0 +1,59 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.model.FlatRateTaxCalculator;
+import com.arthur.marchetti.model.TaxBatch;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaxBatchTest {
+
+    private static long[] amounts(int n, long seed) {
+        var random = new Random(seed);
+        long[] amounts = new long[n];
+        for (int i = 0; i < n; i++) {
+            amounts[i] = switch (i % 50) {
+                case 0 -> 0;
+                case 1 -> Long.MAX_VALUE / (1 + random.nextInt(1000)); // products overflow a long
+                default -> random.nextInt(1_000_000);
+            };
+        }
+        return amounts;
+    }
+
+    @Test
+    void bulk_matches_per_order_bigdecimal_tax_bit_for_bit() {
+        long[] amounts = amounts(100_000, 1);
+        for (String rate : new String[]{"0.06", "0.0825", "0.07125", "0.5", "0", "1.000000000000000000000001"}) {
+            var calc = new FlatRateTaxCalculator(new BigDecimal(rate));
+            long[] bulk = calc.taxCents(amounts);
+            for (int i = 0; i < amounts.length; i++) {
+                long expected = calc.tax(BigDecimal.valueOf(amounts[i], 2)).movePointRight(2).longValueExact();
+                long amount = amounts[i];
+                assertEquals(expected, bulk[i], () -> rate + " of " + amount);
+            }
+            assertArrayEquals(bulk, calc.taxCents(Arrays.stream(amounts).parallel()).toArray());
+        }
+    }
+
+    @Test
+    void parallel_path_gives_the_sequential_result() {
+        var calc = new FlatRateTaxCalculator(new BigDecimal("0.0825"));
+        long[] amounts = amounts(1_000_003, 2);
+        long[] sequential = calc.taxCents(amounts);
+        var pool = new ForkJoinPool(4);
+        try {
+            assertArrayEquals(sequential, TaxBatch.parallelTaxCents(calc, amounts, pool));
+            amounts[700_000] = -1;
+            assertThrows(IllegalArgumentException.class, () -> TaxBatch.parallelTaxCents(calc, amounts, pool));
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(0, TaxBatch.parallelTaxCents(calc, new long[0]).length);
+    }
+}
@@ -0,0 +1,140 @@
+package com.arthur.marchetti;
+
+import com.arthur.marchetti.interfaces.TaxCalculator.ReceiptDBRepository;
+import com.arthur.marchetti.model.ReceiptRecord;
+import com.arthur.marchetti.repo.SqliteReceiptRepository;
+import com.arthur.marchetti.repo.WriteBehindReceiptRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindReceiptRepositoryTest {
+    @TempDir
+    Path temp;
+
+    // records every batch it is handed
+    static class RecordingRepository implements ReceiptDBRepository {
+        final List<Integer> batches = new CopyOnWriteArrayList<>();
+        final AtomicLong nextId = new AtomicLong();
+
+        @Override
+        public long save(List<String> lines, String customerName, String subtotal, String tax, String total) {
+            throw new UnsupportedOperationException("write-behind must use saveAll");
+        }
+
+        @Override
+        public long[] saveAll(List<ReceiptRecord> receipts) {
+            batches.add(receipts.size());
+            long[] ids = new long[receipts.size()];
+            for (int i = 0; i < ids.length; i++) ids[i] = nextId.incrementAndGet();
+            return ids;
+        }
+
+        @Override
+        public boolean savesBatchAtomically() {
+            return true;
+        }
+    }
+
+    @Test
+    void flushes_when_batch_is_full() throws Exception {
+        var delegate = new RecordingRepository();
+        try (var repo = new WriteBehindReceiptRepository(delegate, 16, 4, TimeUnit.MINUTES.toMillis(5))) {
+            var futures = new ArrayList<CompletableFuture<Long>>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(repo.saveAsync(List.of("line " + i), "Alice", "1.00", "0.06", "1.06"));
+            }
+            for (var f : futures) assertTrue(f.get(5, TimeUnit.SECONDS) > 0);
+        }
+        assertTrue(delegate.batches.stream().allMatch(size -> size <= 4));
+        assertEquals(4, delegate.batches.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void flushes_partial_batch_after_delay() throws Exception {
+        var delegate = new RecordingRepository();
+        try (var repo = new WriteBehindReceiptRepository(delegate, 16, 100, 20)) {
+            long id = repo.saveAsync(List.of("Coffee"), "Bob", "3.00", "0.18", "3.18").get(5, TimeUnit.SECONDS);
+            assertEquals(1, id);
+        }
+    }
+
+    @Test
+    void failed_batch_fails_every_future() {
+        ReceiptDBRepository broken = new RecordingRepository() {
+            @Override public long[] saveAll(List<ReceiptRecord> receipts) {
+                throw new IllegalStateException("disk full");
+            }
+        };
+        try (var repo = new WriteBehindReceiptRepository(broken, 16, 8, 10)) {
+            var ex = assertThrows(IllegalStateException.class,
+                    () -> repo.save(List.of("Tea"), "Carol", "2.50", "0.15", "2.65"));
+            assertEquals("disk full", ex.getMessage());
+        }
+    }
+
+    @Test
+    void non_atomic_delegate_reports_each_receipt_on_its_own() throws Exception {
+        var saved = new CopyOnWriteArrayList<String>();
+        ReceiptDBRepository plain = (lines, customerName, subtotal, tax, total) -> {
+            if (customerName.equals("Bad")) throw new IllegalStateException("rejected");
+            saved.add(customerName);
+            return saved.size();
+        };
+        try (var repo = new WriteBehindReceiptRepository(plain, 16, 8, TimeUnit.MINUTES.toMillis(5))) {
+            var futures = new ArrayList<CompletableFuture<Long>>();
+            for (String name : List.of("A", "B", "Bad", "C", "D", "E", "F", "G")) {
+                futures.add(repo.saveAsync(List.of("Tea"), name, "2.50", "0.15", "2.65"));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                if (i == 2) {
+                    assertThrows(Exception.class, () -> futures.get(2).get(5, TimeUnit.SECONDS));
+                } else {
+                    assertTrue(futures.get(i).get(5, TimeUnit.SECONDS) > 0);
+                }
+            }
+        }
+        assertEquals(List.of("A", "B", "C", "D", "E", "F", "G"), saved);
+    }
+
+    @Test
+    void save_after_close_is_rejected() {
+        var repo = new WriteBehindReceiptRepository(new RecordingRepository(), 1, 1, 0);
+        repo.close();
+        assertThrows(IllegalStateException.class, () -> repo.saveAsync(List.of("Tea"), "Erin", "2.50", "0.15", "2.65"));
+    }
+
+    @Test
+    void group_commits_concurrent_saves_to_sqlite() throws Exception {
+        Path db = temp.resolve("receipts.db");
+        int receipts = 200;
+        var ids = new HashSet<Long>();
+        try (var sqlite = SqliteReceiptRepository.open(db, SqliteReceiptRepository.Synchronous.FULL);
+             var repo = new WriteBehindReceiptRepository(sqlite, 64, 32, 5)) {
+            var futures = new ArrayList<CompletableFuture<Long>>();
+            for (int i = 0; i < receipts; i++) {
+                futures.add(CompletableFuture.supplyAsync(() -> repo.saveAsync(List.of("Coffee"), "Dan", "3.00", "0.18", "3.18"))
+                        .thenCompose(f -> f));
+            }
+            for (var f : futures) ids.add(f.get(30, TimeUnit.SECONDS));
+        }
+        assertEquals(receipts, ids.size());
+
+        try (var c = DriverManager.getConnection("jdbc:sqlite:" + db.toAbsolutePath());
+             var rs = c.createStatement().executeQuery("SELECT COUNT(*) FROM receipts")) {
+            assertTrue(rs.next());
+            assertEquals(receipts, rs.getInt(1));
+        }
+    }
+}